@@ -0,0 +1,67 @@
+package com.reactivespring.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emitting {@value #EVENTS} events into a sink with {@code subscribers} subscribers, reported per event: the
+ * {@code replay().all()} sink of the review handler, a replay sink keeping the latest events and a multicast
+ * sink without history.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(SinksBenchmark.EVENTS)
+public class SinksBenchmark {
+
+    static final int EVENTS = 1000;
+
+    @Param({"1", "10", "100"})
+    int subscribers;
+
+    @Benchmark
+    public void replayAll(Blackhole blackhole) {
+        emit(Sinks.many().replay().all(), blackhole);
+    }
+
+    @Benchmark
+    public void replayLimit(Blackhole blackhole) {
+        emit(Sinks.many().replay().limit(100), blackhole);
+    }
+
+    @Benchmark
+    public void multicast(Blackhole blackhole) {
+        emit(Sinks.many().multicast().onBackpressureBuffer(), blackhole);
+    }
+
+    @Benchmark
+    public void multicastDirectBestEffort(Blackhole blackhole) {
+        emit(Sinks.many().multicast().directBestEffort(), blackhole);
+    }
+
+    private void emit(Sinks.Many<Object> sink, Blackhole blackhole) {
+        for (int i = 0; i < subscribers; i++) {
+            sink.asFlux().subscribe(blackhole::consume);
+        }
+        for (int i = 0; i < EVENTS; i++) {
+            sink.tryEmitNext(i);
+        }
+        sink.tryEmitComplete();
+    }
+}
@@ -0,0 +1,66 @@
+package com.reactivespring.handler;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.ReviewDataException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ReviewHandler#validate(Review)} of a valid review and of one breaking every constraint, which also
+ * builds the error message and throws.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewValidationBenchmark {
+
+    ValidatorFactory validatorFactory;
+    ReviewHandler reviewHandler;
+    Review validReview;
+    Review invalidReview;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        // validating needs none of the repositories
+        reviewHandler = new ReviewHandler(validatorFactory.getValidator(), null, null, null, null, null);
+        validReview = new Review(null, 1L, "Awesome Movie", 9.0);
+        invalidReview = new Review(null, null, "Awesome Movie", -9.0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public void validReview() {
+        reviewHandler.validate(validReview);
+    }
+
+    @Benchmark
+    public ReviewDataException invalidReview() {
+        try {
+            reviewHandler.validate(invalidReview);
+            throw new IllegalStateException("The review should be invalid");
+        } catch (ReviewDataException ex) {
+            return ex;
+        }
+    }
+}
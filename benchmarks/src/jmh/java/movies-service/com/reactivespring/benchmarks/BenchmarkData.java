@@ -0,0 +1,27 @@
+package com.reactivespring.benchmarks;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static MovieInfo movieInfo(int id) {
+        return new MovieInfo(String.valueOf(id), "Batman Begins " + id, 2005,
+                List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+    }
+
+    static List<Review> reviews(long movieInfoId, int count) {
+        List<Review> reviews = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            reviews.add(new Review(movieInfoId + "-" + i, movieInfoId, "Awesome Movie " + i, (double) (i % 10)));
+        }
+        return reviews;
+    }
+}
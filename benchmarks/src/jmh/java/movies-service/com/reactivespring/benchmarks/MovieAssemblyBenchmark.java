@@ -0,0 +1,88 @@
+package com.reactivespring.benchmarks;
+
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assembling movies from their movie info and a review list the way {@code MoviesController} does, with the
+ * downstream calls replaced by values already at hand: one movie zipped with its {@code reviews} reviews, and a
+ * batch of {@code batchSize} movies matched with the reviews of all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieAssemblyBenchmark {
+
+    @Param({"1", "10", "100"})
+    int reviews;
+
+    @Param({"50"})
+    int batchSize;
+
+    MovieInfo movieInfo;
+    List<Review> reviewList;
+    List<MovieInfo> batchMovieInfos;
+    List<Review> batchReviews;
+
+    @Setup
+    public void setUp() {
+        movieInfo = BenchmarkData.movieInfo(1);
+        reviewList = BenchmarkData.reviews(1, reviews);
+        batchMovieInfos = new ArrayList<>(batchSize);
+        batchReviews = new ArrayList<>(batchSize * reviews);
+        for (int id = 1; id <= batchSize; id++) {
+            batchMovieInfos.add(BenchmarkData.movieInfo(id));
+            batchReviews.addAll(BenchmarkData.reviews(id, reviews));
+        }
+    }
+
+    @Benchmark
+    public Movie assembleMovie() {
+        Mono<Optional<List<Review>>> reviewsListMono = Flux.fromIterable(reviewList)
+                .collectList()
+                .map(Optional::of);
+        return Mono.zip(Mono.just(movieInfo), reviewsListMono, (movieInfo, reviewList) -> reviewList
+                        .map(reviews -> new Movie(movieInfo, reviews))
+                        .orElseGet(() -> new Movie(movieInfo, List.of(), true)))
+                .block();
+    }
+
+    @Benchmark
+    public List<Movie> assembleMovieBatch() {
+        return Mono.zip(Flux.fromIterable(batchMovieInfos).collectMap(MovieInfo::getMovieInfoId),
+                        Flux.fromIterable(batchReviews).collectMultimap(review -> String.valueOf(review.getMovieInfoId())))
+                .flatMapIterable(tuple -> {
+                    List<Movie> movies = new ArrayList<>(batchSize);
+                    tuple.getT1().forEach((movieId, movieInfo) -> {
+                        Collection<Review> reviews = tuple.getT2().getOrDefault(movieId, List.of());
+                        movies.add(new Movie(movieInfo, new ArrayList<>(reviews)));
+                    });
+                    return movies;
+                })
+                .collectList()
+                .block();
+    }
+}
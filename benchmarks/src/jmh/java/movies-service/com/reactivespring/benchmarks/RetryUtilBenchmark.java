@@ -0,0 +1,98 @@
+package com.reactivespring.benchmarks;
+
+import com.reactivespring.config.RetryProperties;
+import com.reactivespring.exception.ReviewsClientException;
+import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.util.RetryBudget;
+import com.reactivespring.util.RetryUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overhead {@code RetryUtil} adds to a downstream call that answers right away: the attempt timeout, the
+ * retry spec with its budget, both as the clients use them, a call failing with an error that isn't retried
+ * and one retried once without backoff.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetryUtilBenchmark {
+
+    static final String RESPONSE = "Batman Begins";
+
+    Duration attemptTimeout = Duration.ofSeconds(3);
+    Retry retry;
+    Retry retryWithoutBackoff;
+    int attempts;
+
+    @Setup
+    public void setUp() {
+        RetryProperties.Policy policy = new RetryProperties.Policy();
+        RetryProperties.Policy policyWithoutBackoff = new RetryProperties.Policy();
+        policyWithoutBackoff.setFirstBackoff(Duration.ZERO);
+        policyWithoutBackoff.setMaxBackoff(Duration.ZERO);
+        // every call may retry once, so the budget never runs dry however many calls are measured
+        RetryProperties.Budget budget = new RetryProperties.Budget();
+        budget.setRetryRatio(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        retry = RetryUtil.retrySpec("reviews", policy, new RetryBudget(budget), meterRegistry);
+        retryWithoutBackoff = RetryUtil.retrySpec("reviews", policyWithoutBackoff, new RetryBudget(budget), meterRegistry);
+    }
+
+    @Benchmark
+    public String baseline() {
+        return Mono.just(RESPONSE).block();
+    }
+
+    @Benchmark
+    public String attemptTimeout() {
+        return RetryUtil.attemptTimeout(Mono.just(RESPONSE), attemptTimeout).block();
+    }
+
+    @Benchmark
+    public String retrySpec() {
+        return Mono.just(RESPONSE).retryWhen(retry).block();
+    }
+
+    @Benchmark
+    public String attemptTimeoutAndRetrySpec() {
+        return Mono.just(RESPONSE)
+                .transform(attempt -> RetryUtil.attemptTimeout(attempt, attemptTimeout))
+                .retryWhen(retry)
+                .block();
+    }
+
+    @Benchmark
+    public String notRetried() {
+        return Mono.<String>error(new ReviewsClientException("Not Found"))
+                .retryWhen(retry)
+                .onErrorReturn(RESPONSE)
+                .block();
+    }
+
+    @Benchmark
+    public String retriedOnce() {
+        return Mono.defer(() -> attempts++ % 2 == 0
+                        ? Mono.<String>error(new ReviewsServerException("Server Exception"))
+                        : Mono.just(RESPONSE))
+                .retryWhen(retryWithoutBackoff)
+                .block();
+    }
+}
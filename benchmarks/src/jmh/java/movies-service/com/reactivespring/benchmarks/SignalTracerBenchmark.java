@@ -0,0 +1,67 @@
+package com.reactivespring.benchmarks;
+
+import com.reactivespring.common.util.SignalTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of watching a pipeline of ten elements: {@code log()} as the clients had it, with its output filtered out
+ * by the logback configuration of the benchmarks so only the operator is measured, and {@code SignalTracer} with its
+ * route off, sampling one in 100 subscriptions and tracing every one of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignalTracerBenchmark {
+
+    static final Integer[] ELEMENTS = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+    SignalTracer signalTracer;
+
+    @Setup
+    public void setUp() {
+        signalTracer = new SignalTracer(new SimpleMeterRegistry());
+        signalTracer.setSampleRate("sampled", 100);
+        signalTracer.setSampleRate("traced", 1);
+    }
+
+    @Benchmark
+    public Long baseline() {
+        return Flux.fromArray(ELEMENTS).count().block();
+    }
+
+    @Benchmark
+    public Long log() {
+        return Flux.fromArray(ELEMENTS).log().count().block();
+    }
+
+    @Benchmark
+    public Long tracerOff() {
+        return signalTracer.trace("off", Flux.fromArray(ELEMENTS)).count().block();
+    }
+
+    @Benchmark
+    public Long tracerSampled() {
+        return signalTracer.trace("sampled", Flux.fromArray(ELEMENTS)).count().block();
+    }
+
+    @Benchmark
+    public Long tracerEverySubscription() {
+        return signalTracer.trace("traced", Flux.fromArray(ELEMENTS)).count().block();
+    }
+}
@@ -0,0 +1,63 @@
+package com.reactivespring.benchmarks;
+
+import com.reactivespring.domain.MovieInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation of a valid movie info and of one breaking every constraint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    ValidatorFactory validatorFactory;
+    Validator validator;
+    MovieInfo validMovieInfo;
+    MovieInfo invalidMovieInfo;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validMovieInfo = BenchmarkData.movieInfo(1);
+        invalidMovieInfo = new MovieInfo("1", "", -2005, List.of(""), LocalDate.parse("2005-06-15"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<MovieInfo>> validMovieInfo() {
+        return validator.validate(validMovieInfo);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<MovieInfo>> invalidMovieInfo() {
+        return validator.validate(invalidMovieInfo);
+    }
+}
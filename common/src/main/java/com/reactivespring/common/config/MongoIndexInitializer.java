@@ -0,0 +1,162 @@
+package com.reactivespring.common.config;
+
+import com.mongodb.MongoCommandException;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Creates the indexes declared on a document at startup and removes or reports the ones that are no longer
+ * declared. Optionally explains the queries of the repository and warns or fails the startup when one of them
+ * isn't served by an index alone.
+ */
+@Slf4j
+public class MongoIndexInitializer {
+
+    public enum QueryPlanCheck { NONE, WARN, FAIL }
+
+    private static final String ID_INDEX = "_id_";
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+    private static final int INDEX_KEY_SPECS_CONFLICT = 86;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final QueryPlanVerifier queryPlanVerifier;
+    private final Class<?> entityType;
+    private final List<Query> derivedQueries;
+    private final boolean dropUndeclaredIndexes;
+    private final QueryPlanCheck queryPlanCheck;
+    private final Duration initTimeout;
+
+    public MongoIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate, QueryPlanVerifier queryPlanVerifier,
+                                 Class<?> entityType, List<Query> derivedQueries,
+                                 boolean dropUndeclaredIndexes, QueryPlanCheck queryPlanCheck, Duration initTimeout) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.queryPlanVerifier = queryPlanVerifier;
+        this.entityType = entityType;
+        this.derivedQueries = derivedQueries;
+        this.dropUndeclaredIndexes = dropUndeclaredIndexes;
+        this.queryPlanCheck = queryPlanCheck;
+        this.initTimeout = initTimeout;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        reconcileIndexes(entityType)
+                .then(verifyQueryPlans())
+                .block(initTimeout);
+    }
+
+    public Mono<Void> reconcileIndexes(Class<?> entityType) {
+        ReactiveIndexOperations indexOperations = reactiveMongoTemplate.indexOps(entityType);
+        List<IndexDefinition> declaredIndexes = StreamSupport.stream(IndexResolver
+                        .create(reactiveMongoTemplate.getConverter().getMappingContext())
+                        .resolveIndexFor(entityType).spliterator(), false)
+                .collect(Collectors.toList());
+        Set<String> declaredNames = declaredIndexes.stream()
+                .map(index -> index.getIndexOptions().getString("name"))
+                .collect(Collectors.toSet());
+
+        Flux<Void> undeclared = indexOperations.getIndexInfo()
+                .filter(index -> !ID_INDEX.equals(index.getName()) && !declaredNames.contains(index.getName()))
+                .concatMap(index -> {
+                    if (dropUndeclaredIndexes) {
+                        log.info("Dropping undeclared index {} on {}", index.getName(), entityType.getSimpleName());
+                        return indexOperations.dropIndex(index.getName());
+                    }
+                    log.warn("Index {} on {} is not declared on the document", index.getName(), entityType.getSimpleName());
+                    return Mono.empty();
+                });
+
+        Flux<String> declared = indexOperations.getIndexInfo()
+                .collectMap(IndexInfo::getName)
+                .flatMapMany(existingIndexes -> Flux.fromIterable(declaredIndexes)
+                        .concatMap(index -> {
+                            String name = index.getIndexOptions().getString("name");
+                            IndexInfo existing = existingIndexes.get(name);
+                            Mono<Void> outdated = Mono.empty();
+                            if (existing != null && !sameDefinition(existing, index)) {
+                                log.info("Recreating index {} on {}, its definition changed", name, entityType.getSimpleName());
+                                outdated = indexOperations.dropIndex(name);
+                            }
+                            return outdated.then(indexOperations.ensureIndex(index)
+                                    // created with another definition since the indexes were listed, replace it
+                                    .onErrorResume(MongoIndexInitializer::isIndexConflict, ex -> {
+                                        log.info("Recreating index {} on {}: {}", name, entityType.getSimpleName(), ex.getMessage());
+                                        return indexOperations.dropIndex(name).then(indexOperations.ensureIndex(index));
+                                    }));
+                        }));
+
+        return declared
+                .doOnNext(name -> log.info("Index {} on {} is in place", name, entityType.getSimpleName()))
+                .thenMany(undeclared)
+                .then();
+    }
+
+    private static boolean sameDefinition(IndexInfo existing, IndexDefinition declared) {
+        Document declaredKeys = declared.getIndexKeys();
+        Document existingKeys = new Document();
+        // text and geo fields have no direction, only their keys are compared
+        existing.getIndexFields().forEach(field -> existingKeys.append(field.getKey(), field.getDirection() == null
+                ? declaredKeys.get(field.getKey())
+                : field.getDirection() == Sort.Direction.DESC ? -1 : 1));
+        Document options = declared.getIndexOptions();
+        return new ArrayList<>(declaredKeys.entrySet()).equals(new ArrayList<>(existingKeys.entrySet()))
+                && options.getBoolean("unique", false) == existing.isUnique()
+                && options.getBoolean("sparse", false) == existing.isSparse();
+    }
+
+    private static boolean isIndexConflict(Throwable ex) {
+        // translated by the template, the command's error is the cause
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoCommandException) {
+                int code = ((MongoCommandException) cause).getErrorCode();
+                return code == INDEX_OPTIONS_CONFLICT || code == INDEX_KEY_SPECS_CONFLICT;
+            }
+        }
+        return false;
+    }
+
+    private Mono<Void> verifyQueryPlans() {
+        if (queryPlanCheck == QueryPlanCheck.NONE) {
+            return Mono.empty();
+        }
+
+        return queryPlanVerifier.unindexedQueries(reactiveMongoTemplate.getCollectionName(entityType), derivedQueries)
+                .collectList()
+                .onErrorResume(ex -> {
+                    if (queryPlanCheck == QueryPlanCheck.FAIL) {
+                        return Mono.error(ex);
+                    }
+                    log.warn("Query plan check failed: {}", ex.getMessage());
+                    return Mono.empty();
+                })
+                .flatMap(unindexedQueries -> {
+                    if (unindexedQueries.isEmpty()) {
+                        return Mono.empty();
+                    }
+                    String message = "Queries not served by an index: " + unindexedQueries;
+                    if (queryPlanCheck == QueryPlanCheck.FAIL) {
+                        return Mono.error(new IllegalStateException(message));
+                    }
+                    log.warn(message);
+                    return Mono.empty();
+                })
+                .then();
+    }
+}
@@ -0,0 +1,120 @@
+package com.reactivespring.common.config;
+
+import com.mongodb.MongoCommandException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Runs {@code explain} for queries and reports the ones that aren't served by an index alone: the winning plan
+ * scans the whole collection, sorts in memory or fetches documents only to filter them out. A server without
+ * {@code explain} gets the queries checked against the key prefixes of the indexes instead.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class QueryPlanVerifier {
+
+    private static final String COLLECTION_SCAN = "COLLSCAN";
+    private static final String BLOCKING_SORT = "SORT";
+    private static final String FETCH = "FETCH";
+    private static final int COMMAND_NOT_FOUND = 59;
+    private static final Set<String> LOGICAL_OPERATORS = Set.of("$and", "$or", "$nor");
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final AtomicBoolean explainUnsupportedLogged = new AtomicBoolean();
+
+    public Flux<Query> unindexedQueries(String collectionName, List<Query> queries) {
+        Mono<List<IndexInfo>> indexes = reactiveMongoTemplate.indexOps(collectionName).getIndexInfo()
+                .collectList()
+                .cache();
+
+        return Flux.fromIterable(queries)
+                .concatMap(query -> reactiveMongoTemplate.executeCommand(explain(collectionName, query))
+                        .map(explainResult -> servedByIndex(explainResult.get("queryPlanner", Document.class)
+                                .get("winningPlan", Document.class)))
+                        .onErrorResume(QueryPlanVerifier::isExplainUnsupported, ex -> {
+                            if (!explainUnsupportedLogged.getAndSet(true)) {
+                                log.warn("The server can't explain queries, checking them against the index keys: {}",
+                                        ex.getMessage());
+                            }
+                            return indexes.map(indexInfos -> indexInfos.stream().anyMatch(index -> servesQuery(index, query)));
+                        })
+                        .filter(served -> !served)
+                        .map(served -> query));
+    }
+
+    private Document explain(String collectionName, Query query) {
+        return new Document("explain", new Document("find", collectionName)
+                .append("filter", query.getQueryObject())
+                .append("sort", query.getSortObject()))
+                .append("verbosity", "queryPlanner");
+    }
+
+    static boolean servedByIndex(Document plan) {
+        String stage = plan.getString("stage");
+        if (COLLECTION_SCAN.equals(stage) || BLOCKING_SORT.equals(stage)
+                || (FETCH.equals(stage) && plan.containsKey("filter"))) {
+            return false;
+        }
+        Document inputStage = plan.get("inputStage", Document.class);
+        if (inputStage != null && !servedByIndex(inputStage)) {
+            return false;
+        }
+        List<Document> inputStages = plan.getList("inputStages", Document.class);
+        return inputStages == null || inputStages.stream().allMatch(QueryPlanVerifier::servedByIndex);
+    }
+
+    // the filtered fields in any order, then the sort keys in order, lead the keys of the index
+    static boolean servesQuery(IndexInfo index, Query query) {
+        List<String> sortKeys = new ArrayList<>(query.getSortObject().keySet());
+        Set<String> filterKeys = filterFields(query.getQueryObject());
+        filterKeys.removeAll(sortKeys);
+        List<String> indexKeys = index.getIndexFields().stream()
+                .map(IndexField::getKey)
+                .collect(Collectors.toList());
+
+        int prefix = filterKeys.size();
+        if (indexKeys.size() < prefix + sortKeys.size()) {
+            return false;
+        }
+        return new HashSet<>(indexKeys.subList(0, prefix)).equals(filterKeys)
+                && indexKeys.subList(prefix, prefix + sortKeys.size()).equals(sortKeys);
+    }
+
+    private static Set<String> filterFields(Document filter) {
+        Set<String> fields = new HashSet<>();
+        filter.forEach((key, value) -> {
+            if (LOGICAL_OPERATORS.contains(key) && value instanceof List) {
+                ((List<?>) value).stream()
+                        .filter(Document.class::isInstance)
+                        .forEach(clause -> fields.addAll(filterFields((Document) clause)));
+            } else {
+                fields.add(key);
+            }
+        });
+        return fields;
+    }
+
+    private static boolean isExplainUnsupported(Throwable ex) {
+        // translated by the template, the command's error is the cause
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoCommandException) {
+                return ((MongoCommandException) cause).getErrorCode() == COMMAND_NOT_FOUND;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,35 @@
+package com.reactivespring.common.config;
+
+import com.reactivespring.common.util.SignalTracer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/signaltracer} shows the sample rate of every traced route, {@code POST
+ * /actuator/signaltracer/{route}} with {@code {"sampleRate": 100}} traces one in 100 subscriptions of the route
+ * and {@code {"sampleRate": 0}} turns tracing off again.
+ */
+@Component
+@Endpoint(id = "signaltracer")
+@RequiredArgsConstructor
+public class SignalTracerEndpoint {
+
+    private final SignalTracer signalTracer;
+
+    @ReadOperation
+    public Map<String, Integer> sampleRates() {
+        return signalTracer.sampleRates();
+    }
+
+    @WriteOperation
+    public Map<String, Integer> sampleRate(@Selector String route, int sampleRate) {
+        signalTracer.setSampleRate(route, sampleRate);
+        return Map.of(route, sampleRate);
+    }
+}
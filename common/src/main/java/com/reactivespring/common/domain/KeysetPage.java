@@ -0,0 +1,16 @@
+package com.reactivespring.common.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class KeysetPage<T> {
+
+    private List<T> content;
+    // id of the last element when there are more elements after this page, null otherwise
+    private String lastId;
+    private Long totalCount;
+}
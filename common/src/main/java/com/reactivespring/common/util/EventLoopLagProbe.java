@@ -0,0 +1,147 @@
+package com.reactivespring.common.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.LoopResources;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how late the Netty event loops run their tasks. Every {@code interval} a probe is handed to each loop the
+ * server and the web clients run on, and the time until the loop runs it is recorded in {@code eventloop.lag}, tagged
+ * with the loop. A loop that still hasn't run its probe after {@code threshold} is stuck on a blocking call or on
+ * long work, its stack is logged once for each stall and counted in {@code eventloop.stalls}.
+ */
+@Slf4j
+@Component
+public class EventLoopLagProbe {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration interval;
+    private final Duration threshold;
+    private ScheduledExecutorService scheduler;
+
+    public EventLoopLagProbe(MeterRegistry meterRegistry,
+                             @Value("${eventLoop.lagProbe.enabled:true}") boolean enabled,
+                             @Value("${eventLoop.lagProbe.interval:PT0.1S}") Duration interval,
+                             @Value("${eventLoop.lagProbe.threshold:PT0.5S}") Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.threshold = threshold;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            // the server and the web clients share the global loops, the clients are colocated on the server's
+            start(HttpResources.get().onServer(LoopResources.DEFAULT_NATIVE));
+        }
+    }
+
+    synchronized void start(EventLoopGroup eventLoopGroup) {
+        if (scheduler != null) {
+            return;
+        }
+        List<Loop> loops = new ArrayList<>();
+        eventLoopGroup.forEach(executor -> loops.add(new Loop(executor)));
+        // a thread of its own, so the probes are handed out on time however late the loops are
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-loop-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> loops.forEach(Loop::probe),
+                interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+        log.info("Probing the lag of {} event loops every {} ms", loops.size(), interval.toMillis());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private class Loop implements Runnable {
+
+        private final EventExecutor executor;
+        private volatile Thread thread;
+        private volatile boolean pending;
+        private volatile long submittedAt;
+        private volatile Timer lag;
+        private volatile Counter stalls;
+        // only touched by the scheduler
+        private boolean stallLogged;
+
+        Loop(EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        void probe() {
+            if (!pending) {
+                stallLogged = false;
+                submittedAt = System.nanoTime();
+                pending = true;
+                executor.execute(this);
+                return;
+            }
+            long stalledFor = System.nanoTime() - submittedAt;
+            if (!stallLogged && stalledFor >= threshold.toNanos()) {
+                stallLogged = true;
+                onStall(stalledFor);
+            }
+        }
+
+        @Override
+        public void run() {
+            long lagNanos = System.nanoTime() - submittedAt;
+            if (thread == null) {
+                // the meters are tagged with the name of the loop's thread, only known once it runs a probe
+                String name = Thread.currentThread().getName();
+                lag = Timer.builder("eventloop.lag")
+                        .description("Time an event loop took to run a task handed to it")
+                        .tag("loop", name)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+                stalls = Counter.builder("eventloop.stalls")
+                        .description("Times an event loop didn't run a task within the threshold")
+                        .tag("loop", name)
+                        .register(meterRegistry);
+                thread = Thread.currentThread();
+            }
+            lag.record(lagNanos, TimeUnit.NANOSECONDS);
+            pending = false;
+        }
+
+        private void onStall(long stalledFor) {
+            Thread stalled = thread;
+            if (stalled == null) {
+                log.warn("An event loop hasn't run its first probe after {} ms", TimeUnit.NANOSECONDS.toMillis(stalledFor));
+                return;
+            }
+            stalls.increment();
+            Throwable stack = new Throwable("Stack of " + stalled.getName());
+            stack.setStackTrace(stalled.getStackTrace());
+            log.warn("Event loop {} hasn't run a task for {} ms", stalled.getName(),
+                    TimeUnit.NANOSECONDS.toMillis(stalledFor), stack);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.reactivespring.common.util;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Traces the subscriptions of the pipelines of a route, in place of {@code log()} which logs every signal. Tracing
+ * is off for every route until its sample rate is set, then one in {@code sampleRate} subscriptions is timed from
+ * subscribe to its end and to its first element, and its elements are counted. A summary of each traced
+ * subscription is logged at debug. A pipeline assembled while its route is off is returned as it is, so tracing
+ * costs nothing but a lookup of the route then.
+ */
+@Slf4j
+@Component
+public class SignalTracer {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    public SignalTracer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> trace(String route, Mono<T> mono) {
+        Route traced = route(route);
+        if (traced.sampleRate == 0) {
+            return mono;
+        }
+        return Mono.defer(() -> {
+            if (!traced.sample()) {
+                return mono;
+            }
+            Trace trace = new Trace(traced);
+            return mono.doOnNext(value -> trace.onNext())
+                    .doFinally(trace::finish);
+        });
+    }
+
+    public <T> Flux<T> trace(String route, Flux<T> flux) {
+        Route traced = route(route);
+        if (traced.sampleRate == 0) {
+            return flux;
+        }
+        return Flux.defer(() -> {
+            if (!traced.sample()) {
+                return flux;
+            }
+            Trace trace = new Trace(traced);
+            return flux.doOnNext(value -> trace.onNext())
+                    .doFinally(trace::finish);
+        });
+    }
+
+    /**
+     * Traces one in {@code sampleRate} subscriptions of the route, 0 turns tracing off. Turning a route on applies
+     * to the pipelines assembled from then on, turning it off applies right away.
+     */
+    public void setSampleRate(String route, int sampleRate) {
+        if (sampleRate < 0) {
+            throw new IllegalArgumentException("sampleRate can't be negative");
+        }
+        route(route).sampleRate = sampleRate;
+    }
+
+    /**
+     * The sample rate of every route traced since the start, whether it's on or not.
+     */
+    public Map<String, Integer> sampleRates() {
+        Map<String, Integer> sampleRates = new TreeMap<>();
+        routes.forEach((name, route) -> sampleRates.put(name, route.sampleRate));
+        return sampleRates;
+    }
+
+    private Route route(String route) {
+        return routes.computeIfAbsent(route, Route::new);
+    }
+
+    private class Route {
+
+        private final String name;
+        private final AtomicLong subscriptions = new AtomicLong();
+        private volatile int sampleRate;
+        private volatile Meters meters;
+
+        Route(String name) {
+            this.name = name;
+        }
+
+        boolean sample() {
+            int rate = sampleRate;
+            return rate > 0 && subscriptions.getAndIncrement() % rate == 0;
+        }
+
+        // registered once the route is first traced, routes that never are don't show up in the metrics
+        Meters meters() {
+            Meters registered = meters;
+            if (registered == null) {
+                registered = new Meters(name);
+                meters = registered;
+            }
+            return registered;
+        }
+    }
+
+    private class Meters {
+
+        private final Timer first;
+        private final DistributionSummary elements;
+        private final Map<SignalType, Timer> durations = new ConcurrentHashMap<>();
+        private final String route;
+
+        Meters(String route) {
+            this.route = route;
+            this.first = Timer.builder("pipeline.trace.first")
+                    .description("Time from subscribe to the first element of the traced subscriptions")
+                    .tag("route", route)
+                    .register(meterRegistry);
+            this.elements = DistributionSummary.builder("pipeline.trace.elements")
+                    .description("Elements of the traced subscriptions")
+                    .tag("route", route)
+                    .register(meterRegistry);
+        }
+
+        Timer duration(SignalType signalType) {
+            return durations.computeIfAbsent(signalType, signal -> Timer.builder("pipeline.trace.duration")
+                    .description("Time from subscribe to the end of the traced subscriptions")
+                    .tag("route", route)
+                    .tag("signal", signal.toString())
+                    .register(meterRegistry));
+        }
+    }
+
+    private static class Trace {
+
+        private final Route route;
+        private final long start = System.nanoTime();
+        private long firstElement = -1;
+        private long elements;
+
+        Trace(Route route) {
+            this.route = route;
+        }
+
+        void onNext() {
+            if (elements++ == 0) {
+                firstElement = System.nanoTime() - start;
+            }
+        }
+
+        void finish(SignalType signalType) {
+            long duration = System.nanoTime() - start;
+            Meters meters = route.meters();
+            meters.duration(signalType).record(duration, TimeUnit.NANOSECONDS);
+            meters.elements.record(elements);
+            if (firstElement >= 0) {
+                meters.first.record(firstElement, TimeUnit.NANOSECONDS);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("{} {} after {} µs, {} elements, first after {} µs", route.name, signalType,
+                        TimeUnit.NANOSECONDS.toMicros(duration), elements,
+                        firstElement >= 0 ? TimeUnit.NANOSECONDS.toMicros(firstElement) : "-");
+            }
+        }
+    }
+}
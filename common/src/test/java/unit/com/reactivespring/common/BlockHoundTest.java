@@ -0,0 +1,39 @@
+package com.reactivespring.common;
+
+import org.junit.jupiter.api.Test;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+class BlockHoundTest {
+
+    @Test
+    void blockingOnANonBlockingThreadFails() {
+        Mono<Long> blocking = Mono.delay(Duration.ofMillis(1))
+                .doOnNext(tick -> {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+
+        StepVerifier.create(blocking)
+                .expectError(BlockingOperationError.class)
+                .verify();
+    }
+
+    @Test
+    void loggingOnANonBlockingThreadIsAllowed() {
+        Mono<String> logging = Mono.fromCallable(() -> "logged")
+                .log()
+                .subscribeOn(Schedulers.parallel());
+
+        StepVerifier.create(logging)
+                .expectNext("logged")
+                .verifyComplete();
+    }
+}
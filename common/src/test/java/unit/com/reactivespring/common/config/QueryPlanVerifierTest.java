@@ -0,0 +1,121 @@
+package com.reactivespring.common.config;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+class QueryPlanVerifierTest {
+
+    static final IndexInfo YEAR_ID = index("year__id", "year", "_id");
+    static final IndexInfo NAME = index("name", "name");
+
+    @Test
+    void indexScan_servedByIndex() {
+        Document plan = new Document("stage", "FETCH")
+                .append("inputStage", new Document("stage", "IXSCAN").append("indexName", "year__id"));
+
+        assertTrue(QueryPlanVerifier.servedByIndex(plan));
+    }
+
+    @Test
+    void collectionScan_notServedByIndex() {
+        assertFalse(QueryPlanVerifier.servedByIndex(new Document("stage", "COLLSCAN")));
+    }
+
+    @Test
+    void sortInMemory_notServedByIndex() {
+        Document plan = new Document("stage", "SORT")
+                .append("inputStage", new Document("stage", "SORT_KEY_GENERATOR")
+                        .append("inputStage", new Document("stage", "FETCH")
+                                .append("inputStage", new Document("stage", "IXSCAN").append("indexName", "name"))));
+
+        assertFalse(QueryPlanVerifier.servedByIndex(plan));
+    }
+
+    @Test
+    void fetchFilteringDocuments_notServedByIndex() {
+        Document plan = new Document("stage", "FETCH")
+                .append("filter", new Document("year", new Document("$eq", 2005)))
+                .append("inputStage", new Document("stage", "IXSCAN").append("indexName", "_id_"));
+
+        assertFalse(QueryPlanVerifier.servedByIndex(plan));
+    }
+
+    @Test
+    void collectionScanInOneBranch_notServedByIndex() {
+        Document plan = new Document("stage", "SUBPLAN")
+                .append("inputStage", new Document("stage", "OR").append("inputStages", List.of(
+                        new Document("stage", "IXSCAN").append("indexName", "name"),
+                        new Document("stage", "COLLSCAN"))));
+
+        assertFalse(QueryPlanVerifier.servedByIndex(plan));
+    }
+
+    @Test
+    void indexKeys_serveFilterThenSort() {
+        Query page = Query.query(where("year").is(2005).and("_id").gt("abc")).with(Sort.by("_id"));
+
+        assertTrue(QueryPlanVerifier.servesQuery(YEAR_ID, page));
+        assertFalse(QueryPlanVerifier.servesQuery(index("_id_", "_id"), page));
+        assertFalse(QueryPlanVerifier.servesQuery(index("year_name", "year", "name"), page));
+    }
+
+    @Test
+    void indexKeys_serveFilterOnPrefix() {
+        assertTrue(QueryPlanVerifier.servesQuery(YEAR_ID, Query.query(where("year").is(2005))));
+        assertFalse(QueryPlanVerifier.servesQuery(YEAR_ID, Query.query(where("name").is("Batman Begins"))));
+        assertTrue(QueryPlanVerifier.servesQuery(YEAR_ID, Query.query(new Criteria()
+                .orOperator(where("year").is(2005), where("year").is(2008)))));
+    }
+
+    @Test
+    void unindexedQueries_withoutExplain_checksIndexKeys() {
+        ReactiveMongoTemplate reactiveMongoTemplate = mock(ReactiveMongoTemplate.class);
+        ReactiveIndexOperations indexOperations = mock(ReactiveIndexOperations.class);
+        MongoCommandException commandNotFound = new MongoCommandException(
+                new BsonDocument("ok", new BsonInt32(0)).append("code", new BsonInt32(59)), new ServerAddress());
+        when(reactiveMongoTemplate.executeCommand(any(Document.class)))
+                .thenReturn(Mono.error(new UncategorizedMongoDbException(commandNotFound.getMessage(), commandNotFound)));
+        when(reactiveMongoTemplate.indexOps("movieInfo")).thenReturn(indexOperations);
+        when(indexOperations.getIndexInfo()).thenReturn(Flux.just(index("_id_", "_id"), YEAR_ID, NAME));
+
+        Query byYear = Query.query(where("year").is(2005)).with(Sort.by("_id"));
+        Query byCast = Query.query(where("cast").is("Christian Bale"));
+
+        StepVerifier.create(new QueryPlanVerifier(reactiveMongoTemplate).unindexedQueries("movieInfo", List.of(byYear, byCast)))
+                .expectNext(byCast)
+                .verifyComplete();
+    }
+
+    static IndexInfo index(String name, String... keys) {
+        List<IndexField> indexFields = Arrays.stream(keys)
+                .map(key -> IndexField.create(key, Sort.Direction.ASC))
+                .collect(Collectors.toList());
+        return new IndexInfo(indexFields, name, false, false, null);
+    }
+}
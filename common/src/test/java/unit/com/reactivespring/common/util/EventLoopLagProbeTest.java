@@ -0,0 +1,77 @@
+package com.reactivespring.common.util;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventLoopLagProbeTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DefaultEventLoopGroup eventLoopGroup = new DefaultEventLoopGroup(2);
+    EventLoopLagProbe probe = new EventLoopLagProbe(meterRegistry, true, Duration.ofMillis(10), Duration.ofMillis(200));
+
+    @AfterEach
+    void tearDown() {
+        probe.stop();
+        eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void lagIsRecordedPerLoop() {
+        probe.start(eventLoopGroup);
+
+        await(() -> meterRegistry.find("eventloop.lag").timers().size() == 2
+                && meterRegistry.find("eventloop.lag").timers().stream().allMatch(timer -> timer.count() > 2));
+
+        assertEquals(2, meterRegistry.find("eventloop.lag").timers().size());
+        assertEquals(0, meterRegistry.get("eventloop.stalls").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum());
+    }
+
+    @Test
+    void stallIsCountedOnceAndItsLagRecorded() {
+        probe.start(eventLoopGroup);
+        EventLoop stalled = eventLoopGroup.next();
+        String name = threadName(stalled);
+        await(() -> meterRegistry.find("eventloop.lag").tag("loop", name).timer() != null);
+
+        // busy rather than blocked, which BlockHound would refuse on an event loop, the loop is as stuck either way
+        stalled.execute(() -> {
+            long end = System.nanoTime() + Duration.ofMillis(500).toNanos();
+            while (System.nanoTime() < end) {
+                // spin
+            }
+        });
+        Timer lag = meterRegistry.get("eventloop.lag").tag("loop", name).timer();
+        await(() -> lag.max(TimeUnit.MILLISECONDS) >= 200);
+
+        assertEquals(1, meterRegistry.get("eventloop.stalls").tag("loop", name).counter().count());
+        assertTrue(lag.max(TimeUnit.MILLISECONDS) >= 200);
+    }
+
+    private String threadName(EventLoop eventLoop) {
+        try {
+            return eventLoop.submit(() -> Thread.currentThread().getName()).get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.reactivespring.common.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SignalTracerTest {
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SignalTracer signalTracer = new SignalTracer(meterRegistry);
+
+    @Test
+    void routeIsOffByDefault() {
+        Flux<Integer> flux = Flux.range(1, 3);
+        Mono<Integer> mono = Mono.just(1);
+
+        assertSame(flux, signalTracer.trace("movies", flux));
+        assertSame(mono, signalTracer.trace("movie", mono));
+        assertEquals(Map.of("movie", 0, "movies", 0), signalTracer.sampleRates());
+        assertNull(meterRegistry.find("pipeline.trace.duration").timer());
+    }
+
+    @Test
+    void sampledSubscriptionsAreTimed() {
+        signalTracer.setSampleRate("movies", 2);
+        Flux<Integer> movies = signalTracer.trace("movies", Flux.range(1, 3));
+
+        for (int i = 0; i < 6; i++) {
+            movies.blockLast();
+        }
+        movies.take(1).blockLast();
+
+        Timer completed = meterRegistry.get("pipeline.trace.duration")
+                .tag("route", "movies")
+                .tag("signal", "onComplete")
+                .timer();
+        Timer cancelled = meterRegistry.get("pipeline.trace.duration")
+                .tag("route", "movies")
+                .tag("signal", "cancel")
+                .timer();
+        // every other subscription is sampled, the 7th was cancelled after its first element
+        assertEquals(3, completed.count());
+        assertEquals(1, cancelled.count());
+        assertEquals(4, meterRegistry.get("pipeline.trace.first").timer().count());
+        assertEquals(10, meterRegistry.get("pipeline.trace.elements").summary().totalAmount());
+    }
+
+    @Test
+    void errorsAndEmptyMonos() {
+        signalTracer.setSampleRate("movie", 1);
+
+        signalTracer.trace("movie", Mono.empty()).block();
+        signalTracer.trace("movie", Mono.error(new IllegalStateException())).onErrorResume(ex -> Mono.empty()).block();
+
+        assertEquals(1, meterRegistry.get("pipeline.trace.duration").tag("signal", "onComplete").timer().count());
+        assertEquals(1, meterRegistry.get("pipeline.trace.duration").tag("signal", "onError").timer().count());
+        assertEquals(0, meterRegistry.get("pipeline.trace.first").timer().count());
+    }
+
+    @Test
+    void turningARouteOnAppliesToPipelinesAssembledAfter() {
+        Mono<Integer> assembledBefore = signalTracer.trace("movie", Mono.just(1));
+        signalTracer.setSampleRate("movie", 1);
+        Mono<Integer> assembledAfter = signalTracer.trace("movie", Mono.just(1));
+
+        assembledBefore.block();
+        assembledAfter.block();
+        signalTracer.setSampleRate("movie", 0);
+        assembledAfter.block();
+
+        assertEquals(1, meterRegistry.get("pipeline.trace.duration").timer().count());
+        assertThrows(IllegalArgumentException.class, () -> signalTracer.setSampleRate("movie", -1));
+    }
+}
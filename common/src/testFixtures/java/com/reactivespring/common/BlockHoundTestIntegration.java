@@ -0,0 +1,18 @@
+package com.reactivespring.common;
+
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.integration.BlockHoundIntegration;
+
+/**
+ * What the tests let the event loops block on. BlockHound is installed for every test by blockhound-junit-platform
+ * and picks this up from META-INF/services, next to the integrations Reactor, Reactor Netty and Spring ship.
+ */
+public class BlockHoundTestIntegration implements BlockHoundIntegration {
+
+    @Override
+    public void applyTo(BlockHound.Builder builder) {
+        // logback-test.xml logs through an AsyncAppender that drops events rather than wait for room, handing an
+        // event over to its queue only takes the queue's lock
+        builder.allowBlockingCallsInside("ch.qos.logback.core.AsyncAppenderBase", "put");
+    }
+}
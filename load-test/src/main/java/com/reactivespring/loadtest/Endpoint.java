@@ -0,0 +1,21 @@
+package com.reactivespring.loadtest;
+
+public enum Endpoint {
+
+    GET_BY_ID("GET /v1/movies/{id}"),
+    LIST("GET /v1/movies?ids="),
+    POST_REVIEW("POST /v1/reviews"),
+    POST_MOVIE_INFO("POST /v1/movieinfos"),
+    // from posting a movie info until a subscriber receives it
+    STREAM("GET /v1/movies/stream");
+
+    private final String description;
+
+    Endpoint(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,86 @@
+package com.reactivespring.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * The latencies of the successful requests and the errors of the failed ones, per endpoint. Latencies are kept
+ * in microseconds with three significant digits, longer ones than {@link #HIGHEST_TRACKABLE} are recorded as
+ * that.
+ */
+public class LatencyRecorder {
+
+    static final Duration HIGHEST_TRACKABLE = Duration.ofMinutes(5);
+
+    private final Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Map<String, LongAdder>> errors = new EnumMap<>(Endpoint.class);
+
+    public LatencyRecorder() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new ConcurrentHistogram(TimeUnit.NANOSECONDS.toMicros(HIGHEST_TRACKABLE.toNanos()), 3));
+            errors.put(endpoint, new ConcurrentHashMap<>());
+        }
+    }
+
+    public void recordSuccess(Endpoint endpoint, long latencyNanos) {
+        Histogram histogram = latencies.get(endpoint);
+        histogram.recordValue(Math.min(Math.max(0, TimeUnit.NANOSECONDS.toMicros(latencyNanos)),
+                histogram.getHighestTrackableValue()));
+    }
+
+    public void recordError(Endpoint endpoint, String reason) {
+        errors.get(endpoint).computeIfAbsent(reason, r -> new LongAdder()).increment();
+    }
+
+    public long successCount(Endpoint endpoint) {
+        return latencies.get(endpoint).getTotalCount();
+    }
+
+    public long errorCount(Endpoint endpoint) {
+        return errors.get(endpoint).values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * Latency percentiles in milliseconds and error rates of the endpoints that saw any request, with the
+     * throughput over the {@code measured} time.
+     */
+    public String report(Duration measured) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-24s %10s %8s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "error %", "rps", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        double seconds = measured.toMillis() / 1000.0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = latencies.get(endpoint).copy();
+            long errorCount = errorCount(endpoint);
+            long requests = histogram.getTotalCount() + errorCount;
+            if (requests == 0) {
+                continue;
+            }
+            report.append(String.format("%-24s %10d %8d %8.2f %9.1f %9.3f %9.3f %9.3f %9.3f%n",
+                    endpoint.getDescription(), requests, errorCount, 100.0 * errorCount / requests, requests / seconds,
+                    millis(histogram, 50), millis(histogram, 99), millis(histogram, 99.9),
+                    histogram.getMaxValue() / 1000.0));
+            if (errorCount > 0) {
+                report.append("    errors: ")
+                        .append(errors.get(endpoint).entrySet().stream()
+                                .sorted(Map.Entry.comparingByKey())
+                                .map(error -> error.getKey() + " x" + error.getValue().sum())
+                                .collect(Collectors.joining(", ")))
+                        .append(System.lineSeparator());
+            }
+        }
+        return report.toString();
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
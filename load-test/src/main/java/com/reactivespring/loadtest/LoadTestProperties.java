@@ -0,0 +1,56 @@
+package com.reactivespring.loadtest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The workload and the local environment of the load test, bound from {@code loadTest}.
+ */
+@Data
+@ConfigurationProperties(prefix = "load-test")
+public class LoadTestProperties {
+
+    // requests started per second, whether or not the earlier ones have been answered
+    private double rps = 100;
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration duration = Duration.ofSeconds(60);
+    // relative weights of the request endpoints, the stream is driven by streamSubscribers instead
+    private Map<Endpoint, Integer> mix = new EnumMap<>(Map.of(
+            Endpoint.GET_BY_ID, 70,
+            Endpoint.LIST, 10,
+            Endpoint.POST_REVIEW, 15,
+            Endpoint.POST_MOVIE_INFO, 5));
+    // each subscriber samples how long the movie infos posted take to come out of the stream
+    private int streamSubscribers = 10;
+    // requests in flight above which new ones fail right away instead of piling up in the client
+    private int maxInFlight = 2000;
+    private Duration requestTimeout = Duration.ofSeconds(10);
+    private int listSize = 20;
+    private int seedMovies = 100;
+    private int seedReviewsPerMovie = 3;
+    private Path report = Path.of("reports", "load-test", "report.txt");
+    private Duration startupTimeout = Duration.ofMinutes(2);
+    private Mongo mongo = new Mongo();
+    private Map<String, Service> services = new LinkedHashMap<>();
+
+    @Data
+    public static class Mongo {
+        private String version = "3.4.11";
+        // where the Mongo archives are cached, ~/.embedmongo when not set
+        private Path artifactStore;
+        // an archive missing from the artifact store fails the start instead of being downloaded
+        private boolean download = false;
+    }
+
+    @Data
+    public static class Service {
+        private Path jar;
+        private String jvmArgs = "-Xmx512m";
+    }
+}
@@ -0,0 +1,66 @@
+package com.reactivespring.loadtest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.file.Files;
+import java.time.Duration;
+
+/**
+ * Starts the local environment, seeds it and runs the workload and the stream subscribers against it, then
+ * writes the report to {@code loadTest.report} and the log.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoadTestRunner implements CommandLineRunner {
+
+    private final LoadTestProperties properties;
+    private final WebClient.Builder webClientBuilder;
+
+    @Override
+    public void run(String... args) throws Exception {
+        // one connection per request in flight, queueing in the pool would hide the latency of the services
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("load-test")
+                .maxConnections(properties.getMaxInFlight() + properties.getStreamSubscribers())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+        LatencyRecorder recorder = new LatencyRecorder();
+
+        try (LocalEnvironment environment = LocalEnvironment.start(properties, webClient)) {
+            MovieRequests movieRequests = new MovieRequests(webClient, environment, properties, System::nanoTime);
+            movieRequests.seed().block();
+
+            long measuredFrom = System.nanoTime() + properties.getWarmup().toNanos();
+            Disposable streamSubscribers = new StreamSubscribers(movieRequests, recorder, System::nanoTime)
+                    .start(properties.getStreamSubscribers(), measuredFrom);
+            try {
+                new Workload(properties, movieRequests, recorder).run().block();
+                // the last movie infos posted still have to come out of the stream
+                Thread.sleep(Duration.ofSeconds(1).toMillis());
+            } finally {
+                streamSubscribers.dispose();
+            }
+        } finally {
+            connectionProvider.dispose();
+        }
+
+        String report = String.format("%.0f requests per second for %s, mix %s, %d stream subscribers%n%n%s",
+                properties.getRps(), properties.getDuration(), properties.getMix(), properties.getStreamSubscribers(),
+                recorder.report(properties.getDuration()));
+        log.info("Load test finished{}{}", System.lineSeparator(), report);
+        Files.createDirectories(properties.getReport().toAbsolutePath().getParent());
+        Files.writeString(properties.getReport(), report);
+        log.info("Report written to {}", properties.getReport().toAbsolutePath());
+    }
+}
@@ -0,0 +1,225 @@
+package com.reactivespring.loadtest;
+
+import de.flapdoodle.embed.mongo.Command;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.Defaults;
+import de.flapdoodle.embed.mongo.config.MongodConfig;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Versions;
+import de.flapdoodle.embed.process.config.store.DownloadConfig;
+import de.flapdoodle.embed.process.config.store.ImmutableDownloadConfig;
+import de.flapdoodle.embed.process.distribution.Distribution;
+import de.flapdoodle.embed.process.distribution.Version;
+import de.flapdoodle.embed.process.io.directories.FixedPath;
+import de.flapdoodle.embed.process.store.Downloader;
+import de.flapdoodle.embed.process.store.ImmutableExtractedArtifactStore;
+import de.flapdoodle.embed.process.runtime.Network;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The three services started as processes of their own from their boot jars, the movie info and the review
+ * service against one embedded Mongo, and the movies service against those two. Everything listens on free
+ * local ports, and the services log to {@code logs/<service>.log}. Mongo runs from the archive cached in the
+ * artifact store and is only downloaded when {@code load-test.mongo.download} is set.
+ */
+@Slf4j
+public class LocalEnvironment implements AutoCloseable {
+
+    static final String MOVIES_INFO_SERVICE = "movies-info-service";
+    static final String MOVIES_REVIEW_SERVICE = "movies-review-service";
+    static final String MOVIES_SERVICE = "movies-service";
+
+    private final LoadTestProperties properties;
+    private final WebClient webClient;
+    private final List<Process> processes = new ArrayList<>();
+    private MongodExecutable mongodExecutable;
+    private String moviesInfoUrl;
+    private String reviewsUrl;
+    private String moviesUrl;
+
+    private LocalEnvironment(LoadTestProperties properties, WebClient webClient) {
+        this.properties = properties;
+        this.webClient = webClient;
+    }
+
+    public static LocalEnvironment start(LoadTestProperties properties, WebClient webClient) throws IOException {
+        LocalEnvironment environment = new LocalEnvironment(properties, webClient);
+        try {
+            environment.start();
+        } catch (IOException | RuntimeException ex) {
+            environment.close();
+            throw ex;
+        }
+        return environment;
+    }
+
+    private void start() throws IOException {
+        int mongoPort = freePort();
+        mongodExecutable = mongodStarter(properties.getMongo()).prepare(MongodConfig.builder()
+                .version(Versions.withFeatures(Version.of(properties.getMongo().getVersion())))
+                .net(new Net(mongoPort, Network.localhostIsIPv6()))
+                .build());
+        mongodExecutable.start();
+        log.info("Started Mongo {} on port {}", properties.getMongo().getVersion(), mongoPort);
+
+        int moviesInfoPort = freePort();
+        int reviewsPort = freePort();
+        int moviesPort = freePort();
+        moviesInfoUrl = "http://localhost:" + moviesInfoPort;
+        reviewsUrl = "http://localhost:" + reviewsPort;
+        moviesUrl = "http://localhost:" + moviesPort;
+
+        startService(MOVIES_INFO_SERVICE, moviesInfoPort,
+                "--spring.data.mongodb.host=localhost",
+                "--spring.data.mongodb.port=" + mongoPort,
+                "--spring.data.mongodb.database=movieinfos");
+        startService(MOVIES_REVIEW_SERVICE, reviewsPort,
+                "--spring.data.mongodb.host=localhost",
+                "--spring.data.mongodb.port=" + mongoPort,
+                "--spring.data.mongodb.database=reviews",
+                // the movies service follows all reviews to keep its cache fresh
+                "--reviews.stream.firehoseEnabled=true");
+        startService(MOVIES_SERVICE, moviesPort,
+                "--restClient.moviesInfoUrl=" + moviesInfoUrl + "/v1/movieinfos",
+                "--restClient.reviewsUrl=" + reviewsUrl + "/v1/reviews");
+
+        awaitReady(MOVIES_INFO_SERVICE, moviesInfoUrl);
+        awaitReady(MOVIES_REVIEW_SERVICE, reviewsUrl);
+        awaitReady(MOVIES_SERVICE, moviesUrl);
+    }
+
+    private static MongodStarter mongodStarter(LoadTestProperties.Mongo mongo) {
+        ImmutableDownloadConfig.Builder downloadConfig = Defaults.downloadConfigFor(Command.MongoD);
+        if (mongo.getArtifactStore() != null) {
+            downloadConfig.artifactStorePath(new FixedPath(mongo.getArtifactStore().toString()));
+        }
+        ImmutableExtractedArtifactStore artifactStore = Defaults.extractedArtifactStoreFor(Command.MongoD)
+                .withDownloadConfig(downloadConfig.build());
+        if (!mongo.isDownload()) {
+            artifactStore = artifactStore.withDownloader(new OfflineDownloader());
+        }
+        return MongodStarter.getInstance(Defaults.runtimeConfigFor(Command.MongoD)
+                .artifactStore(artifactStore)
+                .build());
+    }
+
+    private void startService(String name, int port, String... args) throws IOException {
+        LoadTestProperties.Service service = properties.getServices().get(name);
+        if (service == null || service.getJar() == null) {
+            throw new IllegalStateException("load-test.services." + name + ".jar must point at the boot jar of " + name);
+        }
+        Path logFile = Path.of("logs", name + ".log");
+        Files.createDirectories(logFile.getParent());
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (service.getJvmArgs() != null && !service.getJvmArgs().isBlank()) {
+            command.addAll(Arrays.asList(service.getJvmArgs().trim().split("\\s+")));
+        }
+        command.add("-jar");
+        command.add(service.getJar().toString());
+        command.add("--server.port=" + port);
+        // the services have fixed management ports, which may be taken by instances already running
+        int managementPort = freePort();
+        command.add("--management.server.port=" + managementPort);
+        command.addAll(Arrays.asList(args));
+        processes.add(new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start());
+        log.info("Starting {} on port {} with management port {}, logging to {}", name, port, managementPort,
+                logFile.toAbsolutePath());
+    }
+
+    // any answer, even a 404, means the server is up
+    private void awaitReady(String name, String url) {
+        webClient.get()
+                .uri(url + "/")
+                .exchangeToMono(response -> response.releaseBody())
+                .timeout(Duration.ofSeconds(1))
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, Duration.ofMillis(250))
+                        .filter(ex -> processes.stream().allMatch(Process::isAlive)))
+                .timeout(properties.getStartupTimeout(), Mono.error(() -> new IllegalStateException(
+                        name + " didn't start within " + properties.getStartupTimeout() + ", see logs/" + name + ".log")))
+                .onErrorMap(ex -> !(ex instanceof IllegalStateException),
+                        ex -> new IllegalStateException("A service exited while starting, see the logs", ex))
+                .block();
+        log.info("{} is up at {}", name, url);
+    }
+
+    public String moviesInfoUrl() {
+        return moviesInfoUrl;
+    }
+
+    public String reviewsUrl() {
+        return reviewsUrl;
+    }
+
+    public String moviesUrl() {
+        return moviesUrl;
+    }
+
+    @Override
+    public void close() {
+        for (Process process : processes) {
+            process.destroy();
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+        if (mongodExecutable != null) {
+            mongodExecutable.stop();
+        }
+    }
+
+    // only asked for the archives missing from the artifact store
+    private static class OfflineDownloader implements Downloader {
+
+        private final Downloader online = Downloader.platformDefault();
+
+        @Override
+        public String getDownloadUrl(DownloadConfig downloadConfig, Distribution distribution) {
+            return online.getDownloadUrl(downloadConfig, distribution);
+        }
+
+        @Override
+        public File download(DownloadConfig downloadConfig, Distribution distribution) {
+            File archive = new File(downloadConfig.getArtifactStorePath().asFile(),
+                    downloadConfig.getPackageResolver().packageFor(distribution).archivePath());
+            throw new IllegalStateException("Mongo " + distribution + " isn't cached at " + archive
+                    + ", put the archive from "
+                    + getDownloadUrl(downloadConfig, distribution) + " there, point load-test.mongo.artifact-store"
+                    + " at the directory that holds it, or set load-test.mongo.download=true to download it");
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.reactivespring.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * The requests of the workload against the local services. The movies read are the seeded ones, with ids
+ * {@code 1} to {@code seedMovies}; the movie infos posted get the ids after them and carry the time they were
+ * posted in their name, so a stream subscriber can tell how long they took to reach it.
+ */
+@Slf4j
+public class MovieRequests implements Function<Endpoint, Mono<?>> {
+
+    static final String POSTED_NAME_PREFIX = "Load Test ";
+    private static final ParameterizedTypeReference<Map<String, Object>> MOVIE_INFO =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final WebClient webClient;
+    private final LocalEnvironment environment;
+    private final LoadTestProperties properties;
+    private final LongSupplier nanoTime;
+    private final AtomicLong nextMovieInfoId;
+
+    public MovieRequests(WebClient webClient, LocalEnvironment environment, LoadTestProperties properties,
+                         LongSupplier nanoTime) {
+        this.webClient = webClient;
+        this.environment = environment;
+        this.properties = properties;
+        this.nanoTime = nanoTime;
+        this.nextMovieInfoId = new AtomicLong(properties.getSeedMovies() + 1L);
+    }
+
+    @Override
+    public Mono<?> apply(Endpoint endpoint) {
+        switch (endpoint) {
+            case GET_BY_ID:
+                return webClient.get()
+                        .uri(environment.moviesUrl() + "/v1/movies/{id}", randomSeededId())
+                        .retrieve()
+                        .toBodilessEntity();
+            case LIST:
+                return webClient.get()
+                        .uri(environment.moviesUrl() + "/v1/movies?ids={ids}", randomSeededIds(properties.getListSize()))
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .retrieve()
+                        .toBodilessEntity();
+            case POST_REVIEW:
+                return postReview(randomSeededId());
+            case POST_MOVIE_INFO:
+                long id = nextMovieInfoId.getAndIncrement();
+                return postMovieInfo(id, POSTED_NAME_PREFIX + nanoTime.getAsLong());
+            default:
+                return Mono.error(new IllegalArgumentException(endpoint + " isn't a request"));
+        }
+    }
+
+    /**
+     * Creates the movies the workload reads, each with {@code seedReviewsPerMovie} reviews.
+     */
+    public Mono<Void> seed() {
+        return Flux.range(1, properties.getSeedMovies())
+                .flatMap(id -> postMovieInfo(id, "Batman Begins " + id)
+                        .thenMany(Flux.range(0, properties.getSeedReviewsPerMovie()))
+                        .concatMap(review -> postReview(id)), 8)
+                .then()
+                .doOnSuccess(ignored -> log.info("Seeded {} movies with {} reviews each",
+                        properties.getSeedMovies(), properties.getSeedReviewsPerMovie()));
+    }
+
+    public Flux<Map<String, Object>> stream() {
+        return webClient.get()
+                .uri(environment.moviesUrl() + "/v1/movies/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .retrieve()
+                .bodyToFlux(MOVIE_INFO);
+    }
+
+    private Mono<?> postMovieInfo(long id, String name) {
+        return webClient.post()
+                .uri(environment.moviesInfoUrl() + "/v1/movieinfos")
+                .bodyValue(Map.of(
+                        "movieInfoId", String.valueOf(id),
+                        "name", name,
+                        "year", 2005,
+                        "cast", List.of("Christian Bale", "Michael Cane"),
+                        "release_date", "2005-06-15"))
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    private Mono<?> postReview(long movieInfoId) {
+        return webClient.post()
+                .uri(environment.reviewsUrl() + "/v1/reviews")
+                .bodyValue(Map.of(
+                        "movieInfoId", movieInfoId,
+                        "comment", "Excellent Movie",
+                        "rating", 8.0))
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    private long randomSeededId() {
+        return ThreadLocalRandom.current().nextLong(1, properties.getSeedMovies() + 1L);
+    }
+
+    private String randomSeededIds(int count) {
+        return LongStream.generate(this::randomSeededId)
+                .limit(count)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+    }
+}
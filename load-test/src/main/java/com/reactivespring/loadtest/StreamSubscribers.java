@@ -0,0 +1,59 @@
+package com.reactivespring.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Subscribers of the movie stream, recording for every movie info the workload posted how long it took from
+ * being posted to reaching the subscriber. A subscriber that loses the stream records the error and subscribes
+ * again.
+ */
+@Slf4j
+public class StreamSubscribers {
+
+    private final MovieRequests movieRequests;
+    private final LatencyRecorder recorder;
+    private final LongSupplier nanoTime;
+
+    public StreamSubscribers(MovieRequests movieRequests, LatencyRecorder recorder, LongSupplier nanoTime) {
+        this.movieRequests = movieRequests;
+        this.recorder = recorder;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Starts the subscribers, which record the movie infos posted from {@code measuredFrom} on until disposed.
+     */
+    public Disposable start(int subscribers, long measuredFrom) {
+        Disposable.Composite composite = Disposables.composite();
+        for (int i = 0; i < subscribers; i++) {
+            composite.add(Flux.defer(movieRequests::stream)
+                    .doOnNext(movieInfo -> record(movieInfo, measuredFrom))
+                    .concatWith(Flux.error(() -> new IllegalStateException("The movie stream was closed")))
+                    .doOnError(ex -> recorder.recordError(Endpoint.STREAM, Workload.reason(ex)))
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(100)).maxBackoff(Duration.ofSeconds(1)))
+                    .subscribe());
+        }
+        log.info("Started {} stream subscribers", subscribers);
+        return composite;
+    }
+
+    private void record(Map<String, Object> movieInfo, long measuredFrom) {
+        Object name = movieInfo.get("name");
+        if (!(name instanceof String) || !((String) name).startsWith(MovieRequests.POSTED_NAME_PREFIX)) {
+            // seeded or replayed from before the load test
+            return;
+        }
+        long posted = Long.parseLong(((String) name).substring(MovieRequests.POSTED_NAME_PREFIX.length()));
+        if (posted >= measuredFrom) {
+            recorder.recordSuccess(Endpoint.STREAM, nanoTime.getAsLong() - posted);
+        }
+    }
+}
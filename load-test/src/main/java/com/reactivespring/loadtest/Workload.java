@@ -0,0 +1,144 @@
+package com.reactivespring.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Open workload: requests are started at {@code rps} on a fixed schedule, whether or not the earlier ones have
+ * been answered, the endpoint of each picked at random by the weights of the mix. A request's latency is taken
+ * from the time it was due rather than the time it was sent, so a stalled client or a late tick shows up in
+ * the latencies instead of hiding as fewer requests. Requests due during the warmup are sent but not recorded.
+ */
+@Slf4j
+public class Workload {
+
+    static final Duration TICK = Duration.ofMillis(1);
+
+    private final LoadTestProperties properties;
+    private final Function<Endpoint, Mono<?>> requests;
+    private final LatencyRecorder recorder;
+    private final Scheduler scheduler;
+    private final LongSupplier nanoTime;
+    private final Endpoint[] endpoints;
+    private final int[] cumulativeWeights;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public Workload(LoadTestProperties properties, Function<Endpoint, Mono<?>> requests, LatencyRecorder recorder) {
+        this(properties, requests, recorder, Schedulers.parallel(), System::nanoTime);
+    }
+
+    Workload(LoadTestProperties properties, Function<Endpoint, Mono<?>> requests, LatencyRecorder recorder,
+             Scheduler scheduler, LongSupplier nanoTime) {
+        if (properties.getRps() <= 0) {
+            throw new IllegalArgumentException("load-test.rps must be positive");
+        }
+        this.properties = properties;
+        this.requests = requests;
+        this.recorder = recorder;
+        this.scheduler = scheduler;
+        this.nanoTime = nanoTime;
+        Map<Endpoint, Integer> mix = new EnumMap<>(properties.getMix());
+        mix.remove(Endpoint.STREAM);
+        mix.values().removeIf(weight -> weight == null || weight <= 0);
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("load-test.mix needs at least one endpoint with a positive weight");
+        }
+        this.endpoints = mix.keySet().toArray(new Endpoint[0]);
+        this.cumulativeWeights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += mix.get(endpoints[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public Mono<Void> run() {
+        return Mono.defer(() -> {
+            long start = nanoTime.getAsLong();
+            long measuredFrom = start + properties.getWarmup().toNanos();
+            long end = measuredFrom + properties.getDuration().toNanos();
+            double periodNanos = 1_000_000_000d / properties.getRps();
+            long total = (long) Math.ceil((end - start) / periodNanos);
+            long[] started = new long[1];
+            log.info("Sending {} requests per second for {} after a warmup of {}",
+                    properties.getRps(), properties.getDuration(), properties.getWarmup());
+            return Flux.interval(TICK, scheduler)
+                    .onBackpressureDrop()
+                    .map(tick -> nanoTime.getAsLong())
+                    .takeUntil(now -> now >= end)
+                    // every request due by now, those due during a late tick included
+                    .concatMapIterable(now -> {
+                        long due = Math.min(total, (long) ((now - start) / periodNanos) + 1);
+                        List<Long> intended = new ArrayList<>((int) Math.max(0, due - started[0]));
+                        for (long i = started[0]; i < due; i++) {
+                            intended.add(start + (long) (i * periodNanos));
+                        }
+                        started[0] = Math.max(started[0], due);
+                        return intended;
+                    })
+                    .flatMap(intended -> send(intended, intended >= measuredFrom), Integer.MAX_VALUE)
+                    .then();
+        });
+    }
+
+    private Mono<Void> send(long intended, boolean measured) {
+        Endpoint endpoint = pick();
+        if (inFlight.incrementAndGet() > properties.getMaxInFlight()) {
+            inFlight.decrementAndGet();
+            if (measured) {
+                recorder.recordError(endpoint, "client saturated");
+            }
+            return Mono.empty();
+        }
+        return Mono.defer(() -> requests.apply(endpoint))
+                .timeout(properties.getRequestTimeout(), scheduler)
+                .then()
+                .doOnSuccess(ignored -> {
+                    if (measured) {
+                        recorder.recordSuccess(endpoint, nanoTime.getAsLong() - intended);
+                    }
+                })
+                .onErrorResume(ex -> {
+                    if (measured) {
+                        recorder.recordError(endpoint, reason(ex));
+                    }
+                    return Mono.empty();
+                })
+                .doFinally(signal -> inFlight.decrementAndGet());
+    }
+
+    private Endpoint pick() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        return endpoints[endpoints.length - 1];
+    }
+
+    static String reason(Throwable ex) {
+        if (ex instanceof WebClientResponseException) {
+            return "HTTP " + ((WebClientResponseException) ex).getRawStatusCode();
+        }
+        if (ex instanceof TimeoutException) {
+            return "timeout";
+        }
+        return ex.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,54 @@
+package com.reactivespring.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyRecorderTest {
+
+    LatencyRecorder recorder = new LatencyRecorder();
+
+    @Test
+    void reportsPercentilesAndErrorRatePerEndpoint() {
+        for (int i = 1; i <= 1000; i++) {
+            recorder.recordSuccess(Endpoint.GET_BY_ID, Duration.ofMillis(i).toNanos());
+        }
+        for (int i = 0; i < 10; i++) {
+            recorder.recordError(Endpoint.GET_BY_ID, "HTTP 500");
+        }
+        recorder.recordError(Endpoint.GET_BY_ID, "timeout");
+
+        String report = recorder.report(Duration.ofSeconds(10));
+        String row = report.lines()
+                .filter(line -> line.startsWith(Endpoint.GET_BY_ID.getDescription()))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(1011, Long.parseLong(row.split("\\s+")[2]));
+        assertTrue(row.contains(" 1.09 "), row);
+        assertTrue(row.contains(" 101.1 "), row);
+        assertTrue(row.contains(" 500.") && row.contains(" 990.") && row.contains(" 999."), row);
+        assertTrue(report.contains("errors: HTTP 500 x10, timeout x1"), report);
+    }
+
+    @Test
+    void endpointsWithoutRequestsAreLeftOut() {
+        recorder.recordSuccess(Endpoint.LIST, Duration.ofMillis(1).toNanos());
+
+        String report = recorder.report(Duration.ofSeconds(1));
+
+        assertTrue(report.contains(Endpoint.LIST.getDescription()));
+        assertFalse(report.contains(Endpoint.GET_BY_ID.getDescription()));
+    }
+
+    @Test
+    void latenciesAboveTheHighestTrackableAreCapped() {
+        recorder.recordSuccess(Endpoint.POST_REVIEW, Duration.ofHours(1).toNanos());
+
+        assertEquals(1, recorder.successCount(Endpoint.POST_REVIEW));
+    }
+}
@@ -0,0 +1,116 @@
+package com.reactivespring.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkloadTest {
+
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    LatencyRecorder recorder = new LatencyRecorder();
+    LoadTestProperties properties = new LoadTestProperties();
+    AtomicInteger sent = new AtomicInteger();
+
+    WorkloadTest() {
+        properties.setRps(100);
+        properties.setWarmup(Duration.ofSeconds(1));
+        properties.setDuration(Duration.ofSeconds(2));
+        properties.setMix(Map.of(Endpoint.GET_BY_ID, 1));
+    }
+
+    @Test
+    void requestsAreSentAtTheRateAndOnlyMeasuredAfterTheWarmup() {
+        run(endpoint -> {
+            sent.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(5), scheduler);
+        });
+
+        assertEquals(300, sent.get());
+        assertEquals(200, recorder.successCount(Endpoint.GET_BY_ID));
+    }
+
+    @Test
+    void slowResponsesDontSlowDownTheRate() {
+        properties.setRequestTimeout(Duration.ofSeconds(1));
+
+        run(endpoint -> {
+            sent.incrementAndGet();
+            return Mono.delay(Duration.ofSeconds(5), scheduler);
+        });
+
+        // an open workload keeps sending while the earlier requests are still waiting
+        assertEquals(300, sent.get());
+        assertEquals(200, recorder.errorCount(Endpoint.GET_BY_ID));
+        assertTrue(recorder.report(properties.getDuration()).contains("timeout x200"));
+    }
+
+    @Test
+    void latencyIsTakenFromWhenTheRequestWasDue() {
+        properties.setRps(1);
+        properties.setWarmup(Duration.ZERO);
+        properties.setDuration(Duration.ofSeconds(1));
+
+        run(endpoint -> Mono.delay(Duration.ofMillis(20), scheduler));
+
+        // the ticks add up to a millisecond to when the request is sent
+        String report = recorder.report(properties.getDuration());
+        assertEquals(1, recorder.successCount(Endpoint.GET_BY_ID));
+        assertTrue(report.contains(" 20.") || report.contains(" 21."), report);
+    }
+
+    @Test
+    void errorsAreRecordedByReason() {
+        properties.setRequestTimeout(Duration.ofSeconds(1));
+
+        run(endpoint -> Mono.error(WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Service Unavailable", null, null, null)));
+
+        assertEquals(200, recorder.errorCount(Endpoint.GET_BY_ID));
+        assertTrue(recorder.report(properties.getDuration()).contains("HTTP 503 x200"));
+    }
+
+    @Test
+    void requestsOverMaxInFlightFailRightAway() {
+        properties.setMaxInFlight(10);
+
+        run(endpoint -> {
+            sent.incrementAndGet();
+            return Mono.never();
+        });
+
+        assertEquals(10, sent.get());
+        assertTrue(recorder.report(properties.getDuration()).contains("client saturated"));
+    }
+
+    @Test
+    void mixNeedsAnEndpoint() {
+        properties.setMix(Map.of(Endpoint.GET_BY_ID, 0, Endpoint.STREAM, 10));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new Workload(properties, endpoint -> Mono.empty(), recorder, scheduler, this::now));
+    }
+
+    private void run(Function<Endpoint, Mono<?>> requests) {
+        Workload workload = new Workload(properties, requests, recorder, scheduler, this::now);
+        StepVerifier.withVirtualTime(workload::run, () -> scheduler, Long.MAX_VALUE)
+                .thenAwait(properties.getWarmup().plus(properties.getDuration()).plus(properties.getRequestTimeout()))
+                .verifyComplete();
+    }
+
+    private long now() {
+        return scheduler.now(TimeUnit.NANOSECONDS);
+    }
+}
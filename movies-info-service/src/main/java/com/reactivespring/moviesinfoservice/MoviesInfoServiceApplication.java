@@ -3,7 +3,7 @@ package com.reactivespring.moviesinfoservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-@SpringBootApplication
+@SpringBootApplication(scanBasePackages = {"com.reactivespring.moviesinfoservice", "com.reactivespring.common"})
 public class MoviesInfoServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,101 @@
+package com.reactivespring.moviesinfoservice.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Size and TTL bounded cache of movie infos by id. Concurrent lookups of the same missing id share one load,
+ * and ids that are not found are not cached.
+ */
+@Component
+public class MovieInfoCache {
+
+    private final AsyncCache<String, MovieInfo> cache;
+
+    public MovieInfoCache(@Value("${moviesInfo.cache.maximumSize:10000}") long maximumSize,
+                          @Value("${moviesInfo.cache.expireAfterWrite:PT10M}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+    }
+
+    public Mono<MovieInfo> get(String id, Function<String, Mono<MovieInfo>> loader) {
+        return Mono.fromFuture(() -> cache.get(id, (key, executor) -> loader.apply(key).toFuture()));
+    }
+
+    /**
+     * Returns the cached movie infos and loads all missing ones with one call of the loader.
+     */
+    public Flux<MovieInfo> getAll(Collection<String> ids, Function<Set<String>, Flux<MovieInfo>> loader) {
+        return Mono.fromFuture(() -> cache.getAll(ids, (keys, executor) -> {
+                    Set<String> missingIds = new HashSet<>();
+                    keys.forEach(missingIds::add);
+                    return loader.apply(missingIds)
+                            .collectMap(MovieInfo::getMovieInfoId)
+                            .toFuture();
+                }))
+                .flatMapIterable(Map::values);
+    }
+
+    public MovieInfo getIfPresent(String id) {
+        CompletableFuture<MovieInfo> movieInfo = cache.getIfPresent(id);
+        return movieInfo != null ? movieInfo.getNow(null) : null;
+    }
+
+    public void put(MovieInfo movieInfo) {
+        // concurrent writers may finish out of order, never replace a cached value with an older version
+        cache.asMap().compute(movieInfo.getMovieInfoId(), (id, cached) -> {
+            MovieInfo current = cached != null && cached.isDone() && !cached.isCompletedExceptionally()
+                    ? cached.getNow(null) : null;
+            if (current != null && isNewer(current, movieInfo)) {
+                return cached;
+            }
+            return CompletableFuture.completedFuture(movieInfo);
+        });
+    }
+
+    public void invalidate(String id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    public Set<String> ids() {
+        return Set.copyOf(cache.asMap().keySet());
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    private boolean isNewer(MovieInfo current, MovieInfo movieInfo) {
+        return current.getVersion() != null && movieInfo.getVersion() != null
+                && current.getVersion() > movieInfo.getVersion();
+    }
+
+    AsyncCache<String, MovieInfo> nativeCache() {
+        return cache;
+    }
+}
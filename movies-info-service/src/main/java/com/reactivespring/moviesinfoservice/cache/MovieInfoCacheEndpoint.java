@@ -0,0 +1,49 @@
+package com.reactivespring.moviesinfoservice.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "movieinfocache")
+@RequiredArgsConstructor
+public class MovieInfoCacheEndpoint {
+
+    private final MovieInfoCache movieInfoCache;
+
+    @ReadOperation
+    public Map<String, Object> cache() {
+        CacheStats stats = movieInfoCache.stats();
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("size", movieInfoCache.size());
+        cache.put("hitCount", stats.hitCount());
+        cache.put("missCount", stats.missCount());
+        cache.put("hitRate", stats.hitRate());
+        cache.put("evictionCount", stats.evictionCount());
+        cache.put("ids", movieInfoCache.ids());
+        return cache;
+    }
+
+    @ReadOperation
+    public MovieInfo entry(@Selector String id) {
+        return movieInfoCache.getIfPresent(id);
+    }
+
+    @DeleteOperation
+    public void clear() {
+        movieInfoCache.invalidateAll();
+    }
+
+    @DeleteOperation
+    public void evict(@Selector String id) {
+        movieInfoCache.invalidate(id);
+    }
+}
@@ -0,0 +1,22 @@
+package com.reactivespring.moviesinfoservice.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class MovieInfoCacheMetrics implements MeterBinder {
+
+    private final MovieInfoCache movieInfoCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics(movieInfoCache.nativeCache().synchronous(), "movieInfoById", List.of())
+                .bindTo(registry);
+    }
+}
@@ -0,0 +1,50 @@
+package com.reactivespring.moviesinfoservice.config;
+
+import com.reactivespring.common.config.MongoIndexInitializer;
+import com.reactivespring.common.config.QueryPlanVerifier;
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * The indexes of the movie infos, checked against the queries of the repository.
+ */
+@Configuration
+public class MongoIndexConfig {
+
+    @Bean
+    public QueryPlanVerifier queryPlanVerifier(ReactiveMongoTemplate reactiveMongoTemplate) {
+        return new QueryPlanVerifier(reactiveMongoTemplate);
+    }
+
+    @Bean
+    public MongoIndexInitializer mongoIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate,
+                                                       QueryPlanVerifier queryPlanVerifier,
+                                                       @Value("${moviesInfo.mongo.dropUndeclaredIndexes:false}") boolean dropUndeclaredIndexes,
+                                                       @Value("${moviesInfo.mongo.queryPlanCheck:NONE}") MongoIndexInitializer.QueryPlanCheck queryPlanCheck,
+                                                       @Value("${moviesInfo.mongo.initTimeout:PT30S}") Duration initTimeout) {
+        ObjectId afterId = new ObjectId();
+        List<Query> derivedQueries = List.of(
+                Query.query(where("year").is(2005)),
+                Query.query(where("name").is("Batman Begins")),
+                Query.query(where("year").is(2005).and("name").is("Batman Begins")),
+                // the keyset pages of MovieInfoRepositoryCustomImpl.findPage
+                Query.query(where("_id").gt(afterId)).with(Sort.by("_id")),
+                Query.query(where("year").is(2005).and("_id").gt(afterId)).with(Sort.by("_id")),
+                Query.query(where("name").is("Batman Begins").and("_id").gt(afterId)).with(Sort.by("_id")),
+                Query.query(where("year").is(2005).and("name").is("Batman Begins").and("_id").gt(afterId))
+                        .with(Sort.by("_id")));
+        return new MongoIndexInitializer(reactiveMongoTemplate, queryPlanVerifier, MovieInfo.class, derivedQueries,
+                dropUndeclaredIndexes, queryPlanCheck, initTimeout);
+    }
+}
@@ -1,5 +1,7 @@
 package com.reactivespring.moviesinfoservice.controller;
 
+import com.reactivespring.common.util.SignalTracer;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -9,22 +11,27 @@ import reactor.core.publisher.Mono;
 import java.time.Duration;
 
 @RestController
+@RequiredArgsConstructor
 public class FluxAndMonoController {
 
+    private final SignalTracer signalTracer;
+
     @GetMapping("/flux")
     public Flux<Integer> flux() {
-        return Flux.just(1, 2, 3).log();
+        return Flux.just(1, 2, 3)
+                .transform(flux -> signalTracer.trace("flux", flux));
     }
 
     @GetMapping("/mono")
     public Mono<String> monoHelloWorld() {
-        return Mono.just("Hello world!").log();
+        return Mono.just("Hello world!")
+                .transform(mono -> signalTracer.trace("mono", mono));
     }
 
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<Long> stream() {
         return Flux.interval(Duration.ofSeconds(1))
-                .log();
+                .transform(stream -> signalTracer.trace("stream", stream));
     }
 
 }
@@ -1,37 +1,63 @@
 package com.reactivespring.moviesinfoservice.controller;
 
+import com.reactivespring.common.util.CursorUtil;
+import com.reactivespring.common.util.SignalTracer;
+import com.reactivespring.moviesinfoservice.model.BulkInsertResult;
 import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import com.reactivespring.moviesinfoservice.model.MovieInfoField;
+import com.reactivespring.moviesinfoservice.service.MoviesInfoBulkService;
 import com.reactivespring.moviesinfoservice.service.MoviesInfoService;
+import com.reactivespring.moviesinfoservice.stream.MovieInfoEvent;
+import com.reactivespring.moviesinfoservice.stream.MovieInfoEventBuffer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.Valid;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 @Slf4j
 @RestController
 @RequestMapping("/v1")
 @RequiredArgsConstructor
 public class MoviesInfoController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
 
     private final MoviesInfoService moviesInfoservice;
-    private final Sinks.Many<MovieInfo> moviesInfoSink = Sinks.many().replay().all();
+    private final MoviesInfoBulkService moviesInfoBulkService;
+    private final MovieInfoEventBuffer movieInfoEventBuffer;
+    private final SignalTracer signalTracer;
+
+    @Value("${moviesInfo.stream.heartbeatInterval:PT15S}")
+    private Duration heartbeatInterval;
 
     @GetMapping("/movieinfos/{id}")
     @ResponseStatus(HttpStatus.OK)
@@ -39,59 +65,224 @@ public class MoviesInfoController {
         return moviesInfoservice.getMovieInfoById(id)
                 .map(ResponseEntity.ok()::body)
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transform(response -> signalTracer.trace("moviesInfoController.getMovieInfoById", response));
+    }
+
+    @GetMapping(value = "/movieinfos/{id}", params = "fields")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<ResponseEntity<Map<String, Object>>> getMovieInfoFieldsById(@PathVariable String id,
+                                                                           @RequestParam("fields") String fields) {
+        Set<MovieInfoField> selectedFields = parseFields(fields);
+        return moviesInfoservice.getMovieInfoById(id, selectedFields)
+                .map(movieInfo -> ResponseEntity.ok(MovieInfoField.select(movieInfo, selectedFields)))
+                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
     @GetMapping(value = "/movieinfos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE )
     @ResponseStatus(HttpStatus.OK)
-    public Flux<MovieInfo>  getMovieInfoStream() {
-        return moviesInfoSink.asFlux().log();
+    public Flux<MovieInfo> getMovieInfoStream(@RequestParam(value = "since", required = false) Long since,
+                                              @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return movieInfoEventBuffer.events(resumeAfter(since, lastEventId))
+                .filter(event -> event.getType() != MovieInfoEvent.Type.DELETED)
+                .map(MovieInfoEvent::getMovieInfo)
+                .transform(movieInfos -> signalTracer.trace("moviesInfoController.getMovieInfoStream", movieInfos));
+    }
+
+    @GetMapping(value = "/movieinfos/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<ServerSentEvent<MovieInfo>> getMovieInfoEventStream(@RequestParam(value = "since", required = false) Long since,
+                                                                    @RequestParam(value = "replay", defaultValue = "true") boolean replay,
+                                                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        // without a position to resume from, replay=false follows the events published from now on only
+        long afterSequence = replay || Objects.nonNull(since) || Objects.nonNull(lastEventId)
+                ? resumeAfter(since, lastEventId)
+                : movieInfoEventBuffer.lastSequence();
+        return movieInfoEventBuffer.events(afterSequence)
+                .map(event -> ServerSentEvent.builder(event.getMovieInfo())
+                        .id(String.valueOf(event.getSequence()))
+                        // created movie infos stay unnamed "message" events for the existing EventSource listeners
+                        .event(event.getType() == MovieInfoEvent.Type.CREATED ? null : event.getType().name().toLowerCase())
+                        .comment(event.getPublishedAt().toString())
+                        .build())
+                // keeps a quiet stream from looking idle to the proxies and to the response timeouts of the clients
+                .mergeWith(Flux.interval(heartbeatInterval)
+                        .map(tick -> ServerSentEvent.<MovieInfo>builder().comment("heartbeat").build()));
     }
 
     @PostMapping("/movieinfos")
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
-        return moviesInfoservice.addMovieInfo(movieInfo).log()
-                .doOnNext(moviesInfoSink::tryEmitNext);
+        return moviesInfoservice.addMovieInfo(movieInfo)
+                .transform(saved -> signalTracer.trace("moviesInfoController.addMovieInfo", saved))
+                .doOnNext(movieInfoEventBuffer::publish);
 
         //publish that movie to something
         // subscriber to this movie info
     }
 
+    @PostMapping(value = "/movieinfos/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<BulkInsertResult> addMovieInfos(@RequestBody Flux<String> movieInfoLines) {
+        return moviesInfoBulkService.addMovieInfos(movieInfoLines);
+    }
+
     @GetMapping("/movieinfos")
     @ResponseStatus(HttpStatus.OK)
-    public Flux<MovieInfo> getAllMovieInfos(@RequestParam(value = "year", required = false) Integer year,
-                                            @RequestParam(value = "name", required = false) String name) {
+    public Mono<ResponseEntity<Flux<MovieInfo>>> getAllMovieInfos(@RequestParam(value = "year", required = false) Integer year,
+                                                                  @RequestParam(value = "name", required = false) String name,
+                                                                  @RequestParam(value = "size", required = false) Integer size,
+                                                                  @RequestParam(value = "cursor", required = false) String cursor,
+                                                                  @RequestParam(value = "count", defaultValue = "false") boolean count) {
         log.info("Year: " + year);
         log.info("Name: " + name);
 
+        if (Objects.nonNull(size) || Objects.nonNull(cursor)) {
+            return getMovieInfosPage(year, name, size, cursor, count, null, Function.identity());
+        }
+
         if (Objects.nonNull(year) && Objects.nonNull(name)) {
-            return moviesInfoservice.getMoviesInfoByYearAndName(year, name);
+            return Mono.just(ResponseEntity.ok(moviesInfoservice.getMoviesInfoByYearAndName(year, name)));
         }
 
         if (Objects.nonNull(year)) {
-            return moviesInfoservice.getMoviesInfoByYear(year);
+            return Mono.just(ResponseEntity.ok(moviesInfoservice.getMoviesInfoByYear(year)));
         }
 
         if (Objects.nonNull(name)) {
-            return moviesInfoservice.getMoviesInfoByName(name);
+            return Mono.just(ResponseEntity.ok(moviesInfoservice.getMoviesInfoByName(name)));
+        }
+        return Mono.just(ResponseEntity.ok(moviesInfoservice.getAllMovieInfos()));
+    }
+
+    @GetMapping(value = "/movieinfos", params = "ids")
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<MovieInfo> getMovieInfosByIds(@RequestParam("ids") List<String> ids) {
+        if (ids.size() > MAX_PAGE_SIZE) {
+            return Flux.error(new ServerWebInputException("at most " + MAX_PAGE_SIZE + " ids can be requested at once"));
         }
-        return moviesInfoservice.getAllMovieInfos();
+        return moviesInfoservice.getMovieInfosByIds(ids);
+    }
+
+    @GetMapping(value = "/movieinfos", params = {"fields", "!ids"})
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<ResponseEntity<Flux<Map<String, Object>>>> getAllMovieInfoFields(@RequestParam(value = "year", required = false) Integer year,
+                                                                                 @RequestParam(value = "name", required = false) String name,
+                                                                                 @RequestParam(value = "size", required = false) Integer size,
+                                                                                 @RequestParam(value = "cursor", required = false) String cursor,
+                                                                                 @RequestParam(value = "count", defaultValue = "false") boolean count,
+                                                                                 @RequestParam("fields") String fields) {
+        Set<MovieInfoField> selectedFields = parseFields(fields);
+        Function<MovieInfo, Map<String, Object>> select = movieInfo -> MovieInfoField.select(movieInfo, selectedFields);
+
+        if (Objects.nonNull(size) || Objects.nonNull(cursor)) {
+            return getMovieInfosPage(year, name, size, cursor, count, selectedFields, select);
+        }
+        return Mono.just(ResponseEntity.ok(moviesInfoservice.getMovieInfos(year, name, selectedFields).map(select)));
     }
 
     @PutMapping("/movieinfos/{id}")
     @ResponseStatus(HttpStatus.OK)
-    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updatedMovieInfo, @PathVariable("id") String id) {
+    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updatedMovieInfo, @PathVariable("id") String id,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version;
+        try {
+            version = expectedVersion(updatedMovieInfo.getVersion(), ifMatch);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ServerWebInputException(e.getMessage()));
+        }
+        if (Objects.isNull(version)) {
+            return Mono.error(new ResponseStatusException(HttpStatus.PRECONDITION_REQUIRED,
+                    "the version to update is required, in the body or in If-Match"));
+        }
+        updatedMovieInfo.setVersion(version);
+
         return moviesInfoservice.updateMovieInfo(updatedMovieInfo, id)
+                .doOnNext(movieInfo -> movieInfoEventBuffer.publish(MovieInfoEvent.Type.UPDATED, movieInfo))
                 .map(ResponseEntity.ok()::body)
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transform(response -> signalTracer.trace("moviesInfoController.updateMovieInfo", response));
     }
 
     @DeleteMapping("/movieinfos/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> deleteMovieInfo(@PathVariable String id) {
-        return moviesInfoservice.deleteMovieInfo(id);
+        return moviesInfoservice.deleteMovieInfo(id)
+                .filter(Boolean::booleanValue)
+                .doOnNext(deleted -> movieInfoEventBuffer.publish(MovieInfoEvent.Type.DELETED, deletedMovieInfo(id)))
+                .then();
+    }
+
+    // If-Match carries the version as an entity tag, "3" or W/"3"
+    private Long expectedVersion(Long bodyVersion, String ifMatch) {
+        if (Objects.isNull(ifMatch)) {
+            return bodyVersion;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        long version;
+        try {
+            version = Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must carry the version of the movie info, not " + ifMatch);
+        }
+        if (Objects.nonNull(bodyVersion) && bodyVersion != version) {
+            throw new IllegalArgumentException("If-Match " + ifMatch + " does not match the version " + bodyVersion + " in the body");
+        }
+        return version;
+    }
+
+    private <T> Mono<ResponseEntity<Flux<T>>> getMovieInfosPage(Integer year, String name, Integer size,
+                                                               String cursor, boolean count,
+                                                               Set<MovieInfoField> fields, Function<MovieInfo, T> mapper) {
+        int pageSize = Objects.nonNull(size) ? size : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return Mono.error(new ServerWebInputException("size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+
+        String afterId;
+        try {
+            afterId = Objects.nonNull(cursor) ? CursorUtil.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ServerWebInputException(e.getMessage()));
+        }
+
+        return moviesInfoservice.getMovieInfosPage(year, name, afterId, pageSize, count, fields)
+                .map(page -> {
+                    HttpHeaders headers = new HttpHeaders();
+                    if (Objects.nonNull(page.getLastId())) {
+                        headers.set(NEXT_CURSOR_HEADER, CursorUtil.encode(page.getLastId()));
+                    }
+                    if (Objects.nonNull(page.getTotalCount())) {
+                        headers.set(TOTAL_COUNT_HEADER, String.valueOf(page.getTotalCount()));
+                    }
+                    return ResponseEntity.ok().headers(headers).body(Flux.fromIterable(page.getContent()).map(mapper));
+                });
     }
 
+    private Set<MovieInfoField> parseFields(String fields) {
+        try {
+            return MovieInfoField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException(e.getMessage());
+        }
+    }
+
+    private MovieInfo deletedMovieInfo(String id) {
+        MovieInfo movieInfo = new MovieInfo();
+        movieInfo.setMovieInfoId(id);
+        return movieInfo;
+    }
+
+    private long resumeAfter(Long since, Long lastEventId) {
+        if (Objects.nonNull(since)) {
+            return since;
+        }
+        return Objects.nonNull(lastEventId) ? lastEventId : 0L;
+    }
 }
@@ -2,6 +2,8 @@ package com.reactivespring.moviesinfoservice.exceptionhandler;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -26,4 +28,16 @@ public class GlobalErrorHandler {
         log.error("Errors: {}", error);
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
+
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<String> handleDuplicateKey(DuplicateKeyException exception) {
+        log.error("Exception Caught in handleDuplicateKey: {}", exception.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("movieInfo already exists, update it instead");
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(OptimisticLockingFailureException exception) {
+        log.error("Exception Caught in handleOptimisticLockingFailure: {}", exception.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(exception.getMessage());
+    }
 }
@@ -0,0 +1,25 @@
+package com.reactivespring.moviesinfoservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkInsertResult {
+
+    private long line;
+    private String movieInfoId;
+    private String error;
+
+    public static BulkInsertResult inserted(long line, String movieInfoId) {
+        return new BulkInsertResult(line, movieInfoId, null);
+    }
+
+    public static BulkInsertResult failed(long line, String error) {
+        return new BulkInsertResult(line, null, error);
+    }
+}
@@ -4,6 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
@@ -16,6 +19,12 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+// suffixed with _id, so keyset pages of a year or a name seek and sort on the index
+@CompoundIndexes({
+        @CompoundIndex(name = "year", def = "{'year': 1, '_id': 1}"),
+        @CompoundIndex(name = "name", def = "{'name': 1, '_id': 1}"),
+        @CompoundIndex(name = "year_name", def = "{'year': 1, 'name': 1, '_id': 1}")
+})
 public class MovieInfo {
 
     @Id
@@ -28,5 +37,10 @@ public class MovieInfo {
 
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
     private LocalDate releaseDate;
+    @Version
+    private Long version;
 
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate releaseDate) {
+        this(movieInfoId, name, year, cast, releaseDate, null);
+    }
 }
@@ -0,0 +1,58 @@
+package com.reactivespring.moviesinfoservice.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fields of {@link MovieInfo} that can be requested with the {@code fields} query parameter.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum MovieInfoField {
+    MOVIE_INFO_ID("movieInfoId", MovieInfo::getMovieInfoId),
+    NAME("name", MovieInfo::getName),
+    YEAR("year", MovieInfo::getYear),
+    CAST("cast", MovieInfo::getCast),
+    RELEASE_DATE("releaseDate", MovieInfo::getReleaseDate),
+    VERSION("version", MovieInfo::getVersion);
+
+    private final String fieldName;
+    private final Function<MovieInfo, Object> accessor;
+
+    /**
+     * Parses a comma separated list of field names, the id is always selected.
+     */
+    public static Set<MovieInfoField> parse(String fields) {
+        List<String> names = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toList());
+
+        Set<MovieInfoField> selected = EnumSet.of(MOVIE_INFO_ID);
+        for (String name : names) {
+            selected.add(Arrays.stream(values())
+                    .filter(field -> field.fieldName.equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown movieInfo field: " + name
+                            + ", allowed fields are " + Arrays.stream(values())
+                            .map(MovieInfoField::getFieldName)
+                            .collect(Collectors.joining(",")))));
+        }
+        return selected;
+    }
+
+    public static Map<String, Object> select(MovieInfo movieInfo, Set<MovieInfoField> fields) {
+        Map<String, Object> selected = new LinkedHashMap<>();
+        fields.forEach(field -> selected.put(field.fieldName, field.accessor.apply(movieInfo)));
+        return selected;
+    }
+}
@@ -4,11 +4,14 @@ import com.reactivespring.moviesinfoservice.model.MovieInfo;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Repository
-public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String> {
+public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String>, MovieInfoRepositoryCustom {
 
     Flux<MovieInfo> findByYear(Integer year);
     Flux<MovieInfo> findByName(String name);
     Flux<MovieInfo> findByYearAndName(Integer year, String name);
+
+    Mono<Long> deleteByMovieInfoId(String movieInfoId);
 }
@@ -0,0 +1,38 @@
+package com.reactivespring.moviesinfoservice.repository;
+
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import com.reactivespring.moviesinfoservice.model.MovieInfoField;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface MovieInfoRepositoryCustom {
+
+    /**
+     * Reads a page in id order, only the given fields are read when {@code fields} is not null.
+     */
+    Flux<MovieInfo> findPage(Integer year, String name, String afterId, int limit, Set<MovieInfoField> fields);
+
+    Flux<MovieInfo> findProjected(Integer year, String name, Set<MovieInfoField> fields);
+
+    Mono<MovieInfo> findProjectedById(String id, Set<MovieInfoField> fields);
+
+    Mono<Long> countBy(Integer year, String name);
+
+    /**
+     * Replaces the fields of the movie info in a single findAndModify and returns the new document.
+     * The update must carry the version it applies to, an
+     * {@link org.springframework.dao.OptimisticLockingFailureException} is signalled when the stored one differs.
+     * Completes empty when there is no movie info with the given id.
+     */
+    Mono<MovieInfo> updateMovieInfo(String id, MovieInfo movieInfo);
+
+    /**
+     * Inserts the movie infos with a single unordered insertMany, assigning ids to the ones that have none.
+     * Returns the write errors keyed by the position of the failed element, empty when everything was inserted.
+     */
+    Mono<Map<Integer, String>> insertUnordered(List<MovieInfo> movieInfos);
+}
@@ -0,0 +1,139 @@
+package com.reactivespring.moviesinfoservice.repository;
+
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import com.reactivespring.moviesinfoservice.model.MovieInfoField;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class MovieInfoRepositoryCustomImpl implements MovieInfoRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Flux<MovieInfo> findPage(Integer year, String name, String afterId, int limit, Set<MovieInfoField> fields) {
+        Query query = project(filter(year, name), fields);
+        if (Objects.nonNull(afterId)) {
+            query.addCriteria(idAfter(afterId));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit);
+        return reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> findProjected(Integer year, String name, Set<MovieInfoField> fields) {
+        return reactiveMongoTemplate.find(project(filter(year, name), fields), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<MovieInfo> findProjectedById(String id, Set<MovieInfoField> fields) {
+        return reactiveMongoTemplate.findOne(project(Query.query(where("_id").is(id)), fields), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<Long> countBy(Integer year, String name) {
+        return reactiveMongoTemplate.count(filter(year, name), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<MovieInfo> updateMovieInfo(String id, MovieInfo movieInfo) {
+        Objects.requireNonNull(movieInfo.getVersion(), "the version to update is required");
+        Query query = Query.query(where("_id").is(id));
+        // documents written before they were versioned have no version, they're at version 0
+        query.addCriteria(movieInfo.getVersion() == 0
+                ? new Criteria().orOperator(where("version").is(0L), where("version").exists(false))
+                : where("version").is(movieInfo.getVersion()));
+        Update update = new Update()
+                .set("name", movieInfo.getName())
+                .set("year", movieInfo.getYear())
+                .set("cast", movieInfo.getCast())
+                .set("releaseDate", movieInfo.getReleaseDate())
+                .inc("version", 1);
+
+        return reactiveMongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), MovieInfo.class)
+                // only pay for the second round trip when the conditional update did not match
+                .switchIfEmpty(Mono.defer(() -> reactiveMongoTemplate.exists(Query.query(where("_id").is(id)), MovieInfo.class)
+                        .flatMap(exists -> exists
+                                ? Mono.error(new OptimisticLockingFailureException(
+                                "movieInfo " + id + " was modified, version " + movieInfo.getVersion() + " is stale"))
+                                : Mono.empty())));
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> insertUnordered(List<MovieInfo> movieInfos) {
+        if (movieInfos.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+
+        List<Document> documents = new ArrayList<>(movieInfos.size());
+        for (MovieInfo movieInfo : movieInfos) {
+            if (Objects.isNull(movieInfo.getMovieInfoId())) {
+                movieInfo.setMovieInfoId(new ObjectId().toHexString());
+            }
+            // written around the template, which would set the first version on save
+            if (Objects.isNull(movieInfo.getVersion())) {
+                movieInfo.setVersion(0L);
+            }
+            Document document = new Document();
+            reactiveMongoTemplate.getConverter().write(movieInfo, document);
+            documents.add(document);
+        }
+
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> Map.<Integer, String>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))));
+    }
+
+    private Query project(Query query, Set<MovieInfoField> fields) {
+        if (Objects.nonNull(fields)) {
+            fields.forEach(field -> query.fields().include(field.getFieldName()));
+        }
+        return query;
+    }
+
+    private Query filter(Integer year, String name) {
+        Query query = new Query();
+        if (Objects.nonNull(year)) {
+            query.addCriteria(where("year").is(year));
+        }
+        if (Objects.nonNull(name)) {
+            query.addCriteria(where("name").is(name));
+        }
+        return query;
+    }
+
+    private Criteria idAfter(String afterId) {
+        if (ObjectId.isValid(afterId)) {
+            return where("_id").gt(new ObjectId(afterId));
+        }
+        // string ids sort before ObjectIds, and $gt only compares values of the same type
+        return new Criteria().orOperator(
+                where("_id").gt(afterId),
+                where("_id").type(JsonSchemaObject.Type.objectIdType()));
+    }
+}
@@ -0,0 +1,103 @@
+package com.reactivespring.moviesinfoservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.moviesinfoservice.model.BulkInsertResult;
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import com.reactivespring.moviesinfoservice.repository.MovieInfoRepository;
+import com.reactivespring.moviesinfoservice.stream.MovieInfoEventBuffer;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class MoviesInfoBulkService {
+
+    private final MovieInfoRepository movieInfoRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final MovieInfoEventBuffer movieInfoEventBuffer;
+
+    @Value("${moviesInfo.bulk.batchSize:500}")
+    private int batchSize;
+    @Value("${moviesInfo.bulk.maxInFlightBatches:2}")
+    private int maxInFlightBatches;
+
+    /**
+     * Inserts one movie info per NDJSON line. Lines are parsed and validated one by one and written in batches,
+     * with at most {@code maxInFlightBatches} batches waiting on Mongo, and a result is emitted for every line
+     * in the order the lines were received.
+     */
+    public Flux<BulkInsertResult> addMovieInfos(Flux<String> lines) {
+        return lines
+                .index((index, line) -> new BulkItem(index + 1, line, null, null))
+                .filter(item -> !item.line.isBlank())
+                .map(this::parseAndValidate)
+                .buffer(batchSize)
+                .flatMapSequential(this::insertBatch, maxInFlightBatches)
+                .flatMapIterable(results -> results);
+    }
+
+    private BulkItem parseAndValidate(BulkItem item) {
+        MovieInfo movieInfo;
+        try {
+            movieInfo = objectMapper.readValue(item.line, MovieInfo.class);
+        } catch (JsonProcessingException e) {
+            return new BulkItem(item.lineNumber, null, null, "invalid json: " + e.getOriginalMessage());
+        }
+
+        Set<ConstraintViolation<MovieInfo>> constraintViolations = validator.validate(movieInfo);
+        if (!constraintViolations.isEmpty()) {
+            String error = constraintViolations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(","));
+            return new BulkItem(item.lineNumber, null, null, error);
+        }
+        return new BulkItem(item.lineNumber, null, movieInfo, null);
+    }
+
+    private Mono<List<BulkInsertResult>> insertBatch(List<BulkItem> batch) {
+        List<BulkItem> validItems = batch.stream()
+                .filter(item -> Objects.nonNull(item.movieInfo))
+                .collect(Collectors.toList());
+        List<MovieInfo> movieInfos = validItems.stream()
+                .map(item -> item.movieInfo)
+                .collect(Collectors.toList());
+
+        return movieInfoRepository.insertUnordered(movieInfos)
+                .map(writeErrors -> {
+                    for (int i = 0; i < validItems.size(); i++) {
+                        BulkItem item = validItems.get(i);
+                        item.error = writeErrors.get(i);
+                        if (Objects.isNull(item.error)) {
+                            movieInfoEventBuffer.publish(item.movieInfo);
+                        }
+                    }
+                    return batch.stream()
+                            .map(item -> Objects.nonNull(item.error)
+                                    ? BulkInsertResult.failed(item.lineNumber, item.error)
+                                    : BulkInsertResult.inserted(item.lineNumber, item.movieInfo.getMovieInfoId()))
+                            .collect(Collectors.toList());
+                });
+    }
+
+    @AllArgsConstructor
+    private static class BulkItem {
+        private final long lineNumber;
+        private final String line;
+        private final MovieInfo movieInfo;
+        private String error;
+    }
+}
@@ -1,42 +1,67 @@
 package com.reactivespring.moviesinfoservice.service;
 
+import com.reactivespring.common.domain.KeysetPage;
+import com.reactivespring.common.util.SignalTracer;
+import com.reactivespring.moviesinfoservice.cache.MovieInfoCache;
 import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import com.reactivespring.moviesinfoservice.model.MovieInfoField;
 import com.reactivespring.moviesinfoservice.repository.MovieInfoRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Set;
+
 @Service
 @RequiredArgsConstructor
 public class MoviesInfoService {
     private final MovieInfoRepository movieInfoRepository;
+    private final MovieInfoCache movieInfoCache;
+    private final SignalTracer signalTracer;
 
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
-        return movieInfoRepository.save(movieInfo);
+        return movieInfoRepository.save(movieInfo)
+                .doOnNext(movieInfoCache::put);
     }
 
     public Mono<MovieInfo> getMovieInfoById(String id) {
-        return movieInfoRepository.findById(id).log();
+        return movieInfoCache.get(id, movieInfoRepository::findById)
+                .transform(movieInfo -> signalTracer.trace("moviesInfoService.getMovieInfoById", movieInfo));
+    }
+
+    public Flux<MovieInfo> getMovieInfosByIds(List<String> ids) {
+        return movieInfoCache.getAll(ids, movieInfoRepository::findAllById);
+    }
+
+    public Mono<MovieInfo> getMovieInfoById(String id, Set<MovieInfoField> fields) {
+        // a cached movie info already has every field, only go to Mongo for the projection on a miss
+        MovieInfo cached = movieInfoCache.getIfPresent(id);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return movieInfoRepository.findProjectedById(id, fields);
+    }
+
+    public Flux<MovieInfo> getMovieInfos(Integer year, String name, Set<MovieInfoField> fields) {
+        return movieInfoRepository.findProjected(year, name, fields);
     }
 
     public Flux<MovieInfo> getAllMovieInfos() {
-        return movieInfoRepository.findAll().log();
+        return movieInfoRepository.findAll()
+                .transform(movieInfos -> signalTracer.trace("moviesInfoService.getAllMovieInfos", movieInfos));
     }
 
     public Mono<MovieInfo> updateMovieInfo(MovieInfo updatedMovieInfo, String id) {
-        return movieInfoRepository.findById(id)
-                .flatMap(movieInfo -> {
-                    movieInfo.setCast(updatedMovieInfo.getCast());
-                    movieInfo.setName(updatedMovieInfo.getName());
-                    movieInfo.setReleaseDate(updatedMovieInfo.getReleaseDate());
-                    movieInfo.setYear(updatedMovieInfo.getYear());
-                    return movieInfoRepository.save(movieInfo);
-                });
+        return movieInfoRepository.updateMovieInfo(id, updatedMovieInfo)
+                .doOnNext(movieInfoCache::put);
     }
 
-    public Mono<Void> deleteMovieInfo(String id) {
-        return movieInfoRepository.deleteById(id);
+    public Mono<Boolean> deleteMovieInfo(String id) {
+        return movieInfoRepository.deleteByMovieInfoId(id)
+                .map(deleted -> deleted > 0)
+                .doOnSuccess(ignored -> movieInfoCache.invalidate(id));
     }
 
     public Flux<MovieInfo> getMoviesInfoByYear(Integer year) {
@@ -50,4 +75,22 @@ public class MoviesInfoService {
     public Flux<MovieInfo> getMoviesInfoByName(String name) {
         return movieInfoRepository.findByName(name);
     }
+
+    public Mono<KeysetPage<MovieInfo>> getMovieInfosPage(Integer year, String name, String afterId,
+                                                         int size, boolean withTotalCount, Set<MovieInfoField> fields) {
+        Mono<List<MovieInfo>> movieInfos = movieInfoRepository.findPage(year, name, afterId, size + 1, fields).collectList();
+        Mono<Long> totalCount = withTotalCount ? movieInfoRepository.countBy(year, name) : Mono.just(-1L);
+
+        return Mono.zip(movieInfos, totalCount)
+                .map(tuple -> {
+                    List<MovieInfo> content = tuple.getT1();
+                    boolean hasNext = content.size() > size;
+                    if (hasNext) {
+                        content = content.subList(0, size);
+                    }
+                    return new KeysetPage<>(content,
+                            hasNext ? content.get(size - 1).getMovieInfoId() : null,
+                            withTotalCount ? tuple.getT2() : null);
+                });
+    }
 }
@@ -0,0 +1,22 @@
+package com.reactivespring.moviesinfoservice.stream;
+
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class MovieInfoEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private long sequence;
+    private Instant publishedAt;
+    private Type type;
+    // only carries the id when the movie info was deleted
+    private MovieInfo movieInfo;
+}
@@ -0,0 +1,171 @@
+package com.reactivespring.moviesinfoservice.stream;
+
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded replay buffer for the movie info stream. Events are kept in a fixed size ring indexed by
+ * their sequence number and are dropped once the ring is full or they are older than the configured age,
+ * so a subscriber can only resume from an offset that is still retained.
+ */
+@Component
+public class MovieInfoEventBuffer {
+
+    private final MovieInfoEvent[] ring;
+    private final Duration maxAge;
+    private final Clock clock;
+    // only carries "something was published" notifications, subscribers read the events from the ring
+    private final Sinks.Many<Long> publications = Sinks.many().multicast().directBestEffort();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicInteger pendingNotifications = new AtomicInteger();
+    private final Map<Sinks.EmitResult, AtomicLong> emitFailures = new ConcurrentHashMap<>();
+
+    private long firstSequence = 1;
+    private long lastSequence = 0;
+    private long evictedCount = 0;
+
+    @Autowired
+    public MovieInfoEventBuffer(@Value("${moviesInfo.stream.maxEvents:1000}") int maxEvents,
+                                @Value("${moviesInfo.stream.maxAge:PT1H}") Duration maxAge) {
+        this(maxEvents, maxAge, Clock.systemUTC());
+    }
+
+    MovieInfoEventBuffer(int maxEvents, Duration maxAge, Clock clock) {
+        if (maxEvents <= 0) {
+            throw new IllegalArgumentException("moviesInfo.stream.maxEvents must be positive");
+        }
+        this.ring = new MovieInfoEvent[maxEvents];
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    public MovieInfoEvent publish(MovieInfo movieInfo) {
+        return publish(MovieInfoEvent.Type.CREATED, movieInfo);
+    }
+
+    public MovieInfoEvent publish(MovieInfoEvent.Type type, MovieInfo movieInfo) {
+        MovieInfoEvent event;
+        synchronized (this) {
+            long sequence = ++lastSequence;
+            if (sequence - firstSequence >= ring.length) {
+                firstSequence++;
+                evictedCount++;
+            }
+            event = new MovieInfoEvent(sequence, clock.instant(), type, movieInfo);
+            ring[index(sequence)] = event;
+            expire();
+        }
+        notifySubscribers(event.getSequence());
+        return event;
+    }
+
+    /**
+     * Replays the retained events with a sequence greater than {@code afterSequence} and then follows the live ones.
+     * Fails when the subscriber falls so far behind that events it hasn't read yet are dropped, so that it resumes
+     * knowing it missed them.
+     */
+    public Flux<MovieInfoEvent> events(long afterSequence) {
+        return Flux.defer(() -> {
+            // resuming from an offset that's no longer retained replays what's left
+            AtomicLong cursor = new AtomicLong(Math.max(afterSequence, firstSequence() - 1));
+            return publications.asFlux()
+                    .onBackpressureLatest()
+                    .mergeWith(Mono.just(afterSequence))
+                    .concatMapIterable(ignored -> eventsAfter(cursor))
+                    .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                    .doFinally(signalType -> subscribers.decrementAndGet());
+        });
+    }
+
+    public synchronized int size() {
+        expire();
+        return (int) (lastSequence - firstSequence + 1);
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    public synchronized long firstSequence() {
+        return firstSequence;
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized long evictedCount() {
+        return evictedCount;
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    public long emitFailureCount(Sinks.EmitResult result) {
+        AtomicLong count = emitFailures.get(result);
+        return count != null ? count.get() : 0;
+    }
+
+    private synchronized List<MovieInfoEvent> eventsAfter(AtomicLong cursor) {
+        expire();
+        long from = cursor.get() + 1;
+        if (from < firstSequence) {
+            throw new IllegalStateException("Fell behind the retained movie info events, events " + from
+                    + " to " + (firstSequence - 1) + " were dropped before they were read");
+        }
+        if (from > lastSequence) {
+            return List.of();
+        }
+        List<MovieInfoEvent> events = new ArrayList<>((int) (lastSequence - from + 1));
+        for (long sequence = from; sequence <= lastSequence; sequence++) {
+            events.add(ring[index(sequence)]);
+        }
+        cursor.set(lastSequence);
+        return events;
+    }
+
+    // emits outside the monitor and one thread at a time, a publication made meanwhile is notified by the emitting thread
+    private void notifySubscribers(long sequence) {
+        if (pendingNotifications.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Sinks.EmitResult result = publications.tryEmitNext(sequence);
+            // nobody to notify is fine, the event is in the ring for whoever subscribes next
+            if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+                emitFailures.computeIfAbsent(result, failure -> new AtomicLong()).incrementAndGet();
+            }
+            missed = pendingNotifications.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void expire() {
+        Instant oldestAllowed = clock.instant().minus(maxAge);
+        while (firstSequence <= lastSequence && ring[index(firstSequence)].getPublishedAt().isBefore(oldestAllowed)) {
+            ring[index(firstSequence)] = null;
+            firstSequence++;
+            evictedCount++;
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % ring.length);
+    }
+}
@@ -0,0 +1,43 @@
+package com.reactivespring.moviesinfoservice.stream;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Sinks;
+
+@Component
+@RequiredArgsConstructor
+public class MovieInfoEventBufferMetrics implements MeterBinder {
+
+    private final MovieInfoEventBuffer movieInfoEventBuffer;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("movieinfos.stream.buffer.size", movieInfoEventBuffer, MovieInfoEventBuffer::size)
+                .description("Events currently retained in the movie info replay buffer")
+                .register(registry);
+        Gauge.builder("movieinfos.stream.buffer.capacity", movieInfoEventBuffer, MovieInfoEventBuffer::capacity)
+                .register(registry);
+        Gauge.builder("movieinfos.stream.buffer.sequence.first", movieInfoEventBuffer, MovieInfoEventBuffer::firstSequence)
+                .register(registry);
+        Gauge.builder("movieinfos.stream.buffer.sequence.last", movieInfoEventBuffer, MovieInfoEventBuffer::lastSequence)
+                .register(registry);
+        Gauge.builder("movieinfos.stream.subscribers", movieInfoEventBuffer, MovieInfoEventBuffer::subscriberCount)
+                .register(registry);
+        FunctionCounter.builder("movieinfos.stream.buffer.evicted", movieInfoEventBuffer, MovieInfoEventBuffer::evictedCount)
+                .description("Events dropped from the replay buffer because of the count or age limit")
+                .register(registry);
+        for (Sinks.EmitResult result : Sinks.EmitResult.values()) {
+            if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+                FunctionCounter.builder("movieinfos.stream.emit.failures", movieInfoEventBuffer,
+                                buffer -> buffer.emitFailureCount(result))
+                        .description("Events the subscribers weren't notified of because the sink refused them")
+                        .tag("result", result.name())
+                        .register(registry);
+            }
+        }
+    }
+}
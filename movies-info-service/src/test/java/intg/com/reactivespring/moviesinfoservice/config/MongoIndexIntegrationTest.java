@@ -0,0 +1,77 @@
+package com.reactivespring.moviesinfoservice.config;
+
+import com.reactivespring.common.config.MongoIndexInitializer;
+import com.reactivespring.common.config.QueryPlanVerifier;
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.mongodb.embedded.version=3.4.11",
+        "moviesInfo.mongo.queryPlanCheck=FAIL"
+})
+class MongoIndexIntegrationTest {
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+    @Autowired
+    MongoIndexInitializer mongoIndexInitializer;
+    @Autowired
+    QueryPlanVerifier queryPlanVerifier;
+
+    @Test
+    void indexesCreatedAtStartup() {
+        List<String> indexNames = reactiveMongoTemplate.indexOps(MovieInfo.class).getIndexInfo()
+                .map(IndexInfo::getName)
+                .collectList()
+                .block();
+
+        assert indexNames != null;
+        assertTrue(indexNames.containsAll(List.of("_id_", "year", "name", "year_name")), indexNames.toString());
+    }
+
+    @Test
+    void reconcileIndexes_recreatesDroppedIndex() {
+        reactiveMongoTemplate.indexOps(MovieInfo.class).dropIndex("name").block();
+
+        StepVerifier.create(mongoIndexInitializer.reconcileIndexes(MovieInfo.class)
+                        .thenMany(reactiveMongoTemplate.indexOps(MovieInfo.class).getIndexInfo())
+                        .map(IndexInfo::getName)
+                        .collect(Collectors.toList()))
+                .assertNext(indexNames -> assertTrue(indexNames.contains("name")))
+                .verifyComplete();
+    }
+
+    @Test
+    void derivedQueries_useIndexes() {
+        Query byCast = Query.query(where("cast").is("Christian Bale"));
+        List<Query> queries = List.of(
+                Query.query(where("year").is(2005)),
+                Query.query(where("name").is("Batman Begins")),
+                Query.query(where("year").is(2005).and("name").is("Batman Begins")),
+                Query.query(where("year").is(2005).and("_id").gt(new ObjectId())).with(Sort.by("_id")),
+                Query.query(where("name").is("Batman Begins").and("_id").gt(new ObjectId())).with(Sort.by("_id")),
+                byCast);
+
+        StepVerifier.create(queryPlanVerifier.unindexedQueries(reactiveMongoTemplate.getCollectionName(MovieInfo.class), queries))
+                .expectNext(byCast)
+                .verifyComplete();
+    }
+}
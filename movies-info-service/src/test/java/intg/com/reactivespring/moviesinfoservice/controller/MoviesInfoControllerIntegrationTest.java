@@ -1,23 +1,34 @@
 package com.reactivespring.moviesinfoservice.controller;
 
+import com.reactivespring.moviesinfoservice.cache.MovieInfoCache;
+import com.reactivespring.moviesinfoservice.model.BulkInsertResult;
 import com.reactivespring.moviesinfoservice.model.MovieInfo;
 import com.reactivespring.moviesinfoservice.repository.MovieInfoRepository;
+import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.FluxExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.net.URI;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -33,6 +44,10 @@ class MoviesInfoControllerIntegrationTest {
     MovieInfoRepository movieInfoRepository;
     @Autowired
     WebTestClient webTestClient;
+    @Autowired
+    MovieInfoCache movieInfoCache;
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
 
     @BeforeEach
     void setUp() {
@@ -49,6 +64,8 @@ class MoviesInfoControllerIntegrationTest {
     @AfterEach
     void tearDown() {
         movieInfoRepository.deleteAll().block();
+        // the repository is written directly, bypassing the cache
+        movieInfoCache.invalidateAll();
     }
 
     @Test
@@ -97,6 +114,78 @@ class MoviesInfoControllerIntegrationTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getMovieInfosByIds() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?ids=abc,def")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1)
+                .value(movieInfos -> assertEquals("Dark Knight Rises", movieInfos.get(0).getName()));
+    }
+
+    @Test
+    void getAllMovieInfos_fields() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?year=2012&fields=name,year")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].movieInfoId").isEqualTo("abc")
+                .jsonPath("$[0].name").isEqualTo("Dark Knight Rises")
+                .jsonPath("$[0].year").isEqualTo(2012)
+                .jsonPath("$[0].cast").doesNotExist();
+    }
+
+    @Test
+    void getMovieInfoById_fields() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}?fields=cast", "abc")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.cast.length()").isEqualTo(2)
+                .jsonPath("$.name").doesNotExist();
+    }
+
+    @Test
+    void getAllMovieInfos_page() {
+        List<String> movieInfoIds = new ArrayList<>();
+        String cursor = null;
+        do {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(MOVIES_INFO_URL)
+                    .queryParam("size", 1)
+                    .queryParam("count", true);
+            if (cursor != null) {
+                builder.queryParam("cursor", cursor);
+            }
+
+            EntityExchangeResult<List<MovieInfo>> result = webTestClient
+                    .get()
+                    .uri(builder.buildAndExpand().toUri())
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectHeader().valueEquals(MoviesInfoController.TOTAL_COUNT_HEADER, "3")
+                    .expectBodyList(MovieInfo.class)
+                    .hasSize(1)
+                    .returnResult();
+
+            movieInfoIds.add(result.getResponseBody().get(0).getMovieInfoId());
+            cursor = result.getResponseHeaders().getFirst(MoviesInfoController.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertEquals(3, new HashSet<>(movieInfoIds).size());
+    }
+
     @Test
     void getAllMovieInfos_stream() {
         MovieInfo movieInfo = new MovieInfo(null, "Batman Begins1",
@@ -209,6 +298,75 @@ class MoviesInfoControllerIntegrationTest {
                 );
     }
 
+    @Test
+    void addMovieInfo_existingId() {
+        MovieInfo movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+
+        webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void addMovieInfo_validation() {
+        MovieInfo movieInfo = new MovieInfo(null, "",
+                -2005, List.of(""), LocalDate.parse("2005-06-15"));
+
+        // validated on an event loop, where BlockHound fails the request if the messages load blocking
+        webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("movieInfo.cast must be present,movieInfo.name must be present,movieInfo.year must be positive");
+    }
+
+    @Test
+    void addMovieInfos_bulk() {
+        String body = "{\"name\": \"Batman Begins1\", \"year\": 2005, \"cast\": [\"Christian Bale\"]}\n"
+                + "{\"name\": \"\", \"year\": 2008, \"cast\": [\"Christian Bale\"]}\n"
+                + "not json\n"
+                + "\n"
+                + "{\"movieInfoId\": \"abc\", \"name\": \"Dark Knight Rises\", \"year\": 2012}\n"
+                + "{\"name\": \"The Dark Knight1\", \"year\": 2008, \"cast\": [\"HeathLedger\"]}\n";
+
+        List<BulkInsertResult> results = webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(BulkInsertResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assert results != null;
+        assertEquals(5, results.size());
+        assertEquals(1, results.get(0).getLine());
+        assert results.get(0).getMovieInfoId() != null;
+        assertEquals("movieInfo.name must be present", results.get(1).getError());
+        assert results.get(2).getError().startsWith("invalid json");
+        assertEquals(5, results.get(3).getLine());
+        assert results.get(3).getError() != null;
+        assertEquals(6, results.get(4).getLine());
+        assert results.get(4).getMovieInfoId() != null;
+
+        StepVerifier.create(movieInfoRepository.count())
+                .expectNext(5L)
+                .verifyComplete();
+    }
+
     @Test
     void updateMovieInfo() {
         String movieInfoId = "abc";
@@ -218,6 +376,7 @@ class MoviesInfoControllerIntegrationTest {
         webTestClient
                 .put()
                 .uri(MOVIES_INFO_URL+"/{id}", movieInfoId)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
                 .bodyValue(movieInfo)
                 .exchange()
                 .expectStatus()
@@ -233,11 +392,116 @@ class MoviesInfoControllerIntegrationTest {
                 );
     }
 
+    @Test
+    void updateMovieInfo_version() {
+        String movieInfoId = "abc";
+        MovieInfo movieInfo = new MovieInfo(null, "Dark Knight Rises",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"), 0L);
+
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL+"/{id}", movieInfoId)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.version").isEqualTo(1);
+
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL+"/{id}", movieInfoId)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void updateMovieInfo_unversioned() {
+        reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.insertOne(new Document("_id", "def")
+                        .append("name", "Batman Forever").append("year", 1995))))
+                .block();
+        MovieInfo movieInfo = new MovieInfo(null, "Batman Forever",
+                1995, List.of("Val Kilmer"), LocalDate.parse("1995-06-16"), 0L);
+
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL+"/{id}", "def")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.version").isEqualTo(1);
+    }
+
+    @Test
+    void updateMovieInfo_refreshesCachedMovieInfo() {
+        String movieInfoId = "abc";
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL+"/{id}", movieInfoId)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.year").isEqualTo(2012);
+
+        MovieInfo movieInfo = new MovieInfo(null, "Dark Knight Rises",
+                2013, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 0L);
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL+"/{id}", movieInfoId)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful();
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL+"/{id}", movieInfoId)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.year").isEqualTo(2013);
+
+        webTestClient
+                .delete()
+                .uri(MOVIES_INFO_URL+"/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL+"/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void updateMovieInfo_versionRequired() {
+        MovieInfo movieInfo = new MovieInfo(null, "Dark Knight Rises",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL+"/{id}", "abc")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_REQUIRED);
+
+        StepVerifier.create(movieInfoRepository.findById("abc"))
+                .assertNext(unchanged -> assertEquals(2012, unchanged.getYear()))
+                .verifyComplete();
+    }
+
     @Test
     void updateMovieInfo_not_found() {
         String movieInfoId = "def";
         MovieInfo movieInfo = new MovieInfo(null, "Dark Knight Rises",
-                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"), 0L);
 
         webTestClient
                 .put()
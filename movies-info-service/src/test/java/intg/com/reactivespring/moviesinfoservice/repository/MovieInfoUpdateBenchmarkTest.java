@@ -0,0 +1,104 @@
+package com.reactivespring.moviesinfoservice.repository;
+
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares PUT throughput of the old findById + save update with the single findAndModify update.
+ * Run with BENCHMARK=true.
+ */
+@Slf4j
+@DataMongoTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.mongodb.embedded.version=3.4.11")
+@EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+class MovieInfoUpdateBenchmarkTest {
+
+    private static final int MOVIE_INFOS = 100;
+    private static final int UPDATES = 5_000;
+    private static final int CONCURRENCY = 16;
+
+    @Autowired
+    MovieInfoRepository movieInfoRepository;
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        List<MovieInfo> movieInfos = IntStream.range(0, MOVIE_INFOS)
+                .mapToObj(i -> new MovieInfo("id" + i, "Batman Begins", 2005,
+                        List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")))
+                .collect(Collectors.toList());
+        movieInfoRepository.saveAll(movieInfos).blockLast();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void updateThroughput() {
+        String collectionName = reactiveMongoTemplate.getCollectionName(MovieInfo.class);
+
+        // warm up both paths before measuring
+        run(id -> findAndSave(collectionName, id));
+        run(this::findAndModify);
+
+        double findAndSave = run(id -> findAndSave(collectionName, id));
+        double findAndModify = run(this::findAndModify);
+
+        log.info("findById + save: {} updates/s, findAndModify: {} updates/s",
+                Math.round(findAndSave), Math.round(findAndModify));
+    }
+
+    private Mono<?> findAndSave(String collectionName, String id) {
+        return reactiveMongoTemplate.findById(id, Document.class, collectionName)
+                .flatMap(document -> {
+                    document.put("name", "Batman Begins Updated");
+                    document.put("year", 2006);
+                    return reactiveMongoTemplate.save(document, collectionName);
+                });
+    }
+
+    // the conditional update needs the current version, the raw save of the other path leaves it alone
+    private Mono<MovieInfo> findAndModify(String id) {
+        MovieInfo update = new MovieInfo(null, "Batman Begins Updated", 2006,
+                List.of("Christian Bale", "Michael Cane", "Liam Neeson"), LocalDate.parse("2005-06-15"),
+                versions.getOrDefault(id, 0L));
+        return movieInfoRepository.updateMovieInfo(id, update)
+                .doOnNext(updated -> versions.put(id, updated.getVersion()));
+    }
+
+    private double run(Function<String, Mono<?>> update) {
+        long start = System.nanoTime();
+        // the updates of one movie info run one after the other, a concurrent one would find a stale version
+        Flux.range(0, MOVIE_INFOS)
+                .flatMap(i -> Flux.range(0, UPDATES / MOVIE_INFOS).concatMap(ignored -> update.apply("id" + i)), CONCURRENCY)
+                .blockLast(Duration.ofMinutes(5));
+        return UPDATES / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,100 @@
+package com.reactivespring.moviesinfoservice.cache;
+
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieInfoCacheTest {
+
+    private final MovieInfoCache movieInfoCache = new MovieInfoCache(100, Duration.ofMinutes(10));
+
+    @Test
+    void get_loadsOnceAndServesFromCache() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(movieInfoCache.get("abc", id -> {
+                        loads.incrementAndGet();
+                        return Mono.just(movieInfo(id, "Dark Knight Rises"));
+                    }))
+                    .assertNext(movieInfo -> assertEquals("Dark Knight Rises", movieInfo.getName()))
+                    .verifyComplete();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2, movieInfoCache.stats().hitCount());
+        assertEquals(1, movieInfoCache.stats().missCount());
+    }
+
+    @Test
+    void get_notFoundIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(movieInfoCache.get("def", id -> {
+                        loads.incrementAndGet();
+                        return Mono.<MovieInfo>empty();
+                    }))
+                    .verifyComplete();
+        }
+
+        assertEquals(2, loads.get());
+        assertEquals(0, movieInfoCache.size());
+    }
+
+    @Test
+    void getAll_loadsOnlyMissingIdsInOneCall() {
+        movieInfoCache.get("abc", id -> Mono.just(movieInfo(id, "Dark Knight Rises"))).block();
+        List<Set<String>> loads = new ArrayList<>();
+
+        StepVerifier.create(movieInfoCache.getAll(List.of("abc", "def", "ghi"), ids -> {
+                    loads.add(ids);
+                    return Flux.just(movieInfo("def", "Batman Begins"));
+                }).map(MovieInfo::getMovieInfoId).collectList())
+                .assertNext(ids -> assertEquals(Set.of("abc", "def"), Set.copyOf(ids)))
+                .verifyComplete();
+
+        assertEquals(List.of(Set.of("def", "ghi")), loads);
+        assertEquals(2, movieInfoCache.size());
+    }
+
+    @Test
+    void put_replacesCachedValue() {
+        movieInfoCache.get("abc", id -> Mono.just(movieInfo(id, "Dark Knight Rises"))).block();
+
+        movieInfoCache.put(movieInfo("abc", "The Dark Knight Rises"));
+
+        StepVerifier.create(movieInfoCache.get("abc", id -> Mono.error(new IllegalStateException("should not load"))))
+                .assertNext(movieInfo -> assertEquals("The Dark Knight Rises", movieInfo.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void invalidate_forcesReload() {
+        AtomicInteger loads = new AtomicInteger();
+        movieInfoCache.get("abc", id -> Mono.just(movieInfo(id, "Dark Knight Rises"))).block();
+
+        movieInfoCache.invalidate("abc");
+        movieInfoCache.get("abc", id -> {
+            loads.incrementAndGet();
+            return Mono.just(movieInfo(id, "Dark Knight Rises"));
+        }).block();
+
+        assertEquals(1, loads.get());
+    }
+
+    private MovieInfo movieInfo(String id, String name) {
+        return new MovieInfo(id, name, 2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+    }
+}
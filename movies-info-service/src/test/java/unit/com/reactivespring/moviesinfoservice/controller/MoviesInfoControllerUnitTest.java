@@ -1,34 +1,60 @@
 package com.reactivespring.moviesinfoservice.controller;
 
+import com.reactivespring.common.domain.KeysetPage;
+import com.reactivespring.common.util.CursorUtil;
+import com.reactivespring.common.util.SignalTracer;
 import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import com.reactivespring.moviesinfoservice.model.MovieInfoField;
+import com.reactivespring.moviesinfoservice.service.MoviesInfoBulkService;
 import com.reactivespring.moviesinfoservice.service.MoviesInfoService;
+import com.reactivespring.moviesinfoservice.stream.MovieInfoEventBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.EnumSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesInfoController.class)
 @AutoConfigureWebTestClient
+@Import({MovieInfoEventBuffer.class, SignalTracer.class, SimpleMeterRegistry.class})
 public class MoviesInfoControllerUnitTest {
     private static String MOVIES_INFO_URL = "/v1/movieinfos";
 
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private MovieInfoEventBuffer movieInfoEventBuffer;
+
     @MockBean
     private MoviesInfoService moviesInfoService;
 
+    @MockBean
+    private MoviesInfoBulkService moviesInfoBulkService;
+
     @Test
     void getAllMoviesInfo() {
         when(moviesInfoService.getAllMovieInfos()).thenReturn(Flux.fromIterable(getMockedMovieInfos()));
@@ -43,6 +69,34 @@ public class MoviesInfoControllerUnitTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getAllMoviesInfo_page() {
+        List<MovieInfo> movieInfos = getMockedMovieInfos().subList(0, 2);
+        when(moviesInfoService.getMovieInfosPage(null, null, "abc", 2, false, null))
+                .thenReturn(Mono.just(new KeysetPage<>(movieInfos, "def", null)));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?size=2&cursor={cursor}", CursorUtil.encode("abc"))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().valueEquals(MoviesInfoController.NEXT_CURSOR_HEADER, CursorUtil.encode("def"))
+                .expectHeader().doesNotExist(MoviesInfoController.TOTAL_COUNT_HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getAllMoviesInfo_page_invalidSize() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?size=0")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void getMovieInfoById() {
         String movieInfoId = "abc";
@@ -59,6 +113,36 @@ public class MoviesInfoControllerUnitTest {
                 .jsonPath("$.name").isEqualTo("Dark Knight Rises");
     }
 
+    @Test
+    void getMovieInfoById_fields() {
+        String movieInfoId = "abc";
+        MovieInfo movieInfo = getMockedMovieInfos().get(2);
+        when(moviesInfoService.getMovieInfoById(eq(movieInfoId), eq(EnumSet.of(MovieInfoField.MOVIE_INFO_ID, MovieInfoField.NAME))))
+                .thenReturn(Mono.just(movieInfo));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL+"/{id}?fields=name", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.movieInfoId").isEqualTo("abc")
+                .jsonPath("$.name").isEqualTo("Dark Knight Rises")
+                .jsonPath("$.year").doesNotExist()
+                .jsonPath("$.cast").doesNotExist();
+    }
+
+    @Test
+    void getMovieInfoById_invalidFields() {
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL+"/{id}?fields=name,budget", "abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void addMovieInfo() {
         MovieInfo movieInfo = new MovieInfo(null, "Batman Begins1",
@@ -119,12 +203,13 @@ public class MoviesInfoControllerUnitTest {
         MovieInfo movieInfo = getMockedMovieInfos().get(2);
 
         String movieInfoId = "abc";
-        when(moviesInfoService.updateMovieInfo(isA(MovieInfo.class), movieInfoId)).thenReturn(Mono.just(movieInfo));
+        when(moviesInfoService.updateMovieInfo(isA(MovieInfo.class), eq(movieInfoId))).thenReturn(Mono.just(movieInfo));
 
 
         webTestClient
                 .put()
                 .uri(MOVIES_INFO_URL+"/{id}", movieInfoId)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
                 .bodyValue(movieInfo)
                 .exchange()
                 .expectStatus()
@@ -140,9 +225,38 @@ public class MoviesInfoControllerUnitTest {
                 );
     }
 
+    @Test
+    void updateMovieInfo_versionRequired() {
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL+"/{id}", "abc")
+                .bodyValue(getMockedMovieInfos().get(2))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_REQUIRED);
+
+        verify(moviesInfoService, never()).updateMovieInfo(isA(MovieInfo.class), eq("abc"));
+    }
+
+    @Test
+    void updateMovieInfo_ifMatchDiffersFromBody() {
+        MovieInfo movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 1L);
+
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL+"/{id}", "abc")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void deleteMovieInfo() {
         String movieInfoId = "abc";
+        when(moviesInfoService.deleteMovieInfo(movieInfoId)).thenReturn(Mono.just(true));
 
         webTestClient
                 .delete()
@@ -152,6 +266,73 @@ public class MoviesInfoControllerUnitTest {
                 .isNoContent();
     }
 
+    @Test
+    void deleteMovieInfo_notFound_notPublished() {
+        String movieInfoId = "def";
+        when(moviesInfoService.deleteMovieInfo(movieInfoId)).thenReturn(Mono.just(false));
+        long lastSequence = movieInfoEventBuffer.lastSequence();
+
+        webTestClient
+                .delete()
+                .uri(MOVIES_INFO_URL+"/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        assertEquals(lastSequence, movieInfoEventBuffer.lastSequence());
+    }
+
+    @Test
+    void updateAndDeleteMovieInfo_publishedAsEvents() {
+        MovieInfo movieInfo = getMockedMovieInfos().get(2);
+        String movieInfoId = "abc";
+        when(moviesInfoService.updateMovieInfo(isA(MovieInfo.class), eq(movieInfoId))).thenReturn(Mono.just(movieInfo));
+        when(moviesInfoService.deleteMovieInfo(movieInfoId)).thenReturn(Mono.just(true));
+        long lastSequence = movieInfoEventBuffer.lastSequence();
+
+        webTestClient.put().uri(MOVIES_INFO_URL + "/{id}", movieInfoId).header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(movieInfo).exchange()
+                .expectStatus().isOk();
+        webTestClient.delete().uri(MOVIES_INFO_URL + "/{id}", movieInfoId).exchange()
+                .expectStatus().isNoContent();
+
+        Flux<ServerSentEvent<MovieInfo>> events = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", String.valueOf(lastSequence))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<MovieInfo>>() {
+                })
+                .getResponseBody();
+
+        StepVerifier.create(events)
+                .assertNext(event -> {
+                    assertEquals("updated", event.event());
+                    assertEquals("Dark Knight Rises", event.data().getName());
+                })
+                .assertNext(event -> {
+                    assertEquals("deleted", event.event());
+                    assertEquals(movieInfoId, event.data().getMovieInfoId());
+                })
+                .thenCancel()
+                .verify();
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/stream?since=" + lastSequence)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .returnResult(MovieInfo.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .assertNext(updated -> assertEquals("Dark Knight Rises", updated.getName()))
+                .expectNoEvent(Duration.ofMillis(200))
+                .thenCancel()
+                .verify();
+    }
 
     private List<MovieInfo> getMockedMovieInfos() {
         return List.of(new MovieInfo(null, "Batman Begins",
@@ -0,0 +1,130 @@
+package com.reactivespring.moviesinfoservice.stream;
+
+import com.reactivespring.moviesinfoservice.model.MovieInfo;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieInfoEventBufferTest {
+
+    @Test
+    void events_replayRetainedAndFollowLive() {
+        MovieInfoEventBuffer buffer = new MovieInfoEventBuffer(10, Duration.ofHours(1));
+        buffer.publish(movieInfo("Batman Begins"));
+        buffer.publish(movieInfo("The Dark Knight"));
+
+        StepVerifier.create(buffer.events(0))
+                .assertNext(event -> assertEquals(1, event.getSequence()))
+                .assertNext(event -> assertEquals(2, event.getSequence()))
+                .then(() -> buffer.publish(movieInfo("Dark Knight Rises")))
+                .assertNext(event -> assertEquals("Dark Knight Rises", event.getMovieInfo().getName()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(0, buffer.subscriberCount());
+    }
+
+    @Test
+    void events_resumeAfterSequence() {
+        MovieInfoEventBuffer buffer = new MovieInfoEventBuffer(10, Duration.ofHours(1));
+        buffer.publish(movieInfo("Batman Begins"));
+        buffer.publish(movieInfo("The Dark Knight"));
+        buffer.publish(movieInfo("Dark Knight Rises"));
+
+        StepVerifier.create(buffer.events(2))
+                .assertNext(event -> assertEquals(3, event.getSequence()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void publish_evictsOldestWhenFull() {
+        MovieInfoEventBuffer buffer = new MovieInfoEventBuffer(2, Duration.ofHours(1));
+        buffer.publish(movieInfo("Batman Begins"));
+        buffer.publish(movieInfo("The Dark Knight"));
+        buffer.publish(movieInfo("Dark Knight Rises"));
+
+        assertEquals(2, buffer.size());
+        assertEquals(2, buffer.firstSequence());
+        assertEquals(3, buffer.lastSequence());
+        assertEquals(1, buffer.evictedCount());
+
+        StepVerifier.create(buffer.events(0))
+                .assertNext(event -> assertEquals(2, event.getSequence()))
+                .assertNext(event -> assertEquals(3, event.getSequence()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void events_failWhenSubscriberFallsBehindTheRing() {
+        MovieInfoEventBuffer buffer = new MovieInfoEventBuffer(2, Duration.ofHours(1));
+        buffer.publish(movieInfo("Batman Begins"));
+
+        StepVerifier.create(buffer.events(0), 1)
+                .assertNext(event -> assertEquals(1, event.getSequence()))
+                .then(() -> {
+                    buffer.publish(movieInfo("The Dark Knight"));
+                    buffer.publish(movieInfo("Dark Knight Rises"));
+                    buffer.publish(movieInfo("Batman Forever"));
+                    buffer.publish(movieInfo("Batman Returns"));
+                })
+                .thenRequest(10)
+                .assertNext(event -> assertEquals(2, event.getSequence()))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    @Test
+    void size_expiresEventsOlderThanMaxAge() {
+        MutableClock clock = new MutableClock(Instant.parse("2021-01-01T00:00:00Z"));
+        MovieInfoEventBuffer buffer = new MovieInfoEventBuffer(10, Duration.ofMinutes(5), clock);
+        buffer.publish(movieInfo("Batman Begins"));
+        clock.advance(Duration.ofMinutes(3));
+        buffer.publish(movieInfo("The Dark Knight"));
+        clock.advance(Duration.ofMinutes(3));
+
+        assertEquals(1, buffer.size());
+        assertEquals(2, buffer.firstSequence());
+        assertEquals(1, buffer.evictedCount());
+    }
+
+    private MovieInfo movieInfo(String name) {
+        return new MovieInfo(null, name, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
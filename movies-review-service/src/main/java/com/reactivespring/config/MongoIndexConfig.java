@@ -0,0 +1,46 @@
+package com.reactivespring.config;
+
+import com.reactivespring.common.config.MongoIndexInitializer;
+import com.reactivespring.common.config.QueryPlanVerifier;
+import com.reactivespring.domain.Review;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * The indexes of the reviews, checked against the queries of the repository.
+ */
+@Configuration
+public class MongoIndexConfig {
+
+    @Bean
+    public QueryPlanVerifier queryPlanVerifier(ReactiveMongoTemplate reactiveMongoTemplate) {
+        return new QueryPlanVerifier(reactiveMongoTemplate);
+    }
+
+    @Bean
+    public MongoIndexInitializer mongoIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate,
+                                                       QueryPlanVerifier queryPlanVerifier,
+                                                       @Value("${reviews.mongo.dropUndeclaredIndexes:false}") boolean dropUndeclaredIndexes,
+                                                       @Value("${reviews.mongo.queryPlanCheck:NONE}") MongoIndexInitializer.QueryPlanCheck queryPlanCheck,
+                                                       @Value("${reviews.mongo.initTimeout:PT30S}") Duration initTimeout) {
+        ObjectId afterId = new ObjectId();
+        List<Query> derivedQueries = List.of(
+                Query.query(where("movieInfoId").is(1L)),
+                Query.query(where("movieInfoId").in(1L, 2L)),
+                // the keyset pages of ReviewReactiveRepositoryCustomImpl.findPage
+                Query.query(where("_id").gt(afterId)).with(Sort.by("_id")),
+                Query.query(where("movieInfoId").is(1L).and("_id").gt(afterId)).with(Sort.by("_id")));
+        return new MongoIndexInitializer(reactiveMongoTemplate, queryPlanVerifier, Review.class, derivedQueries,
+                dropUndeclaredIndexes, queryPlanCheck, initTimeout);
+    }
+}
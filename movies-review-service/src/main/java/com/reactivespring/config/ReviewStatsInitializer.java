@@ -0,0 +1,40 @@
+package com.reactivespring.config;
+
+import com.reactivespring.repository.ReviewStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+
+/**
+ * Builds the rating summaries from the stored reviews at startup when there are none yet, for example on the
+ * first start against an existing reviews collection, or always when {@code reviews.stats.rebuildOnStartup} is set.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReviewStatsInitializer {
+
+    private final ReviewStatsRepository reviewStatsRepository;
+
+    @Value("${reviews.stats.rebuildOnStartup:false}")
+    private boolean rebuildOnStartup;
+    @Value("${reviews.stats.initTimeout:PT5M}")
+    private Duration initTimeout;
+
+    @PostConstruct
+    public void initialize() {
+        Mono<Boolean> rebuild = rebuildOnStartup
+                ? Mono.just(true)
+                : reviewStatsRepository.count().map(count -> count == 0);
+
+        rebuild.filter(Boolean::booleanValue)
+                .flatMap(ignored -> reviewStatsRepository.rebuild())
+                .doOnNext(count -> log.info("Rebuilt the rating summaries of {} movies", count))
+                .block(initTimeout);
+    }
+}
@@ -0,0 +1,56 @@
+package com.reactivespring.domain;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fields of {@link Review} that can be requested with the {@code fields} query parameter.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ReviewField {
+    REVIEW_ID("reviewId", Review::getReviewId),
+    MOVIE_INFO_ID("movieInfoId", Review::getMovieInfoId),
+    COMMENT("comment", Review::getComment),
+    RATING("rating", Review::getRating);
+
+    private final String fieldName;
+    private final Function<Review, Object> accessor;
+
+    /**
+     * Parses a comma separated list of field names, the id is always selected.
+     */
+    public static Set<ReviewField> parse(String fields) {
+        List<String> names = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toList());
+
+        Set<ReviewField> selected = EnumSet.of(REVIEW_ID);
+        for (String name : names) {
+            selected.add(Arrays.stream(values())
+                    .filter(field -> field.fieldName.equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown review field: " + name
+                            + ", allowed fields are " + Arrays.stream(values())
+                            .map(ReviewField::getFieldName)
+                            .collect(Collectors.joining(",")))));
+        }
+        return selected;
+    }
+
+    public static Map<String, Object> select(Review review, Set<ReviewField> fields) {
+        Map<String, Object> selected = new LinkedHashMap<>();
+        fields.forEach(field -> selected.put(field.fieldName, field.accessor.apply(review)));
+        return selected;
+    }
+}
@@ -0,0 +1,53 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rating summary of the reviews of a movie, kept up to date with every review write so it can be read
+ * without going through the reviews. The histogram counts the ratings per whole number, 8.5 is counted as 8.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+public class ReviewStats {
+
+    @Id
+    private Long movieInfoId;
+    private long count;
+    private double sum;
+    private Double min;
+    private Double max;
+    private Map<Integer, Long> histogram = new TreeMap<>();
+
+    public static ReviewStats empty(Long movieInfoId) {
+        return new ReviewStats(movieInfoId, 0, 0, null, null, new TreeMap<>());
+    }
+
+    public static int bucket(double rating) {
+        return (int) Math.floor(rating);
+    }
+
+    public Double getMean() {
+        return count > 0 ? sum / count : null;
+    }
+
+    public void setHistogram(Map<Integer, Long> histogram) {
+        this.histogram = new TreeMap<>(histogram);
+    }
+
+    public void add(double rating) {
+        count++;
+        sum += rating;
+        min = min == null ? rating : Math.min(min, rating);
+        max = max == null ? rating : Math.max(max, rating);
+        histogram.merge(bucket(rating), 1L, Long::sum);
+    }
+}
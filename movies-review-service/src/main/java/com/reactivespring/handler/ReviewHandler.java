@@ -1,42 +1,75 @@
 package com.reactivespring.handler;
 
+import com.reactivespring.common.domain.KeysetPage;
+import com.reactivespring.common.util.CursorUtil;
+import com.reactivespring.common.util.SignalTracer;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewField;
+import com.reactivespring.domain.ReviewStats;
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewStatsRepository;
+import com.reactivespring.stream.ReviewEvent;
+import com.reactivespring.stream.ReviewFirehose;
+import com.reactivespring.stream.ReviewTopics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ReviewHandler {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final Validator validator;
-    private final Sinks.Many<Review> reviewSink = Sinks.many().replay().all();
     private final ReviewReactiveRepository reviewReactiveRepository;
+    private final ReviewStatsRepository reviewStatsRepository;
+    private final ReviewTopics reviewTopics;
+    private final ReviewFirehose reviewFirehose;
+    private final SignalTracer signalTracer;
+
+    @Value("${reviews.stream.firehoseEnabled:false}")
+    private boolean firehoseEnabled;
+    @Value("${reviews.stream.heartbeatInterval:PT15S}")
+    private Duration heartbeatInterval;
+
     public Mono<ServerResponse> addReview(ServerRequest request) {
         return request.bodyToMono(Review.class)
                 .doOnNext(this::validate)
                 .flatMap(reviewReactiveRepository::save)
-                .doOnNext(reviewSink::tryEmitNext)
+                .flatMap(savedReview -> addRating(savedReview).thenReturn(savedReview))
+                .doOnNext(savedReview -> publish(ReviewEvent.Type.CREATED, savedReview))
                 .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
     }
 
-    private void validate(Review review) {
+    void validate(Review review) {
         Set<ConstraintViolation<Review>> constrainViolations = validator.validate(review);
         log.info("constraint violations {}", constrainViolations);
         if (constrainViolations.size() > 0) {
@@ -50,10 +83,22 @@ public class ReviewHandler {
     }
 
     public Mono<ServerResponse> getReviews(ServerRequest request) {
-        Optional<String> movieInfoId = request.queryParam("movieInfoId");
+        Optional<Long> movieInfoId = movieInfoId(request);
+
+        if (request.queryParam("movieInfoIds").isPresent()) {
+            return getReviewsByMovieInfoIds(request.queryParam("movieInfoIds").get());
+        }
+
+        if (request.queryParam("fields").isPresent()) {
+            return getReviewFields(request, movieInfoId.orElse(null));
+        }
+
+        if (request.queryParam("size").isPresent() || request.queryParam("cursor").isPresent()) {
+            return getReviewsPage(request, movieInfoId.orElse(null), null, Function.identity());
+        }
 
         if (movieInfoId.isPresent()) {
-            Flux<Review> reviewsFlux = reviewReactiveRepository.findAllByMovieInfoId(Long.valueOf(movieInfoId.get()));
+            Flux<Review> reviewsFlux = reviewReactiveRepository.findAllByMovieInfoId(movieInfoId.get());
             return ServerResponse.ok().body(reviewsFlux, Review.class);
         } else {
             Flux<Review> reviewsFlux = reviewReactiveRepository.findAll();
@@ -61,37 +106,183 @@ public class ReviewHandler {
         }
     }
 
-    public Mono<ServerResponse> updateReview(ServerRequest request) {
-        String reviewId = request.pathVariable("id");
+    private Mono<ServerResponse> getReviewsByMovieInfoIds(String movieInfoIds) {
+        List<Long> ids;
+        try {
+            ids = Arrays.stream(movieInfoIds.split(","))
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .map(Long::valueOf)
+                    .distinct()
+                    .collect(Collectors.toList());
+        } catch (NumberFormatException e) {
+            return Mono.error(new ReviewDataException("movieInfoIds must be a comma separated list of numbers"));
+        }
+        if (ids.size() > MAX_PAGE_SIZE) {
+            return Mono.error(new ReviewDataException("at most " + MAX_PAGE_SIZE + " movieInfoIds can be requested at once"));
+        }
+        return ServerResponse.ok().body(reviewReactiveRepository.findAllByMovieInfoIdIn(ids), Review.class);
+    }
+
+    private Mono<ServerResponse> getReviewFields(ServerRequest request, Long movieInfoId) {
+        Set<ReviewField> fields;
+        try {
+            fields = ReviewField.parse(request.queryParam("fields").orElse(""));
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ReviewDataException(e.getMessage()));
+        }
+        Function<Review, Map<String, Object>> select = review -> ReviewField.select(review, fields);
+
+        if (request.queryParam("size").isPresent() || request.queryParam("cursor").isPresent()) {
+            return getReviewsPage(request, movieInfoId, fields, select);
+        }
+        Flux<Map<String, Object>> reviewsFlux = reviewReactiveRepository.findProjected(movieInfoId, fields).map(select);
+        return ServerResponse.ok().body(reviewsFlux, Map.class);
+    }
 
-        Mono<Review> existingReview = reviewReactiveRepository.findById(reviewId)
-                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id " + reviewId)))
-                ;
+    private <T> Mono<ServerResponse> getReviewsPage(ServerRequest request, Long movieInfoId,
+                                                    Set<ReviewField> fields, Function<Review, T> mapper) {
+        int size;
+        String afterId;
+        try {
+            size = request.queryParam("size").map(Integer::valueOf).orElse(DEFAULT_PAGE_SIZE);
+            afterId = request.queryParam("cursor").map(CursorUtil::decode).orElse(null);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ReviewDataException(e.getMessage()));
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new ReviewDataException("size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        boolean withTotalCount = request.queryParam("count").map(Boolean::valueOf).orElse(false);
+
+        Mono<List<Review>> reviews = reviewReactiveRepository.findPage(movieInfoId, afterId, size + 1, fields).collectList();
+        Mono<Long> totalCount = withTotalCount ? reviewReactiveRepository.countBy(movieInfoId) : Mono.just(-1L);
 
-        return existingReview.flatMap(review -> request.bodyToMono(Review.class)
-                .map(requestReview -> {
-                    review.setComment(requestReview.getComment());
-                    review.setRating(requestReview.getRating());
-                    return review;
+        return Mono.zip(reviews, totalCount)
+                .map(tuple -> {
+                    List<Review> content = tuple.getT1();
+                    boolean hasNext = content.size() > size;
+                    if (hasNext) {
+                        content = content.subList(0, size);
+                    }
+                    return new KeysetPage<>(content,
+                            hasNext ? content.get(size - 1).getReviewId() : null,
+                            withTotalCount ? tuple.getT2() : null);
                 })
-                .flatMap(reviewReactiveRepository::save)
-                .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview))
-//                .switchIfEmpty(ServerResponse.notFound().build())
-        );
+                .flatMap(page -> ServerResponse.ok()
+                        .headers(headers -> {
+                            if (Objects.nonNull(page.getLastId())) {
+                                headers.set(NEXT_CURSOR_HEADER, CursorUtil.encode(page.getLastId()));
+                            }
+                            if (Objects.nonNull(page.getTotalCount())) {
+                                headers.set(TOTAL_COUNT_HEADER, String.valueOf(page.getTotalCount()));
+                            }
+                        })
+                        .bodyValue(page.getContent().stream().map(mapper).collect(Collectors.toList())));
+    }
+
+    public Mono<ServerResponse> updateReview(ServerRequest request) {
+        String reviewId = request.pathVariable("id");
+
+        return request.bodyToMono(Review.class)
+                .flatMap(requestReview -> reviewReactiveRepository.findAndUpdate(reviewId, requestReview.getComment(), requestReview.getRating())
+                        .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id " + reviewId)))
+                        .flatMap(previousReview -> {
+                            Review savedReview = new Review(previousReview.getReviewId(), previousReview.getMovieInfoId(),
+                                    requestReview.getComment(), requestReview.getRating());
+                            // swaps the rating this update replaced, a concurrent one swaps the rating it replaced in turn
+                            return Objects.equals(previousReview.getRating(), savedReview.getRating())
+                                    ? Mono.just(savedReview)
+                                    : removeRating(previousReview).then(addRating(savedReview)).thenReturn(savedReview);
+                        }))
+                .doOnNext(savedReview -> publish(ReviewEvent.Type.UPDATED, savedReview))
+                .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview));
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest request) {
         String reviewId = request.pathVariable("id");
-        Mono<Review> existingReview = reviewReactiveRepository.findById(reviewId);
-        return existingReview
-                .flatMap(review -> reviewReactiveRepository.deleteById(reviewId))
+        // only the request that removed the review adjusts the stats
+        return reviewReactiveRepository.findAndRemove(reviewId)
+                .flatMap(review -> removeRating(review)
+                        .then(Mono.fromRunnable(() -> publish(ReviewEvent.Type.DELETED, review))))
                 .then(ServerResponse.noContent().build());
     }
 
+    public Mono<ServerResponse> getReviewStats(ServerRequest request) {
+        Optional<Long> movieInfoId = movieInfoId(request);
+        if (movieInfoId.isEmpty()) {
+            return Mono.error(new ReviewDataException("movieInfoId is required"));
+        }
+
+        return reviewStatsRepository.findById(movieInfoId.get())
+                .defaultIfEmpty(ReviewStats.empty(movieInfoId.get()))
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    private Optional<Long> movieInfoId(ServerRequest request) {
+        try {
+            return request.queryParam("movieInfoId").map(Long::valueOf);
+        } catch (NumberFormatException e) {
+            throw new ReviewDataException("movieInfoId must be a number");
+        }
+    }
+
+    private Mono<ReviewStats> addRating(Review review) {
+        return Objects.isNull(review.getRating())
+                ? Mono.empty()
+                : reviewStatsRepository.addRating(review.getMovieInfoId(), review.getRating());
+    }
+
+    private Mono<ReviewStats> removeRating(Review review) {
+        return Objects.isNull(review.getRating())
+                ? Mono.empty()
+                : reviewStatsRepository.removeRating(review.getMovieInfoId(), review.getRating());
+    }
+
     public Mono<ServerResponse> getReviewsStream(ServerRequest request) {
+        Optional<Long> movieInfoId = movieInfoId(request);
+        if (movieInfoId.isPresent()) {
+            return ServerResponse.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(reviewTopics.subscribe(movieInfoId.get()), Review.class);
+        }
+        if (!firehoseEnabled) {
+            return Mono.error(new ReviewDataException("movieInfoId is required, the stream of all reviews is disabled"));
+        }
+        if (request.headers().accept().contains(MediaType.TEXT_EVENT_STREAM)) {
+            // every change as a server-sent event, updates and deletes are named after their type
+            boolean replay = request.queryParam("replay").map(Boolean::parseBoolean).orElse(true);
+            Flux<ServerSentEvent<Review>> events = (replay ? reviewFirehose.subscribe() : reviewFirehose.subscribeLive())
+                    .map(this::toServerSentEvent)
+                    // keeps a quiet stream from looking idle to the proxies and to the response timeouts of the clients
+                    .mergeWith(Flux.interval(heartbeatInterval)
+                            .map(tick -> ServerSentEvent.<Review>builder().comment("heartbeat").build()));
+            return ServerResponse.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(events, new ParameterizedTypeReference<ServerSentEvent<Review>>() {
+                    });
+        }
         return ServerResponse.ok()
                 .contentType(MediaType.APPLICATION_NDJSON)
-                .body(reviewSink.asFlux(), Review.class)
-                .log();
+                .body(reviewFirehose.subscribe()
+                        .filter(event -> event.getType() != ReviewEvent.Type.DELETED)
+                        .map(ReviewEvent::getReview)
+                        .transform(reviews -> signalTracer.trace("reviewHandler.getReviewsStream", reviews)), Review.class);
+    }
+
+    private ServerSentEvent<Review> toServerSentEvent(ReviewEvent event) {
+        return ServerSentEvent.builder(event.getReview())
+                .event(event.getType() == ReviewEvent.Type.CREATED ? null : event.getType().name().toLowerCase())
+                .comment(event.getPublishedAt().toString())
+                .build();
+    }
+
+    private void publish(ReviewEvent.Type type, Review review) {
+        if (type != ReviewEvent.Type.DELETED) {
+            reviewTopics.publish(review);
+        }
+        if (firehoseEnabled) {
+            reviewFirehose.publish(new ReviewEvent(type, Instant.now(), review));
+        }
     }
 }
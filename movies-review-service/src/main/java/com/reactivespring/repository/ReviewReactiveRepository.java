@@ -5,8 +5,12 @@ import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 
+import java.util.Collection;
+
 @Repository
-public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
+public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String>, ReviewReactiveRepositoryCustom {
 
     Flux<Review> findAllByMovieInfoId(Long movieInfoId);
+
+    Flux<Review> findAllByMovieInfoIdIn(Collection<Long> movieInfoIds);
 }
@@ -0,0 +1,31 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewField;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+public interface ReviewReactiveRepositoryCustom {
+
+    /**
+     * Reads a page in id order, only the given fields are read when {@code fields} is not null.
+     */
+    Flux<Review> findPage(Long movieInfoId, String afterId, int limit, Set<ReviewField> fields);
+
+    Flux<Review> findProjected(Long movieInfoId, Set<ReviewField> fields);
+
+    Mono<Long> countBy(Long movieInfoId);
+
+    /**
+     * Sets the comment and the rating of a review in one step and returns the review as it was before, so the
+     * rating it replaced is the one actually overwritten even when the review is updated concurrently.
+     */
+    Mono<Review> findAndUpdate(String reviewId, String comment, Double rating);
+
+    /**
+     * Deletes a review and returns it, empty when there was none or it was deleted concurrently.
+     */
+    Mono<Review> findAndRemove(String reviewId);
+}
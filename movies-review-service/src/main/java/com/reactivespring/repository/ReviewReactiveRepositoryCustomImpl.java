@@ -0,0 +1,81 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewField;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class ReviewReactiveRepositoryCustomImpl implements ReviewReactiveRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Flux<Review> findPage(Long movieInfoId, String afterId, int limit, Set<ReviewField> fields) {
+        Query query = project(filter(movieInfoId), fields);
+        if (Objects.nonNull(afterId)) {
+            query.addCriteria(idAfter(afterId));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit);
+        return reactiveMongoTemplate.find(query, Review.class);
+    }
+
+    @Override
+    public Flux<Review> findProjected(Long movieInfoId, Set<ReviewField> fields) {
+        return reactiveMongoTemplate.find(project(filter(movieInfoId), fields), Review.class);
+    }
+
+    @Override
+    public Mono<Long> countBy(Long movieInfoId) {
+        return reactiveMongoTemplate.count(filter(movieInfoId), Review.class);
+    }
+
+    @Override
+    public Mono<Review> findAndUpdate(String reviewId, String comment, Double rating) {
+        return reactiveMongoTemplate.findAndModify(new Query(where("_id").is(reviewId)),
+                new Update().set("comment", comment).set("rating", rating), Review.class);
+    }
+
+    @Override
+    public Mono<Review> findAndRemove(String reviewId) {
+        return reactiveMongoTemplate.findAndRemove(new Query(where("_id").is(reviewId)), Review.class);
+    }
+
+    private Query project(Query query, Set<ReviewField> fields) {
+        if (Objects.nonNull(fields)) {
+            fields.forEach(field -> query.fields().include(field.getFieldName()));
+        }
+        return query;
+    }
+
+    private Query filter(Long movieInfoId) {
+        Query query = new Query();
+        if (Objects.nonNull(movieInfoId)) {
+            query.addCriteria(where("movieInfoId").is(movieInfoId));
+        }
+        return query;
+    }
+
+    private Criteria idAfter(String afterId) {
+        if (ObjectId.isValid(afterId)) {
+            return where("_id").gt(new ObjectId(afterId));
+        }
+        // string ids sort before ObjectIds, and $gt only compares values of the same type
+        return new Criteria().orOperator(
+                where("_id").gt(afterId),
+                where("_id").type(JsonSchemaObject.Type.objectIdType()));
+    }
+}
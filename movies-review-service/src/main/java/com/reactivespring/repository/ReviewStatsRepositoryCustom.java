@@ -0,0 +1,21 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.ReviewStats;
+import reactor.core.publisher.Mono;
+
+public interface ReviewStatsRepositoryCustom {
+
+    Mono<ReviewStats> addRating(Long movieInfoId, double rating);
+
+    /**
+     * Removes a rating from the summary, to be called after the review itself was changed or deleted because
+     * min and max are read again from the reviews when the removed rating was one of them.
+     */
+    Mono<ReviewStats> removeRating(Long movieInfoId, double rating);
+
+    /**
+     * Replaces the summary of every movie with one computed from the stored reviews, movie by movie so a summary
+     * is never missing while it's rebuilt, then removes the summaries of movies without rated reviews.
+     */
+    Mono<Long> rebuild();
+}
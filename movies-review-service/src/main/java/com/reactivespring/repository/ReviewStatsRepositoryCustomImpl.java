@@ -0,0 +1,108 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class ReviewStatsRepositoryCustomImpl implements ReviewStatsRepositoryCustom {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+    private static final int REBUILD_CONCURRENCY = 16;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Mono<ReviewStats> addRating(Long movieInfoId, double rating) {
+        Update update = new Update()
+                .inc("count", 1)
+                .inc("sum", rating)
+                .inc("histogram." + ReviewStats.bucket(rating), 1)
+                .min("min", rating)
+                .max("max", rating);
+        return reactiveMongoTemplate.findAndModify(byId(movieInfoId), update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), ReviewStats.class);
+    }
+
+    @Override
+    public Mono<ReviewStats> removeRating(Long movieInfoId, double rating) {
+        String bucket = "histogram." + ReviewStats.bucket(rating);
+        Update update = new Update()
+                .inc("count", -1)
+                .inc("sum", -rating)
+                .inc(bucket, -1);
+        return reactiveMongoTemplate.findAndModify(byId(movieInfoId), update, RETURN_NEW, ReviewStats.class)
+                .flatMap(stats -> {
+                    if (stats.getCount() <= 0) {
+                        // a rating added meanwhile keeps the summary, its bounds still include the removed ratings
+                        return reactiveMongoTemplate.remove(byId(movieInfoId).addCriteria(where("count").lte(0)), ReviewStats.class)
+                                .flatMap(result -> result.getDeletedCount() > 0
+                                        ? Mono.just(ReviewStats.empty(movieInfoId))
+                                        : refreshBounds(movieInfoId));
+                    }
+                    Mono<Void> emptyBucket = reactiveMongoTemplate.updateFirst(byId(movieInfoId).addCriteria(where(bucket).lte(0)),
+                            new Update().unset(bucket), ReviewStats.class).then();
+                    boolean bound = Objects.isNull(stats.getMin()) || Objects.isNull(stats.getMax())
+                            || rating <= stats.getMin() || rating >= stats.getMax();
+                    return emptyBucket.then(bound ? refreshBounds(movieInfoId) : reactiveMongoTemplate.findById(movieInfoId, ReviewStats.class));
+                });
+    }
+
+    @Override
+    public Mono<Long> rebuild() {
+        Query rated = new Query(where("rating").ne(null));
+        rated.fields().include("movieInfoId").include("rating");
+
+        return reactiveMongoTemplate.find(rated, Review.class)
+                .collect(HashMap<Long, ReviewStats>::new, (summaries, review) -> summaries
+                        .computeIfAbsent(review.getMovieInfoId(), ReviewStats::empty)
+                        .add(review.getRating()))
+                .flatMap(summaries -> Flux.fromIterable(summaries.values())
+                        .flatMap(summary -> reactiveMongoTemplate.save(summary), REBUILD_CONCURRENCY)
+                        .count()
+                        .flatMap(count -> removeSummariesExcept(summaries.keySet()).thenReturn(count)));
+    }
+
+    private Mono<Void> removeSummariesExcept(Set<Long> movieInfoIds) {
+        Query summaries = new Query();
+        summaries.fields().include("_id");
+
+        return reactiveMongoTemplate.find(summaries, ReviewStats.class)
+                .map(ReviewStats::getMovieInfoId)
+                .filter(movieInfoId -> !movieInfoIds.contains(movieInfoId))
+                .buffer(500)
+                .concatMap(stale -> reactiveMongoTemplate.remove(new Query(where("_id").in(stale)), ReviewStats.class))
+                .then();
+    }
+
+    private Mono<ReviewStats> refreshBounds(Long movieInfoId) {
+        Query ratings = new Query(where("movieInfoId").is(movieInfoId).and("rating").ne(null)).limit(1);
+        ratings.fields().include("rating");
+
+        Mono<Double> min = reactiveMongoTemplate.findOne(Query.of(ratings).with(Sort.by(Sort.Direction.ASC, "rating")), Review.class)
+                .map(Review::getRating);
+        Mono<Double> max = reactiveMongoTemplate.findOne(Query.of(ratings).with(Sort.by(Sort.Direction.DESC, "rating")), Review.class)
+                .map(Review::getRating);
+
+        return Mono.zip(min, max)
+                .flatMap(bounds -> reactiveMongoTemplate.findAndModify(byId(movieInfoId),
+                        new Update().set("min", bounds.getT1()).set("max", bounds.getT2()), RETURN_NEW, ReviewStats.class));
+    }
+
+    private Query byId(Long movieInfoId) {
+        return new Query(where("_id").is(movieInfoId));
+    }
+}
@@ -20,7 +20,8 @@ public class ReviewRouter {
                             .GET("", reviewHandler::getReviews)
                             .PUT("/{id}", reviewHandler::updateReview)
                             .DELETE("/{id}", reviewHandler::deleteReview)
-                            .GET("/stream", reviewHandler::getReviewsStream);
+                            .GET("/stream", reviewHandler::getReviewsStream)
+                            .GET("/stats", reviewHandler::getReviewStats);
                 })
                 .GET("v1/helloworld", (request -> ServerResponse.ok().bodyValue("Hello world!")))
                 .build();
@@ -0,0 +1,20 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class ReviewEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private Type type;
+    private Instant publishedAt;
+    private Review review;
+}
@@ -0,0 +1,161 @@
+package com.reactivespring.stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Every change of the reviews of all movies. The latest events are kept in a fixed size ring indexed by their
+ * sequence number, and dropped once the ring is full or they're older than the configured age, to replay them to
+ * new subscribers. Live subscribers get the events published after they subscribed and nothing is kept for them.
+ */
+@Component
+public class ReviewFirehose {
+
+    private final ReviewEvent[] ring;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final Sinks.Many<ReviewEvent> live = Sinks.many().multicast().directBestEffort();
+    private final AtomicInteger pendingEmissions = new AtomicInteger();
+    private final AtomicLong emittedSequence = new AtomicLong();
+    private final Map<Sinks.EmitResult, AtomicLong> emitFailures = new ConcurrentHashMap<>();
+
+    private long firstSequence = 1;
+    private long lastSequence = 0;
+
+    @Autowired
+    public ReviewFirehose(@Value("${reviews.stream.firehoseMaxEvents:1000}") int maxEvents,
+                          @Value("${reviews.stream.firehoseMaxAge:PT1H}") Duration maxAge) {
+        this(maxEvents, maxAge, Clock.systemUTC());
+    }
+
+    ReviewFirehose(int maxEvents, Duration maxAge, Clock clock) {
+        if (maxEvents <= 0) {
+            throw new IllegalArgumentException("reviews.stream.firehoseMaxEvents must be positive");
+        }
+        this.ring = new ReviewEvent[maxEvents];
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    /**
+     * Replays the retained events and then follows the live ones. Fails when the subscriber falls so far behind
+     * that events it hasn't read yet are dropped.
+     */
+    public Flux<ReviewEvent> subscribe() {
+        return Flux.defer(() -> {
+            AtomicLong cursor = new AtomicLong(firstSequence() - 1);
+            // the live events only wake the subscriber up, it reads them from the ring in order
+            return live.asFlux()
+                    .onBackpressureLatest()
+                    .map(event -> 0L)
+                    .mergeWith(Mono.just(0L))
+                    .concatMapIterable(ignored -> eventsAfter(cursor, true));
+        });
+    }
+
+    /**
+     * The events published from now on, without the replay of the earlier ones.
+     */
+    public Flux<ReviewEvent> subscribeLive() {
+        return live.asFlux();
+    }
+
+    public void publish(ReviewEvent event) {
+        synchronized (this) {
+            long sequence = ++lastSequence;
+            if (sequence - firstSequence >= ring.length) {
+                firstSequence++;
+            }
+            ring[index(sequence)] = event;
+            expire();
+        }
+        emitLive();
+    }
+
+    public int subscriberCount() {
+        return live.currentSubscriberCount();
+    }
+
+    public synchronized int bufferedCount() {
+        expire();
+        return (int) (lastSequence - firstSequence + 1);
+    }
+
+    public synchronized long firstSequence() {
+        return firstSequence;
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    public long emitFailureCount(Sinks.EmitResult result) {
+        AtomicLong count = emitFailures.get(result);
+        return count != null ? count.get() : 0;
+    }
+
+    private synchronized List<ReviewEvent> eventsAfter(AtomicLong cursor, boolean failIfDropped) {
+        expire();
+        long from = cursor.get() + 1;
+        if (from < firstSequence) {
+            if (failIfDropped) {
+                throw new IllegalStateException("Fell behind the retained review events, events " + from
+                        + " to " + (firstSequence - 1) + " were dropped before they were read");
+            }
+            from = firstSequence;
+        }
+        if (from > lastSequence) {
+            return List.of();
+        }
+        List<ReviewEvent> events = new ArrayList<>((int) (lastSequence - from + 1));
+        for (long sequence = from; sequence <= lastSequence; sequence++) {
+            events.add(ring[index(sequence)]);
+        }
+        cursor.set(lastSequence);
+        return events;
+    }
+
+    // emits outside the monitor, in sequence order and one thread at a time, an event published meanwhile is
+    // emitted by the emitting thread
+    private void emitLive() {
+        if (pendingEmissions.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            for (ReviewEvent event : eventsAfter(emittedSequence, false)) {
+                Sinks.EmitResult result = live.tryEmitNext(event);
+                if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+                    emitFailures.computeIfAbsent(result, failure -> new AtomicLong()).incrementAndGet();
+                }
+            }
+            missed = pendingEmissions.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void expire() {
+        Instant oldestAllowed = clock.instant().minus(maxAge);
+        while (firstSequence <= lastSequence && ring[index(firstSequence)].getPublishedAt().isBefore(oldestAllowed)) {
+            ring[index(firstSequence)] = null;
+            firstSequence++;
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % ring.length);
+    }
+}
@@ -0,0 +1,59 @@
+package com.reactivespring.stream;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Sinks;
+
+@Component
+@RequiredArgsConstructor
+public class ReviewStreamMetrics implements MeterBinder {
+
+    private final ReviewTopics reviewTopics;
+    private final ReviewFirehose reviewFirehose;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("reviews.stream.topics", reviewTopics, ReviewTopics::topicCount)
+                .description("Movies with at least one subscriber to their reviews")
+                .register(registry);
+        Gauge.builder("reviews.stream.subscribers", reviewTopics, ReviewTopics::subscriberCount)
+                .tag("sink", "topics")
+                .register(registry);
+        Gauge.builder("reviews.stream.buffered", reviewTopics, ReviewTopics::bufferedCount)
+                .description("Reviews waiting in the buffers of the subscribers")
+                .tag("sink", "topics")
+                .register(registry);
+        FunctionCounter.builder("reviews.stream.dropped", reviewTopics, ReviewTopics::droppedCount)
+                .description("Reviews dropped because a subscriber fell behind")
+                .tag("sink", "topics")
+                .register(registry);
+        Gauge.builder("reviews.stream.subscribers", reviewFirehose, ReviewFirehose::subscriberCount)
+                .tag("sink", "firehose")
+                .register(registry);
+        Gauge.builder("reviews.stream.buffered", reviewFirehose, ReviewFirehose::bufferedCount)
+                .description("Review events kept by the firehose to replay them")
+                .tag("sink", "firehose")
+                .register(registry);
+        for (Sinks.EmitResult result : Sinks.EmitResult.values()) {
+            if (!result.isFailure()) {
+                continue;
+            }
+            FunctionCounter.builder("reviews.stream.emit.failures", reviewTopics,
+                            topics -> topics.emitFailureCount(result))
+                    .description("Reviews the sink refused to emit")
+                    .tag("sink", "topics")
+                    .tag("result", result.name())
+                    .register(registry);
+            FunctionCounter.builder("reviews.stream.emit.failures", reviewFirehose,
+                            firehose -> firehose.emitFailureCount(result))
+                    .description("Reviews the sink refused to emit")
+                    .tag("sink", "firehose")
+                    .tag("result", result.name())
+                    .register(registry);
+        }
+    }
+}
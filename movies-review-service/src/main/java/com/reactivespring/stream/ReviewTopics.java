@@ -0,0 +1,123 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Scannable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per movie topics for the reviews stream. A topic is created when the first subscriber of a movie arrives
+ * and removed again when its last subscriber leaves, so publishing a review only touches the subscribers
+ * of that movie and costs nothing for movies nobody is watching.
+ */
+@Component
+public class ReviewTopics {
+
+    private final Map<Long, Topic> topics = new ConcurrentHashMap<>();
+    // the buffer of every subscriber, of all topics
+    private final Set<Subscription> buffers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Map<Sinks.EmitResult, AtomicLong> emitFailures = new ConcurrentHashMap<>();
+    private final int subscriberBufferSize;
+
+    public ReviewTopics(@Value("${reviews.stream.subscriberBufferSize:256}") int subscriberBufferSize) {
+        if (subscriberBufferSize <= 0) {
+            throw new IllegalArgumentException("reviews.stream.subscriberBufferSize must be positive");
+        }
+        this.subscriberBufferSize = subscriberBufferSize;
+    }
+
+    public Flux<Review> subscribe(Long movieInfoId) {
+        return Flux.defer(() -> {
+            // joining and leaving happen inside compute, so a topic can't be removed between lookup and join
+            Topic topic = topics.compute(movieInfoId, (id, existing) -> {
+                Topic joined = existing != null ? existing : new Topic();
+                joined.subscribers++;
+                return joined;
+            });
+            AtomicReference<Subscription> buffer = new AtomicReference<>();
+            return topic.sink.asFlux()
+                    .onBackpressureBuffer(subscriberBufferSize, dropped -> droppedCount.incrementAndGet(),
+                            BufferOverflowStrategy.DROP_OLDEST)
+                    .doOnSubscribe(subscription -> {
+                        buffer.set(subscription);
+                        buffers.add(subscription);
+                    })
+                    .doFinally(signalType -> {
+                        buffers.remove(buffer.get());
+                        leave(movieInfoId, topic);
+                    });
+        });
+    }
+
+    /**
+     * Emits the review to the subscribers of its movie, a review for a movie without subscribers is discarded.
+     */
+    public void publish(Review review) {
+        Topic topic = topics.get(review.getMovieInfoId());
+        if (topic == null) {
+            return;
+        }
+        Sinks.EmitResult result;
+        synchronized (topic) {
+            result = topic.sink.tryEmitNext(review);
+        }
+        if (result.isFailure()) {
+            emitFailures.computeIfAbsent(result, failure -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public int topicCount() {
+        return topics.size();
+    }
+
+    public int subscriberCount(Long movieInfoId) {
+        Topic topic = topics.get(movieInfoId);
+        return topic != null ? topic.sink.currentSubscriberCount() : 0;
+    }
+
+    public int subscriberCount() {
+        return buffers.size();
+    }
+
+    public int bufferedCount() {
+        return buffers.stream()
+                .mapToInt(buffer -> Scannable.from(buffer).scanOrDefault(Scannable.Attr.BUFFERED, 0))
+                .sum();
+    }
+
+    public long droppedCount() {
+        return droppedCount.get();
+    }
+
+    public long emitFailureCount(Sinks.EmitResult result) {
+        AtomicLong count = emitFailures.get(result);
+        return count != null ? count.get() : 0;
+    }
+
+    private void leave(Long movieInfoId, Topic topic) {
+        topics.computeIfPresent(movieInfoId, (id, existing) -> {
+            if (existing != topic) {
+                return existing;
+            }
+            existing.subscribers--;
+            return existing.subscribers > 0 ? existing : null;
+        });
+    }
+
+    private static class Topic {
+        private final Sinks.Many<Review> sink = Sinks.many().multicast().directBestEffort();
+        // guarded by the topics map, only read and written inside compute
+        private int subscribers;
+    }
+}
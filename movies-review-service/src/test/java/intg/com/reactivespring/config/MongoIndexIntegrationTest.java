@@ -0,0 +1,80 @@
+package com.reactivespring.config;
+
+import com.reactivespring.common.config.MongoIndexInitializer;
+import com.reactivespring.common.config.QueryPlanVerifier;
+import com.reactivespring.domain.Review;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.mongodb.embedded.version=3.4.11",
+        "reviews.mongo.queryPlanCheck=FAIL"
+})
+public class MongoIndexIntegrationTest {
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+    @Autowired
+    QueryPlanVerifier queryPlanVerifier;
+    @Autowired
+    MongoIndexInitializer mongoIndexInitializer;
+
+    @Test
+    void indexesCreatedAtStartup() {
+        List<String> indexNames = reactiveMongoTemplate.indexOps(Review.class).getIndexInfo()
+                .map(IndexInfo::getName)
+                .collectList()
+                .block();
+
+        assert indexNames != null;
+        assertTrue(indexNames.containsAll(List.of("_id_", "movieInfoId")), indexNames.toString());
+    }
+
+    @Test
+    void conflictingIndexRecreated() {
+        ReactiveIndexOperations indexOperations = reactiveMongoTemplate.indexOps(Review.class);
+        indexOperations.dropIndex("movieInfoId")
+                .then(indexOperations.ensureIndex(new Index("movieInfoId", Sort.Direction.DESC).named("movieInfoId")))
+                .block();
+
+        StepVerifier.create(mongoIndexInitializer.reconcileIndexes(Review.class))
+                .verifyComplete();
+
+        IndexInfo movieInfoId = indexOperations.getIndexInfo()
+                .filter(index -> index.getName().equals("movieInfoId"))
+                .blockFirst();
+        assert movieInfoId != null;
+        assertEquals(Sort.Direction.ASC, movieInfoId.getIndexFields().get(0).getDirection());
+    }
+
+    @Test
+    void derivedQueries_useIndexes() {
+        Query byRating = Query.query(where("rating").is(9.0));
+        List<Query> queries = List.of(Query.query(where("movieInfoId").is(1L)),
+                Query.query(where("movieInfoId").is(1L).and("_id").gt(new ObjectId())).with(Sort.by("_id")),
+                byRating);
+
+        StepVerifier.create(queryPlanVerifier.unindexedQueries(reactiveMongoTemplate.getCollectionName(Review.class), queries))
+                .expectNext(byRating)
+                .verifyComplete();
+    }
+}
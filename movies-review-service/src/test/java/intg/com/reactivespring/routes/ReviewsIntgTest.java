@@ -1,27 +1,41 @@
 package com.reactivespring.routes;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import com.reactivespring.handler.ReviewHandler;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewStatsRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
 @AutoConfigureWebTestClient
-@TestPropertySource(properties = "spring.mongodb.embedded.version=3.4.11")
+@TestPropertySource(properties = {"spring.mongodb.embedded.version=3.4.11", "reviews.stream.firehoseEnabled=true"})
 public class ReviewsIntgTest {
 
     @Autowired
@@ -30,6 +44,9 @@ public class ReviewsIntgTest {
     @Autowired
     ReviewReactiveRepository reviewReactiveRepository;
 
+    @Autowired
+    ReviewStatsRepository reviewStatsRepository;
+
     static String REVIEWS_URL = "/v1/reviews";
 
     @BeforeEach
@@ -40,11 +57,14 @@ public class ReviewsIntgTest {
                 new Review("abc", 2L, "Excellent Movie", 8.0));
         reviewReactiveRepository.saveAll(reviewsList)
                 .blockLast();
+        // the repository is written directly, bypassing the rating summaries
+        reviewStatsRepository.rebuild().block();
     }
 
     @AfterEach
     void tearDown() {
         reviewReactiveRepository.deleteAll().block();
+        reviewStatsRepository.deleteAll().block();
     }
 
     @Test
@@ -68,6 +88,22 @@ public class ReviewsIntgTest {
                 );
     }
 
+    @Test
+    void addReview_validation() {
+        Review review = new Review(null, null, "Awesome Movie", -9.0);
+
+        // validated on an event loop, where BlockHound fails the request if the messages load blocking
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("rating.movieInfoId: must not be null, rating.negative : please pass a non-negative value");
+    }
+
     @Test
     void getAllReviews() {
         webTestClient
@@ -98,6 +134,46 @@ public class ReviewsIntgTest {
 
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoIds=1,2,3")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(3);
+    }
+
+    @Test
+    void getReviews_page() {
+        List<String> reviewIds = new ArrayList<>();
+        String cursor = null;
+        do {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(REVIEWS_URL)
+                    .queryParam("size", 1);
+            if (cursor != null) {
+                builder.queryParam("cursor", cursor);
+            }
+
+            EntityExchangeResult<List<Review>> result = webTestClient
+                    .get()
+                    .uri(builder.buildAndExpand().toUri())
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectBodyList(Review.class)
+                    .hasSize(1)
+                    .returnResult();
+
+            reviewIds.add(result.getResponseBody().get(0).getReviewId());
+            cursor = result.getResponseHeaders().getFirst(ReviewHandler.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertEquals(3, new HashSet<>(reviewIds).size());
+    }
+
     @Test
     void updateReviewById() {
         String reviewId= "abc";
@@ -132,4 +208,120 @@ public class ReviewsIntgTest {
                 .expectStatus()
                 .isNoContent();
     }
+
+    @Test
+    void getReviewStats() {
+        getReviewStats(1L)
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.sum").isEqualTo(18.0)
+                .jsonPath("$.histogram.9").isEqualTo(2);
+
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(new Review(null, 1L, "Good Movie", 7.5))
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        getReviewStats(1L)
+                .jsonPath("$.count").isEqualTo(3)
+                .jsonPath("$.mean").isEqualTo(8.5)
+                .jsonPath("$.min").isEqualTo(7.5)
+                .jsonPath("$.max").isEqualTo(9.0)
+                .jsonPath("$.histogram.7").isEqualTo(1);
+    }
+
+    @Test
+    void getReviewStats_updateAndDelete() {
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(new Review("abc", 2L, "Excellent Movie Updated", 6.0))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful();
+
+        getReviewStats(2L)
+                .jsonPath("$.count").isEqualTo(1)
+                .jsonPath("$.min").isEqualTo(6.0)
+                .jsonPath("$.max").isEqualTo(6.0)
+                .jsonPath("$.histogram.6").isEqualTo(1)
+                .jsonPath("$.histogram.8").doesNotExist();
+
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        getReviewStats(2L)
+                .jsonPath("$.count").isEqualTo(0)
+                .jsonPath("$.mean").doesNotExist();
+    }
+
+    @Test
+    void rebuildReviewStats() {
+        reviewStatsRepository.save(new ReviewStats(3L, 1, 5.0, 5.0, 5.0, Map.of(5, 1L))).block();
+
+        StepVerifier.create(reviewStatsRepository.rebuild())
+                .expectNext(2L)
+                .verifyComplete();
+
+        StepVerifier.create(reviewStatsRepository.findById(3L))
+                .verifyComplete();
+        getReviewStats(1L)
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.histogram.9").isEqualTo(2);
+    }
+
+    @Test
+    void getReviewsStream_changeEvents() {
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(new Review("abc", 2L, "Streamed Update", 6.0))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful();
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        Flux<ServerSentEvent<Review>> events = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<Review>>() {
+                })
+                .getResponseBody();
+
+        // the stream replays the changes of the earlier tests too
+        StepVerifier.create(events.skipUntil(event -> "Streamed Update".equals(event.data().getComment())))
+                .assertNext(event -> {
+                    assertEquals("updated", event.event());
+                    assertEquals(6.0, event.data().getRating());
+                    assertNotNull(event.comment());
+                })
+                .assertNext(event -> assertEquals("deleted", event.event()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private WebTestClient.BodyContentSpec getReviewStats(Long movieInfoId) {
+        return webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats?movieInfoId={id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody();
+    }
 }
@@ -0,0 +1,80 @@
+package com.reactivespring.routes;
+
+import com.reactivespring.common.util.SignalTracer;
+import com.reactivespring.exceptionhandler.GlobalErrorHandler;
+import com.reactivespring.handler.ReviewHandler;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewStatsRepository;
+import com.reactivespring.router.ReviewRouter;
+import com.reactivespring.stream.ReviewFirehose;
+import com.reactivespring.stream.ReviewStreamMetrics;
+import com.reactivespring.stream.ReviewTopics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.web.reactive.WebFluxMetricsAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, ReviewTopics.class, ReviewFirehose.class,
+        GlobalErrorHandler.class, ReviewStreamMetrics.class, SignalTracer.class})
+@ImportAutoConfiguration({MetricsAutoConfiguration.class, CompositeMeterRegistryAutoConfiguration.class,
+        SimpleMetricsExportAutoConfiguration.class, WebFluxMetricsAutoConfiguration.class})
+@AutoConfigureWebTestClient
+class ReviewRouterMetricsTest {
+
+    @MockBean
+    private ReviewReactiveRepository reviewReactiveRepository;
+
+    @MockBean
+    private ReviewStatsRepository reviewStatsRepository;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void functionalRoutesAreTimedByTheirPattern() {
+        when(reviewReactiveRepository.findAndRemove("abc")).thenReturn(Mono.empty());
+
+        webTestClient
+                .delete()
+                .uri("/v1/reviews/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        Timer timer = meterRegistry.get("http.server.requests")
+                .tag("uri", "/v1/reviews/{id}")
+                .tag("method", "DELETE")
+                .tag("outcome", "SUCCESS")
+                .timer();
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    void streamGauges() {
+        assertEquals(0, meterRegistry.get("reviews.stream.subscribers").tag("sink", "topics").gauge().value());
+        assertEquals(0, meterRegistry.get("reviews.stream.buffered").tag("sink", "firehose").gauge().value());
+        assertEquals(0, meterRegistry.get("reviews.stream.emit.failures")
+                .tag("sink", "firehose")
+                .tag("result", "FAIL_NON_SERIALIZED")
+                .functionCounter()
+                .count());
+    }
+}
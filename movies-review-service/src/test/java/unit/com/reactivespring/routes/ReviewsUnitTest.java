@@ -1,38 +1,64 @@
 package com.reactivespring.routes;
 
+import com.reactivespring.common.util.CursorUtil;
+import com.reactivespring.common.util.SignalTracer;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewField;
+import com.reactivespring.domain.ReviewStats;
 import com.reactivespring.exceptionhandler.GlobalErrorHandler;
 import com.reactivespring.handler.ReviewHandler;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewStatsRepository;
 import com.reactivespring.router.ReviewRouter;
+import com.reactivespring.stream.ReviewEvent;
+import com.reactivespring.stream.ReviewFirehose;
+import com.reactivespring.stream.ReviewTopics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.net.URI;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, ReviewTopics.class, ReviewFirehose.class, GlobalErrorHandler.class,
+        SignalTracer.class, SimpleMeterRegistry.class})
 @AutoConfigureWebTestClient
+// the response of an event stream only starts with its first event, a heartbeat when there's no review yet
+@TestPropertySource(properties = {"reviews.stream.heartbeatInterval=PT0.1S", "reviews.stream.firehoseEnabled=true"})
 public class ReviewsUnitTest {
 
     @MockBean
     private ReviewReactiveRepository reviewReactiveRepository;
 
+    @MockBean
+    private ReviewStatsRepository reviewStatsRepository;
+
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private ReviewFirehose reviewFirehose;
+
     static String REVIEWS_URL = "/v1/reviews";
 
     @Test
@@ -43,6 +69,7 @@ public class ReviewsUnitTest {
         //when
         when(reviewReactiveRepository.save(isA(Review.class)))
                 .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+        when(reviewStatsRepository.addRating(1L, 9.0)).thenReturn(Mono.just(ReviewStats.empty(1L)));
 
         //then
         webTestClient
@@ -108,6 +135,168 @@ public class ReviewsUnitTest {
 
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        when(reviewReactiveRepository.findAllByMovieInfoIdIn(List.of(1L, 2L))).thenReturn(Flux.just(
+                new Review("abc1", 1L, "Awesome Movie1", 9.0),
+                new Review("abc2", 2L, "Awesome Movie2", 9.5)
+        ));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoIds=1,2,1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getReviewsByMovieInfoIds_invalidId() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoIds=1,abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviews_page() {
+        URI uri = UriComponentsBuilder.fromUriString(REVIEWS_URL)
+                .queryParam("size", 2)
+                .queryParam("count", true)
+                .buildAndExpand()
+                .toUri();
+
+        when(reviewReactiveRepository.findPage(null, null, 3, null)).thenReturn(Flux.just(
+                new Review("abc1", 1L, "Awesome Movie1", 9.0),
+                new Review("abc2", 1L, "Awesome Movie2", 9.5),
+                new Review("abc3", 2L, "Awesome Movie3", 8.5)
+        ));
+        when(reviewReactiveRepository.countBy(null)).thenReturn(Mono.just(5L));
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().valueEquals(ReviewHandler.NEXT_CURSOR_HEADER, CursorUtil.encode("abc2"))
+                .expectHeader().valueEquals(ReviewHandler.TOTAL_COUNT_HEADER, "5")
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getReviews_page_invalidCursor() {
+        URI uri = UriComponentsBuilder.fromUriString(REVIEWS_URL)
+                .queryParam("cursor", "not-a-cursor")
+                .buildAndExpand()
+                .toUri();
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviews_invalidMovieInfoId() {
+        for (String query : List.of("", "&fields=rating", "&size=10")) {
+            webTestClient
+                    .get()
+                    .uri(REVIEWS_URL + "?movieInfoId=abc" + query)
+                    .exchange()
+                    .expectStatus()
+                    .isBadRequest()
+                    .expectBody(String.class)
+                    .isEqualTo("movieInfoId must be a number");
+        }
+    }
+
+    @Test
+    void getReviews_fields() {
+        URI uri = UriComponentsBuilder.fromUriString(REVIEWS_URL)
+                .queryParam("movieInfoId", 1L)
+                .queryParam("fields", "rating")
+                .buildAndExpand()
+                .toUri();
+
+        when(reviewReactiveRepository.findProjected(1L, EnumSet.of(ReviewField.REVIEW_ID, ReviewField.RATING)))
+                .thenReturn(Flux.just(new Review("abc1", 1L, "Awesome Movie1", 9.0)));
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$[0].reviewId").isEqualTo("abc1")
+                .jsonPath("$[0].rating").isEqualTo(9.0)
+                .jsonPath("$[0].comment").doesNotExist();
+    }
+
+    @Test
+    void getReviews_invalidFields() {
+        URI uri = UriComponentsBuilder.fromUriString(REVIEWS_URL)
+                .queryParam("fields", "author")
+                .buildAndExpand()
+                .toUri();
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviewsStream_firehose() {
+        reviewFirehose.publish(new ReviewEvent(ReviewEvent.Type.CREATED, Instant.now(), new Review("abc", 1L, "Awesome Movie", 9.0)));
+
+        Flux<Review> reviews = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stream")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Review.class)
+                .getResponseBody();
+
+        StepVerifier.create(reviews)
+                .assertNext(review -> assertEquals("abc", review.getReviewId()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void getReviewsStream_live() {
+        reviewFirehose.publish(new ReviewEvent(ReviewEvent.Type.CREATED, Instant.now(), new Review("abc", 1L, "Awesome Movie", 9.0)));
+
+        Flux<Review> reviews = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stream?replay=false")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Review.class)
+                .getResponseBody();
+
+        StepVerifier.create(reviews)
+                .then(() -> reviewFirehose.publish(new ReviewEvent(ReviewEvent.Type.CREATED, Instant.now(),
+                        new Review("def", 1L, "Excellent Movie", 8.0))))
+                .assertNext(review -> assertEquals("def", review.getReviewId()))
+                .thenCancel()
+                .verify();
+    }
+
     @Test
     void getAllReviews() {
         when(reviewReactiveRepository.findAll()).thenReturn(Flux.just(
@@ -131,8 +320,9 @@ public class ReviewsUnitTest {
         Review storedReview = new Review("abc", 2L, "Excellent Movie", 8.0);
         Review savedReview = new Review("abc", 2L, "Excellent Movie Updated", 8.5);
 
-        when(reviewReactiveRepository.findById("abc")).thenReturn(Mono.just(storedReview));
-        when(reviewReactiveRepository.save(storedReview)).thenReturn(Mono.just(savedReview));
+        when(reviewReactiveRepository.findAndUpdate("abc", "Excellent Movie Updated", 8.5)).thenReturn(Mono.just(storedReview));
+        when(reviewStatsRepository.removeRating(2L, 8.0)).thenReturn(Mono.just(ReviewStats.empty(2L)));
+        when(reviewStatsRepository.addRating(2L, 8.5)).thenReturn(Mono.just(ReviewStats.empty(2L)));
 
         webTestClient
                 .put()
@@ -158,8 +348,8 @@ public class ReviewsUnitTest {
         String reviewId = "abc";
         Review review = new Review("abc", 2L, "Excellent Movie", 8.0);
 
-        when(reviewReactiveRepository.deleteById(reviewId)).thenReturn(Mono.empty());
-        when(reviewReactiveRepository.findById(reviewId)).thenReturn(Mono.just(review));
+        when(reviewReactiveRepository.findAndRemove(reviewId)).thenReturn(Mono.just(review));
+        when(reviewStatsRepository.removeRating(2L, 8.0)).thenReturn(Mono.just(ReviewStats.empty(2L)));
 
         webTestClient
                 .delete()
@@ -167,6 +357,70 @@ public class ReviewsUnitTest {
                 .exchange()
                 .expectStatus()
                 .isNoContent();
+
+        verify(reviewStatsRepository).removeRating(2L, 8.0);
+    }
+
+    @Test
+    void deleteReview_alreadyDeleted() {
+        String reviewId = "abc";
+
+        when(reviewReactiveRepository.findAndRemove(reviewId)).thenReturn(Mono.empty());
+
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL+"/{id}", reviewId)
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        verify(reviewStatsRepository, never()).removeRating(isA(Long.class), isA(Double.class));
+    }
+
+    @Test
+    void getReviewStats() {
+        ReviewStats stats = ReviewStats.empty(1L);
+        stats.add(9.0);
+        stats.add(8.0);
+        when(reviewStatsRepository.findById(1L)).thenReturn(Mono.just(stats));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.mean").isEqualTo(8.5)
+                .jsonPath("$.min").isEqualTo(8.0)
+                .jsonPath("$.max").isEqualTo(9.0)
+                .jsonPath("$.histogram.8").isEqualTo(1);
+    }
+
+    @Test
+    void getReviewStats_noReviews() {
+        when(reviewStatsRepository.findById(1L)).thenReturn(Mono.empty());
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(0)
+                .jsonPath("$.mean").doesNotExist();
+    }
+
+    @Test
+    void getReviewStats_invalidMovieInfoId() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats?movieInfoId=abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
     }
 
 }
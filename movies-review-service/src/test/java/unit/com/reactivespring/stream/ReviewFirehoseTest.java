@@ -0,0 +1,98 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReviewFirehoseTest {
+
+    @Test
+    void subscribe_replayRetainedAndFollowLive() {
+        ReviewFirehose firehose = new ReviewFirehose(10, Duration.ofHours(1));
+        firehose.publish(event("abc"));
+        firehose.publish(event("def"));
+
+        StepVerifier.create(firehose.subscribe())
+                .assertNext(event -> assertEquals("abc", event.getReview().getReviewId()))
+                .assertNext(event -> assertEquals("def", event.getReview().getReviewId()))
+                .then(() -> firehose.publish(event("ghi")))
+                .assertNext(event -> assertEquals("ghi", event.getReview().getReviewId()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(0, firehose.subscriberCount());
+    }
+
+    @Test
+    void subscribeLive_onlyEventsPublishedAfterwards() {
+        ReviewFirehose firehose = new ReviewFirehose(10, Duration.ofHours(1));
+        firehose.publish(event("abc"));
+
+        StepVerifier.create(firehose.subscribeLive())
+                .then(() -> firehose.publish(event("def")))
+                .assertNext(event -> assertEquals("def", event.getReview().getReviewId()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void publish_keepsTheLatestEventsOnly() {
+        ReviewFirehose firehose = new ReviewFirehose(2, Duration.ofHours(1));
+        firehose.publish(event("abc"));
+        firehose.publish(event("def"));
+        firehose.publish(event("ghi"));
+
+        assertEquals(2, firehose.bufferedCount());
+        assertEquals(2, firehose.firstSequence());
+
+        StepVerifier.create(firehose.subscribe())
+                .assertNext(event -> assertEquals("def", event.getReview().getReviewId()))
+                .assertNext(event -> assertEquals("ghi", event.getReview().getReviewId()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void publish_expiresOldEvents() {
+        Instant now = Instant.parse("2021-08-01T10:00:00Z");
+        ReviewFirehose firehose = new ReviewFirehose(10, Duration.ofMinutes(5), Clock.fixed(now, ZoneOffset.UTC));
+        firehose.publish(new ReviewEvent(ReviewEvent.Type.CREATED, now.minus(Duration.ofMinutes(10)), review("abc")));
+        firehose.publish(new ReviewEvent(ReviewEvent.Type.CREATED, now, review("def")));
+
+        assertEquals(1, firehose.bufferedCount());
+    }
+
+    @Test
+    void subscribe_failsWhenSubscriberFallsBehindTheRing() {
+        ReviewFirehose firehose = new ReviewFirehose(2, Duration.ofHours(1));
+        firehose.publish(event("abc"));
+
+        StepVerifier.create(firehose.subscribe(), 1)
+                .assertNext(event -> assertEquals("abc", event.getReview().getReviewId()))
+                .then(() -> {
+                    firehose.publish(event("def"));
+                    firehose.publish(event("ghi"));
+                    firehose.publish(event("jkl"));
+                    firehose.publish(event("mno"));
+                })
+                .thenRequest(10)
+                .assertNext(event -> assertEquals("def", event.getReview().getReviewId()))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    private static ReviewEvent event(String reviewId) {
+        return new ReviewEvent(ReviewEvent.Type.CREATED, Instant.now(), review(reviewId));
+    }
+
+    private static Review review(String reviewId) {
+        return new Review(reviewId, 1L, "Awesome Movie", 9.0);
+    }
+}
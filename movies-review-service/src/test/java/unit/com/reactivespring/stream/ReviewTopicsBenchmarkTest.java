@@ -0,0 +1,78 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the fan-out cost of per movie topics with the global stream filtered by each subscriber.
+ * Run with BENCHMARK=true.
+ */
+@Slf4j
+@EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+class ReviewTopicsBenchmarkTest {
+
+    static final int SUBSCRIBERS = 10_000;
+    static final int MOVIES = 1_000;
+    static final int REVIEWS = 10_000;
+
+    @Test
+    void fanOut() {
+        for (int run = 0; run < 3; run++) {
+            report("firehose", firehose());
+            report("topics", topics());
+        }
+    }
+
+    private long[] firehose() {
+        Sinks.Many<Review> sink = Sinks.many().multicast().directBestEffort();
+        LongAdder received = new LongAdder();
+        LongAdder delivered = new LongAdder();
+        List<Disposable> subscriptions = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            long movieInfoId = i % MOVIES;
+            subscriptions.add(sink.asFlux()
+                    .doOnNext(review -> received.increment())
+                    .filter(review -> review.getMovieInfoId() == movieInfoId)
+                    .subscribe(review -> delivered.increment()));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < REVIEWS; i++) {
+            sink.tryEmitNext(new Review(null, (long) (i % MOVIES), "comment", 8.0));
+        }
+        long elapsed = System.nanoTime() - start;
+        subscriptions.forEach(Disposable::dispose);
+        return new long[]{elapsed, received.sum(), delivered.sum()};
+    }
+
+    private long[] topics() {
+        ReviewTopics reviewTopics = new ReviewTopics(256);
+        LongAdder delivered = new LongAdder();
+        List<Disposable> subscriptions = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            subscriptions.add(reviewTopics.subscribe((long) (i % MOVIES))
+                    .subscribe(review -> delivered.increment()));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < REVIEWS; i++) {
+            reviewTopics.publish(new Review(null, (long) (i % MOVIES), "comment", 8.0));
+        }
+        long elapsed = System.nanoTime() - start;
+        subscriptions.forEach(Disposable::dispose);
+        return new long[]{elapsed, delivered.sum(), delivered.sum()};
+    }
+
+    private void report(String name, long[] result) {
+        log.info("{} {} subscribers / {} movies: {} reviews in {} ms, {} signals, {} delivered",
+                name, SUBSCRIBERS, MOVIES, REVIEWS, result[0] / 1_000_000, result[1], result[2]);
+    }
+}
@@ -0,0 +1,79 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReviewTopicsTest {
+
+    ReviewTopics reviewTopics = new ReviewTopics(16);
+
+    @Test
+    void subscribe_onlyReceivesReviewsOfTheMovie() {
+        StepVerifier.create(reviewTopics.subscribe(1L))
+                .then(() -> {
+                    reviewTopics.publish(new Review("abc1", 2L, "Excellent Movie", 8.0));
+                    reviewTopics.publish(new Review("abc2", 1L, "Awesome Movie", 9.0));
+                })
+                .assertNext(review -> assertEquals("abc2", review.getReviewId()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void subscribe_createsTopicLazily() {
+        reviewTopics.publish(new Review("abc1", 1L, "Awesome Movie", 9.0));
+        assertEquals(0, reviewTopics.topicCount());
+
+        Disposable first = reviewTopics.subscribe(1L).subscribe();
+        Disposable second = reviewTopics.subscribe(1L).subscribe();
+        Disposable other = reviewTopics.subscribe(2L).subscribe();
+
+        assertEquals(2, reviewTopics.topicCount());
+        assertEquals(2, reviewTopics.subscriberCount(1L));
+        assertEquals(3, reviewTopics.subscriberCount());
+
+        first.dispose();
+        other.dispose();
+        assertEquals(1, reviewTopics.topicCount());
+        assertEquals(1, reviewTopics.subscriberCount(1L));
+        assertEquals(1, reviewTopics.subscriberCount());
+    }
+
+    @Test
+    void subscribe_reclaimsIdleTopic() {
+        Disposable subscription = reviewTopics.subscribe(1L).subscribe();
+        subscription.dispose();
+
+        assertEquals(0, reviewTopics.topicCount());
+
+        StepVerifier.create(reviewTopics.subscribe(1L))
+                .then(() -> reviewTopics.publish(new Review("abc1", 1L, "Awesome Movie", 9.0)))
+                .expectNextCount(1)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        assertEquals(0, reviewTopics.topicCount());
+    }
+
+    @Test
+    void subscribe_slowSubscriberDropsOldest() {
+        StepVerifier.create(reviewTopics.subscribe(1L), 0)
+                .then(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        reviewTopics.publish(new Review("abc" + i, 1L, "Awesome Movie", 9.0));
+                    }
+                })
+                .then(() -> assertEquals(16, reviewTopics.bufferedCount()))
+                .thenRequest(1)
+                .assertNext(review -> assertEquals("abc4", review.getReviewId()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        assertEquals(4, reviewTopics.droppedCount());
+        assertEquals(0, reviewTopics.bufferedCount());
+    }
+}
@@ -0,0 +1,189 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.exception.MoviesInfoClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache of assembled movies by id with a soft and a hard TTL. Movies younger than {@code softTtl} are served
+ * as they are, older ones are still served but refreshed in the background, at most one refresh per movie at
+ * a time, and movies older than {@code hardTtl} are expired and loaded again. Concurrent lookups of the same
+ * missing id share one load. Degraded movies and movies that are not found are not cached. Cached movies can be
+ * patched or evicted as their movie info and reviews change, see {@link MovieCacheInvalidator}.
+ */
+@Slf4j
+@Component
+public class MovieCache {
+
+    private final AsyncCache<String, CachedMovie> cache;
+    private final Ticker ticker;
+    private final long softTtlNanos;
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    @Autowired
+    public MovieCache(@Value("${movies.cache.maximumSize:10000}") long maximumSize,
+                      @Value("${movies.cache.softTtl:PT30S}") Duration softTtl,
+                      @Value("${movies.cache.hardTtl:PT5M}") Duration hardTtl) {
+        this(maximumSize, softTtl, hardTtl, Ticker.systemTicker());
+    }
+
+    MovieCache(long maximumSize, Duration softTtl, Duration hardTtl, Ticker ticker) {
+        this.ticker = ticker;
+        this.softTtlNanos = softTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(hardTtl)
+                .ticker(ticker)
+                .recordStats()
+                .buildAsync();
+    }
+
+    public Mono<Movie> get(String id, Function<String, Mono<Movie>> loader) {
+        return Mono.defer(() -> {
+                    CompletableFuture<CachedMovie> cachedMovie = cache.get(id, (key, executor) -> load(key, loader).toFuture());
+                    // evicted before the failure reaches the callers, so that their next lookup loads again
+                    return Mono.fromFuture(cachedMovie)
+                            .doOnError(ex -> cache.asMap().remove(id, cachedMovie));
+                })
+                .doOnNext(cached -> {
+                    if (cached.movie.isDegraded()) {
+                        // served to the lookups that shared the load, but not kept
+                        cache.synchronous().asMap().remove(id, cached);
+                    } else if (isStale(cached)) {
+                        staleHits.incrementAndGet();
+                        if (cached.refreshing.compareAndSet(false, true)) {
+                            refresh(id, cached, loader);
+                        }
+                    }
+                })
+                .map(cached -> cached.movie);
+    }
+
+    /**
+     * Loads the movie bypassing the cached one and caches the result.
+     */
+    public Mono<Movie> reload(String id, Function<String, Mono<Movie>> loader) {
+        return load(id, loader)
+                .doOnNext(cached -> put(id, cached))
+                .map(cached -> cached.movie);
+    }
+
+    /**
+     * Replaces the cached movie by the updated one, keeping its age. A movie that is still being loaded is
+     * evicted instead, the load may have missed the change.
+     */
+    public void update(String id, UnaryOperator<Movie> update) {
+        cache.asMap().computeIfPresent(id, (key, cachedMovie) -> {
+            CachedMovie cached = completed(cachedMovie);
+            if (cached == null) {
+                return null;
+            }
+            return CompletableFuture.completedFuture(new CachedMovie(update.apply(cached.movie), cached.loadedAt));
+        });
+    }
+
+    public Movie getIfPresent(String id) {
+        CompletableFuture<CachedMovie> cachedMovie = cache.getIfPresent(id);
+        CachedMovie cached = cachedMovie != null ? completed(cachedMovie) : null;
+        return cached != null ? cached.movie : null;
+    }
+
+    public void invalidate(String id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    public long staleHits() {
+        return staleHits.get();
+    }
+
+    public long refreshFailures() {
+        return refreshFailures.get();
+    }
+
+    AsyncCache<String, CachedMovie> nativeCache() {
+        return cache;
+    }
+
+    private Mono<CachedMovie> load(String id, Function<String, Mono<Movie>> loader) {
+        return loader.apply(id)
+                .map(movie -> new CachedMovie(movie, ticker.read()));
+    }
+
+    private void refresh(String id, CachedMovie stale, Function<String, Mono<Movie>> loader) {
+        load(id, loader)
+                .filter(refreshed -> !refreshed.movie.isDegraded())
+                // unless the stale movie was updated or evicted meanwhile
+                .doOnNext(refreshed -> cache.asMap().computeIfPresent(id, (key, cachedMovie) ->
+                        completed(cachedMovie) == stale ? CompletableFuture.completedFuture(refreshed) : cachedMovie))
+                .doOnError(ex -> {
+                    refreshFailures.incrementAndGet();
+                    if (ex instanceof MoviesInfoClientException
+                            && Objects.equals(((MoviesInfoClientException) ex).getStatusCode(), HttpStatus.NOT_FOUND.value())) {
+                        log.info("Movie {} no longer exists, evicting it", id);
+                        cache.synchronous().asMap().remove(id, stale);
+                    } else {
+                        log.warn("Refreshing movie {} failed, serving the cached one: {}", id, ex.getMessage());
+                    }
+                })
+                .doFinally(signal -> stale.refreshing.set(false))
+                .subscribe(refreshed -> {
+                }, ex -> {
+                });
+    }
+
+    private void put(String id, CachedMovie cached) {
+        if (!cached.movie.isDegraded()) {
+            cache.put(id, CompletableFuture.completedFuture(cached));
+        }
+    }
+
+    private static CachedMovie completed(CompletableFuture<CachedMovie> cachedMovie) {
+        return cachedMovie.isDone() && !cachedMovie.isCompletedExceptionally() ? cachedMovie.join() : null;
+    }
+
+    private boolean isStale(CachedMovie cached) {
+        return ticker.read() - cached.loadedAt >= softTtlNanos;
+    }
+
+    static class CachedMovie {
+
+        private final Movie movie;
+        private final long loadedAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        CachedMovie(Movie movie, long loadedAt) {
+            this.movie = movie;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.client.ReviewsRestClient;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.ReviewsClientException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Follows the change streams of the movie info and the review service and patches or evicts the cached movies
+ * they touch, so that the cache TTLs only bound how long a missed change can be served. Only the changes published
+ * once a stream is connected are followed, not the ones the services retain. The streams are reconnected with
+ * backoff whenever they end or fail, and since changes may have been missed meanwhile the whole cache is
+ * invalidated once a stream is back. A stream the service rejects is not retried, the error is logged.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MovieCacheInvalidator {
+
+    static final String MOVIE_INFOS = "movieinfos";
+    static final String REVIEWS = "reviews";
+
+    @Value("${movies.cache.invalidation.enabled:true}")
+    private boolean enabled;
+    @Value("${movies.cache.invalidation.firstBackoff:PT1S}")
+    private Duration firstBackoff;
+    @Value("${movies.cache.invalidation.maxBackoff:PT30S}")
+    private Duration maxBackoff;
+    private final MovieCache movieCache;
+    private final MoviesInfoRestClient moviesInfoRestClient;
+    private final ReviewsRestClient reviewsRestClient;
+    private final MeterRegistry meterRegistry;
+    private Disposable.Composite subscriptions;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    public synchronized void start() {
+        if (subscriptions != null) {
+            return;
+        }
+        subscriptions = Disposables.composite(
+                follow(MOVIE_INFOS, moviesInfoRestClient::retrieveMovieInfoEvents, this::onMovieInfoEvent),
+                follow(REVIEWS, reviewsRestClient::retrieveReviewEvents, this::onReviewEvent));
+        log.info("Following the movie info and review changes to keep the movie cache fresh");
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (subscriptions != null) {
+            subscriptions.dispose();
+            subscriptions = null;
+        }
+    }
+
+    void onMovieInfoEvent(ServerSentEvent<MovieInfo> event) {
+        MovieInfo movieInfo = event.data();
+        if (movieInfo == null || movieInfo.getMovieInfoId() == null) {
+            return;
+        }
+        String id = movieInfo.getMovieInfoId();
+        switch (typeOf(event)) {
+            case "updated":
+                movieCache.update(id, movie -> new Movie(movieInfo, movie.getReviewList(), movie.isDegraded()));
+                break;
+            case "deleted":
+                movieCache.invalidate(id);
+                break;
+            default:
+                // a new movie info is not cached yet
+        }
+    }
+
+    void onReviewEvent(ServerSentEvent<Review> event) {
+        Review review = event.data();
+        if (review == null || review.getMovieInfoId() == null) {
+            return;
+        }
+        String id = String.valueOf(review.getMovieInfoId());
+        if ("deleted".equals(typeOf(event))) {
+            movieCache.update(id, movie -> withReviews(movie, removeReview(movie.getReviewList(), review)));
+        } else {
+            movieCache.update(id, movie -> withReviews(movie, putReview(movie.getReviewList(), review)));
+        }
+    }
+
+    private <T> Disposable follow(String stream, Supplier<Flux<ServerSentEvent<T>>> events,
+                                  Consumer<ServerSentEvent<T>> handler) {
+        Timer lag = Timer.builder("movies.cache.invalidation.lag")
+                .description("Time from publishing a change upstream to applying it to the movie cache")
+                .tag("stream", stream)
+                .register(meterRegistry);
+        AtomicBoolean followed = new AtomicBoolean();
+        return Flux.defer(() -> {
+                    AtomicBoolean connected = new AtomicBoolean();
+                    return events.get()
+                            .doOnNext(event -> {
+                                // the first event or heartbeat of a connection, changes missed before it can't be told apart
+                                if (!connected.getAndSet(true) && followed.getAndSet(true)) {
+                                    movieCache.invalidateAll();
+                                    log.warn("Reconnected to the {} change stream, invalidated the movie cache", stream);
+                                }
+                            });
+                })
+                // heartbeats only carry a comment
+                .filter(event -> event.data() != null)
+                .doOnNext(event -> {
+                    handler.accept(event);
+                    meterRegistry.counter("movies.cache.invalidation.events", "stream", stream, "type", typeOf(event))
+                            .increment();
+                    recordLag(lag, event);
+                })
+                .concatWith(Mono.error(() -> new IllegalStateException("The " + stream + " change stream was closed")))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, firstBackoff)
+                        .maxBackoff(maxBackoff)
+                        .transientErrors(true)
+                        // a rejected request is rejected again however often it's retried
+                        .filter(ex -> !(ex instanceof MoviesInfoClientException || ex instanceof ReviewsClientException))
+                        .doBeforeRetry(signal -> {
+                            meterRegistry.counter("movies.cache.invalidation.reconnects", "stream", stream).increment();
+                            log.warn("Lost the {} change stream, reconnecting: {}", stream, signal.failure().getMessage());
+                        }))
+                .subscribe(event -> {
+                }, ex -> log.error("Stopped following the {} change stream, its changes only reach the movie cache "
+                        + "through the cache TTLs: {}", stream, ex.getMessage()));
+    }
+
+    private static String typeOf(ServerSentEvent<?> event) {
+        return event.event() != null ? event.event() : "created";
+    }
+
+    private static void recordLag(Timer lag, ServerSentEvent<?> event) {
+        if (event.comment() == null) {
+            return;
+        }
+        try {
+            Duration elapsed = Duration.between(Instant.parse(event.comment().trim()), Instant.now());
+            if (!elapsed.isNegative()) {
+                lag.record(elapsed);
+            }
+        } catch (DateTimeParseException ex) {
+            // not a publishing timestamp
+        }
+    }
+
+    private static Movie withReviews(Movie movie, List<Review> reviews) {
+        return new Movie(movie.getMovieInfo(), reviews, movie.isDegraded());
+    }
+
+    private static List<Review> putReview(List<Review> reviews, Review review) {
+        List<Review> updated = new ArrayList<>(reviews != null ? reviews : List.of());
+        for (int i = 0; i < updated.size(); i++) {
+            if (Objects.equals(updated.get(i).getReviewId(), review.getReviewId())) {
+                updated.set(i, review);
+                return updated;
+            }
+        }
+        updated.add(review);
+        return updated;
+    }
+
+    private static List<Review> removeReview(List<Review> reviews, Review review) {
+        List<Review> updated = new ArrayList<>(reviews != null ? reviews : List.of());
+        updated.removeIf(existing -> Objects.equals(existing.getReviewId(), review.getReviewId()));
+        return updated;
+    }
+}
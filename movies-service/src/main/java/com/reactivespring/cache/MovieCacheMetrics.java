@@ -0,0 +1,33 @@
+package com.reactivespring.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class MovieCacheMetrics implements MeterBinder {
+
+    private final MovieCache movieCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics(movieCache.nativeCache().synchronous(), "movieById", List.of())
+                .bindTo(registry);
+        Gauge.builder("movies.cache.hit.ratio", movieCache, cache -> cache.stats().hitRate())
+                .description("Share of the movie lookups served from the cache, stale ones included")
+                .register(registry);
+        FunctionCounter.builder("movies.cache.stale.hits", movieCache, MovieCache::staleHits)
+                .description("Lookups served a movie past its soft TTL")
+                .register(registry);
+        FunctionCounter.builder("movies.cache.refresh.failures", movieCache, MovieCache::refreshFailures)
+                .description("Background refreshes of stale movies that failed")
+                .register(registry);
+    }
+}
@@ -1,23 +1,37 @@
 package com.reactivespring.client;
 
+import com.reactivespring.common.util.SignalTracer;
+import com.reactivespring.config.HttpClientProperties;
+import com.reactivespring.config.RetryProperties;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.util.Bulkhead;
+import com.reactivespring.util.CircuitBreaker;
 import com.reactivespring.util.RetryUtil;
+import com.reactivespring.util.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
 import reactor.util.retry.Retry;
 import reactor.util.retry.RetryBackoffSpec;
 
 import java.time.Duration;
+import java.util.Collection;
 
 @Component
 @Slf4j
@@ -26,10 +40,30 @@ public class MoviesInfoRestClient {
 
     @Value("${restClient.moviesInfoUrl}")
     private String moviesInfosUrl;
+    @Qualifier("moviesInfoWebClient")
     private final WebClient webClient;
+    private final HttpClientProperties httpClientProperties;
+    private final RetryProperties retryProperties;
+    @Qualifier("movieInfoRetry")
+    private final Retry movieInfoRetry;
+    @Qualifier("movieInfoStreamRetry")
+    private final Retry movieInfoStreamRetry;
+    @Qualifier("moviesInfoCircuitBreaker")
+    private final CircuitBreaker circuitBreaker;
+    @Qualifier("moviesInfoBulkhead")
+    private final Bulkhead bulkhead;
+    @Qualifier("moviesInfoSingleFlight")
+    private final SingleFlight<String, MovieInfo> singleFlight;
+    private final SignalTracer signalTracer;
 
+    /**
+     * Concurrent calls for the same movie share one request.
+     */
     public Mono<MovieInfo> retrieveMoveInfo(String movieId) {
+        return singleFlight.execute(movieId, () -> fetchMovieInfo(movieId));
+    }
 
+    private Mono<MovieInfo> fetchMovieInfo(String movieId) {
         String url = moviesInfosUrl.concat("/{id}");
         return webClient
                 .get()
@@ -53,9 +87,44 @@ public class MoviesInfoRestClient {
                                     "Server Exception in MoviesInfoService: " + responseMessage)));
                 })
                 .bodyToMono(MovieInfo.class)
+                .transform(attempt -> RetryUtil.attemptTimeout(attempt, retryProperties.getMovieInfo().getAttemptTimeout()))
+                .transform(circuitBreaker::protect)
+                .transform(bulkhead::protect)
 //                .retry(3)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .retryWhen(movieInfoRetry)
+                .transform(movieInfo -> signalTracer.trace("moviesInfoClient.retrieveMovieInfo", movieInfo));
+    }
+
+    /**
+     * Retrieves the movie infos of all ids with one request, ids without a movie info are left out.
+     */
+    public Flux<MovieInfo> retrieveMovieInfos(Collection<String> movieIds) {
+        String uri = UriComponentsBuilder.fromHttpUrl(moviesInfosUrl)
+                .queryParam("ids", String.join(",", movieIds))
+                .buildAndExpand()
+                .toUriString();
+        return webClient
+                .get()
+                .uri(uri)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .defaultIfEmpty(clientResponse.statusCode().getReasonPhrase())
+                            .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(
+                                    responseMessage, clientResponse.statusCode().value())));
+                })
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException(
+                                    "Server Exception in MoviesInfoService: " + responseMessage)));
+                })
+                .bodyToFlux(MovieInfo.class)
+                .transform(attempt -> RetryUtil.attemptTimeout(attempt, retryProperties.getMovieInfo().getAttemptTimeout()))
+                .transform(circuitBreaker::protect)
+                .transform(bulkhead::protect)
+                .retryWhen(movieInfoRetry);
     }
 
     public Flux<MovieInfo> retrieveMoveInfoStream() {
@@ -63,6 +132,9 @@ public class MoviesInfoRestClient {
         return webClient
                 .get()
                 .uri(url)
+                // the stream can be quiet for a long time, don't apply the timeout of regular responses
+                .httpRequest(request -> request.<HttpClientRequest>getNativeRequest()
+                        .responseTimeout(httpClientProperties.getMoviesInfo().getStreamResponseTimeout()))
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is: {}", clientResponse.statusCode().value());
@@ -78,8 +150,63 @@ public class MoviesInfoRestClient {
                                     "Server Exception in MoviesInfoService: " + responseMessage)));
                 })
                 .bodyToFlux(MovieInfo.class)
+                .transform(attempt -> RetryUtil.firstElementTimeout(attempt, retryProperties.getMovieInfoStream().getAttemptTimeout()))
+                // a stream holds on to its call for as long as it's open, it's not limited by the bulkhead
+                .transform(circuitBreaker::protectStream)
 //                .retry(3)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .retryWhen(movieInfoStreamRetry)
+                .transform(movieInfos -> signalTracer.trace("moviesInfoClient.retrieveMovieInfoStream", movieInfos));
+    }
+
+    /**
+     * Follows the changes of the movie infos published from now on, without the ones the movie info service
+     * retains. Not retried, the caller decides how to reconnect.
+     */
+    public Flux<ServerSentEvent<MovieInfo>> retrieveMovieInfoEvents() {
+        return movieInfoEvents(moviesInfosUrl.concat("/stream?replay=false"), null)
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<MovieInfo>>() {
+                });
+    }
+
+    /**
+     * Follows the changes of the movie infos as server-sent events, named after their type except for created
+     * movie infos, starting after the event with {@code lastEventId} when given. Not retried, the caller decides
+     * how to reconnect.
+     */
+    public Flux<ServerSentEvent<MovieInfo>> retrieveMovieInfoEvents(String lastEventId) {
+        return movieInfoEvents(moviesInfosUrl.concat("/stream"), lastEventId)
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<MovieInfo>>() {
+                });
+    }
+
+    /**
+     * The same server-sent events as {@link #retrieveMovieInfoEvents(String)} as they are read, not decoded.
+     * The caller has to release the buffers.
+     */
+    public Flux<DataBuffer> retrieveMovieInfoEventBuffers(String lastEventId) {
+        return movieInfoEvents(moviesInfosUrl.concat("/stream"), lastEventId)
+                .bodyToFlux(DataBuffer.class);
+    }
+
+    private WebClient.ResponseSpec movieInfoEvents(String url, String lastEventId) {
+        return webClient
+                .get()
+                .uri(url)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .headers(headers -> {
+                    if (lastEventId != null) {
+                        headers.set("Last-Event-ID", lastEventId);
+                    }
+                })
+                .httpRequest(request -> request.<HttpClientRequest>getNativeRequest()
+                        .responseTimeout(httpClientProperties.getMoviesInfo().getStreamResponseTimeout()))
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> clientResponse.bodyToMono(String.class)
+                        .defaultIfEmpty(clientResponse.statusCode().getReasonPhrase())
+                        .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(
+                                responseMessage, clientResponse.statusCode().value()))))
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> clientResponse.bodyToMono(String.class)
+                        .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException(
+                                "Server Exception in MoviesInfoService: " + responseMessage))));
     }
 }
@@ -1,21 +1,40 @@
 package com.reactivespring.client;
 
 
+import com.reactivespring.common.util.SignalTracer;
+import com.reactivespring.config.HttpClientProperties;
+import com.reactivespring.config.RetryProperties;
 import com.reactivespring.domain.Review;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
 import com.reactivespring.exception.ReviewsClientException;
 import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.util.BatchLoader;
+import com.reactivespring.util.Bulkhead;
+import com.reactivespring.util.CircuitBreaker;
 import com.reactivespring.util.RetryUtil;
+import com.reactivespring.util.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.retry.Retry;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -24,9 +43,48 @@ public class ReviewsRestClient {
 
     @Value("${restClient.reviewsUrl}")
     private String reviewUrl;
+    @Value("${restClient.batch.reviews.enabled:true}")
+    private boolean batchLookups;
+    @Qualifier("reviewsWebClient")
     private final WebClient webClient;
+    private final HttpClientProperties httpClientProperties;
+    private final RetryProperties retryProperties;
+    @Qualifier("reviewsRetry")
+    private final Retry reviewsRetry;
+    @Qualifier("reviewsCircuitBreaker")
+    private final CircuitBreaker circuitBreaker;
+    @Qualifier("reviewsBulkhead")
+    private final Bulkhead bulkhead;
+    @Qualifier("reviewsSingleFlight")
+    private final SingleFlight<String, List<Review>> singleFlight;
+    @Qualifier("reviewsBatchLoader")
+    private final BatchLoader<String, List<Review>> batchLoader;
+    private final SignalTracer signalTracer;
 
+    /**
+     * Concurrent calls for the reviews of the same movie share one request, calls for different movies arriving
+     * together are collected into one request for all of them.
+     */
     public Flux<Review> retrieveReviews(String movieInfoId) {
+        return singleFlight.execute(movieInfoId, () -> loadReviews(movieInfoId))
+                .flatMapIterable(reviews -> reviews);
+    }
+
+    private Mono<List<Review>> loadReviews(String movieInfoId) {
+        // an id that isn't a number would fail the request of the whole batch
+        if (!batchLookups || !movieInfoId.chars().allMatch(Character::isDigit)) {
+            return fetchReviews(movieInfoId).collectList();
+        }
+        return batchLoader.load(movieInfoId, this::fetchReviewBatch)
+                .defaultIfEmpty(List.of());
+    }
+
+    private Mono<Map<String, List<Review>>> fetchReviewBatch(List<String> movieInfoIds) {
+        return retrieveReviews(movieInfoIds)
+                .collect(Collectors.groupingBy(review -> String.valueOf(review.getMovieInfoId())));
+    }
+
+    private Flux<Review> fetchReviews(String movieInfoId) {
         String uri = UriComponentsBuilder.fromHttpUrl(reviewUrl)
                 .queryParam("movieInfoId", movieInfoId)
                 .buildAndExpand()
@@ -38,7 +96,8 @@ public class ReviewsRestClient {
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is: {}", clientResponse.statusCode().value());
                     if (clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
-                        return Mono.empty();
+                        // no reviews for the movie, resumed with an empty flux below so the body is not decoded
+                        return clientResponse.createException();
                     }
                     return clientResponse.bodyToMono(String.class)
                             .flatMap(responseMessage -> Mono.error(new ReviewsClientException(
@@ -51,7 +110,65 @@ public class ReviewsRestClient {
                                     "Server Exception in ReviewsService: " + responseMessage)));
                 })
                 .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .onErrorResume(WebClientResponseException.NotFound.class, ex -> Flux.empty())
+                .transform(attempt -> RetryUtil.attemptTimeout(attempt, retryProperties.getReviews().getAttemptTimeout()))
+                .transform(circuitBreaker::protect)
+                .transform(bulkhead::protect)
+                .retryWhen(reviewsRetry)
+                .transform(reviews -> signalTracer.trace("reviewsClient.retrieveReviews", reviews));
+    }
+
+    /**
+     * Retrieves the reviews of all movies with one request.
+     */
+    public Flux<Review> retrieveReviews(Collection<String> movieInfoIds) {
+        String uri = UriComponentsBuilder.fromHttpUrl(reviewUrl)
+                .queryParam("movieInfoIds", String.join(",", movieInfoIds))
+                .buildAndExpand()
+                .toUriString();
+        return webClient
+                .get()
+                .uri(uri)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .defaultIfEmpty(clientResponse.statusCode().getReasonPhrase())
+                            .flatMap(responseMessage -> Mono.error(new ReviewsClientException(
+                                    responseMessage)));
+                })
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    log.info("Status code is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new ReviewsServerException(
+                                    "Server Exception in ReviewsService: " + responseMessage)));
+                })
+                .bodyToFlux(Review.class)
+                .transform(attempt -> RetryUtil.attemptTimeout(attempt, retryProperties.getReviews().getAttemptTimeout()))
+                .transform(circuitBreaker::protect)
+                .transform(bulkhead::protect)
+                .retryWhen(reviewsRetry);
+    }
+
+    /**
+     * Follows the changes of all reviews published from now on as server-sent events, named after their type
+     * except for created reviews. Not retried, the caller decides how to reconnect.
+     */
+    public Flux<ServerSentEvent<Review>> retrieveReviewEvents() {
+        return webClient
+                .get()
+                .uri(reviewUrl.concat("/stream?replay=false"))
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .httpRequest(request -> request.<HttpClientRequest>getNativeRequest()
+                        .responseTimeout(httpClientProperties.getReviews().getStreamResponseTimeout()))
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> clientResponse.bodyToMono(String.class)
+                        .defaultIfEmpty(clientResponse.statusCode().getReasonPhrase())
+                        .flatMap(responseMessage -> Mono.error(new ReviewsClientException(responseMessage))))
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> clientResponse.bodyToMono(String.class)
+                        .flatMap(responseMessage -> Mono.error(new ReviewsServerException(
+                                "Server Exception in ReviewsService: " + responseMessage))))
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<Review>>() {
+                });
     }
 }
@@ -0,0 +1,84 @@
+package com.reactivespring.config;
+
+import com.reactivespring.util.Bulkhead;
+import com.reactivespring.util.CircuitBreaker;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@code /actuator/circuitbreakers} shows the circuit breakers and bulkheads of the downstream services,
+ * {@code POST /actuator/circuitbreakers/{name}} with {@code {"state": "OPEN"}} forces a breaker into a state.
+ */
+@Component
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakerEndpoint {
+
+    private final Map<String, CircuitBreaker> circuitBreakers;
+    private final Map<String, Bulkhead> bulkheads;
+
+    public CircuitBreakerEndpoint(List<CircuitBreaker> circuitBreakers, List<Bulkhead> bulkheads) {
+        this.circuitBreakers = circuitBreakers.stream()
+                .collect(Collectors.toMap(CircuitBreaker::getName, Function.identity(), (a, b) -> a, LinkedHashMap::new));
+        this.bulkheads = bulkheads.stream()
+                .collect(Collectors.toMap(Bulkhead::getName, Function.identity()));
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> circuitBreakers() {
+        Map<String, Map<String, Object>> details = new LinkedHashMap<>();
+        circuitBreakers.keySet().forEach(name -> details.put(name, circuitBreaker(name)));
+        return details;
+    }
+
+    @ReadOperation
+    public Map<String, Object> circuitBreaker(@Selector String name) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(name);
+        if (circuitBreaker == null) {
+            return null;
+        }
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("state", circuitBreaker.getState());
+        details.put("bufferedCalls", circuitBreaker.getBufferedCalls());
+        details.put("failureRate", circuitBreaker.getFailureRate());
+        details.put("slowCallRate", circuitBreaker.getSlowCallRate());
+        Optional.ofNullable(bulkheads.get(name))
+                .ifPresent(bulkhead -> details.put("availableConcurrentCalls", bulkhead.getAvailableConcurrentCalls()));
+        return details;
+    }
+
+    @WriteOperation
+    public Map<String, Object> transition(@Selector String name, @Nullable String state) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(name);
+        if (circuitBreaker == null) {
+            return null;
+        }
+        circuitBreaker.transitionTo(parseState(state));
+        return circuitBreaker(name);
+    }
+
+    private CircuitBreaker.State parseState(String state) {
+        if (state != null) {
+            for (CircuitBreaker.State candidate : CircuitBreaker.State.values()) {
+                if (candidate.name().equalsIgnoreCase(state.trim())) {
+                    return candidate;
+                }
+            }
+        }
+        String expected = Arrays.toString(CircuitBreaker.State.values());
+        throw new InvalidEndpointRequestException("state must be one of " + expected + ", was " + state,
+                "state must be one of " + expected);
+    }
+}
@@ -0,0 +1,58 @@
+package com.reactivespring.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Opens {@code prewarmConnections} connections to each downstream service once the application is ready, so the
+ * first requests don't pay for the connection setup. Failures are only logged, the service may not be up yet.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConnectionPoolPrewarmer {
+
+    private final HttpClientProperties httpClientProperties;
+    @Qualifier("moviesInfoWebClient")
+    private final WebClient moviesInfoWebClient;
+    @Qualifier("reviewsWebClient")
+    private final WebClient reviewsWebClient;
+
+    @Value("${restClient.moviesInfoUrl}")
+    private String moviesInfoUrl;
+    @Value("${restClient.reviewsUrl}")
+    private String reviewsUrl;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        prewarm("moviesInfo", moviesInfoWebClient, moviesInfoUrl, httpClientProperties.getMoviesInfo().getPrewarmConnections());
+        prewarm("reviews", reviewsWebClient, reviewsUrl, httpClientProperties.getReviews().getPrewarmConnections());
+    }
+
+    private void prewarm(String name, WebClient webClient, String url, int connections) {
+        if (connections <= 0) {
+            return;
+        }
+        // OPTIONS is answered without running a query, any response means the connection is open
+        Flux.range(0, connections)
+                .flatMap(i -> webClient.options()
+                        .uri(url)
+                        .exchangeToMono(ClientResponse::releaseBody)
+                        .thenReturn(true)
+                        .onErrorResume(ex -> {
+                            log.info("Prewarm request to {} failed: {}", name, ex.getMessage());
+                            return Mono.empty();
+                        }))
+                .count()
+                .subscribe(opened -> log.info("Prewarmed {} of {} connections to {}", opened, connections, name));
+    }
+}
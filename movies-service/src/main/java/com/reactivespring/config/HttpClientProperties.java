@@ -0,0 +1,34 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Connection pool and timeouts of the WebClient of each downstream service, bound from {@code restClient.http}.
+ */
+@Data
+@ConfigurationProperties(prefix = "rest-client.http")
+public class HttpClientProperties {
+
+    private Pool moviesInfo = new Pool();
+    private Pool reviews = new Pool();
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 100;
+        private int pendingAcquireMaxCount = 200;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        // longest silence between two reads of a response, streaming requests use streamResponseTimeout
+        private Duration responseTimeout = Duration.ofSeconds(5);
+        private Duration streamResponseTimeout = Duration.ofMinutes(10);
+        private Duration writeTimeout = Duration.ofSeconds(5);
+        private boolean h2c = false;
+        private int prewarmConnections = 0;
+    }
+}
@@ -0,0 +1,64 @@
+package com.reactivespring.config;
+
+import com.reactivespring.util.BatchLoader;
+import com.reactivespring.util.Bulkhead;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.util.CircuitBreaker;
+import com.reactivespring.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * One circuit breaker, one bulkhead and one single flight per downstream service, shared by all calls to it, and
+ * the batch loader collecting the review lookups.
+ */
+@Configuration
+@EnableConfigurationProperties(ResilienceProperties.class)
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreaker moviesInfoCircuitBreaker(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        return new CircuitBreaker("moviesInfo", properties.getMoviesInfo().getCircuitBreaker(), meterRegistry);
+    }
+
+    @Bean
+    public CircuitBreaker reviewsCircuitBreaker(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        return new CircuitBreaker("reviews", properties.getReviews().getCircuitBreaker(), meterRegistry);
+    }
+
+    @Bean
+    public Bulkhead moviesInfoBulkhead(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        return new Bulkhead("moviesInfo", properties.getMoviesInfo().getBulkhead(), meterRegistry);
+    }
+
+    @Bean
+    public Bulkhead reviewsBulkhead(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        return new Bulkhead("reviews", properties.getReviews().getBulkhead(), meterRegistry);
+    }
+
+    @Bean
+    public SingleFlight<String, MovieInfo> moviesInfoSingleFlight(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("moviesInfo", meterRegistry);
+    }
+
+    @Bean
+    public SingleFlight<String, List<Review>> reviewsSingleFlight(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("reviews", meterRegistry);
+    }
+
+    @Bean
+    public BatchLoader<String, List<Review>> reviewsBatchLoader(
+            @Value("${restClient.batch.reviews.maxBatchSize:64}") int maxBatchSize,
+            @Value("${restClient.batch.reviews.window:PT0.002S}") Duration window,
+            @Value("${restClient.batch.reviews.maxWait:PT0.01S}") Duration maxWait,
+            MeterRegistry meterRegistry) {
+        return new BatchLoader<>("reviews", maxBatchSize, window, maxWait, meterRegistry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.reactivespring.config;
+
+import com.reactivespring.util.RetryBudget;
+import com.reactivespring.util.RetryUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.util.retry.Retry;
+
+/**
+ * One retry budget per downstream service, shared by all calls to it, and one retry policy per client method.
+ */
+@Configuration
+@EnableConfigurationProperties(RetryProperties.class)
+public class RetryConfig {
+
+    @Bean
+    public RetryBudget moviesInfoRetryBudget(RetryProperties properties, MeterRegistry meterRegistry) {
+        return retryBudget("moviesInfo", properties.getMoviesInfoBudget(), meterRegistry);
+    }
+
+    @Bean
+    public RetryBudget reviewsRetryBudget(RetryProperties properties, MeterRegistry meterRegistry) {
+        return retryBudget("reviews", properties.getReviewsBudget(), meterRegistry);
+    }
+
+    @Bean
+    public Retry movieInfoRetry(RetryProperties properties, MeterRegistry meterRegistry,
+                                @Qualifier("moviesInfoRetryBudget") RetryBudget retryBudget) {
+        return RetryUtil.retrySpec("movieInfo", properties.getMovieInfo(), retryBudget, meterRegistry);
+    }
+
+    @Bean
+    public Retry movieInfoStreamRetry(RetryProperties properties, MeterRegistry meterRegistry,
+                                      @Qualifier("moviesInfoRetryBudget") RetryBudget retryBudget) {
+        return RetryUtil.retrySpec("movieInfoStream", properties.getMovieInfoStream(), retryBudget, meterRegistry);
+    }
+
+    @Bean
+    public Retry reviewsRetry(RetryProperties properties, MeterRegistry meterRegistry,
+                              @Qualifier("reviewsRetryBudget") RetryBudget retryBudget) {
+        return RetryUtil.retrySpec("reviews", properties.getReviews(), retryBudget, meterRegistry);
+    }
+
+    private RetryBudget retryBudget(String name, RetryProperties.Budget budget, MeterRegistry meterRegistry) {
+        RetryBudget retryBudget = new RetryBudget(budget);
+        Gauge.builder("restclient.retry.budget.tokens", retryBudget, RetryBudget::tokens)
+                .description("Retries the budget currently allows")
+                .tag("budget", name)
+                .register(meterRegistry);
+        return retryBudget;
+    }
+}
@@ -0,0 +1,40 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Retry policies of the downstream calls and the retry budgets of the downstream services, bound from
+ * {@code restClient.retry}.
+ */
+@Data
+@ConfigurationProperties(prefix = "rest-client.retry")
+public class RetryProperties {
+
+    private Policy movieInfo = new Policy();
+    private Policy movieInfoStream = new Policy();
+    private Policy reviews = new Policy();
+
+    private Budget moviesInfoBudget = new Budget();
+    private Budget reviewsBudget = new Budget();
+
+    @Data
+    public static class Policy {
+        private int maxRetries = 3;
+        private Duration firstBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        // no timeout when null, a stream attempt only times out until its first element
+        private Duration attemptTimeout;
+    }
+
+    @Data
+    public static class Budget {
+        // share of the requests that may be retried
+        private double retryRatio = 0.2;
+        // retries always allowed regardless of the traffic, so rarely used clients can still retry
+        private double minRetriesPerSecond = 5;
+        private double maxTokens = 20;
+    }
+}
@@ -1,14 +1,103 @@
 package com.reactivespring.config;
 
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.metrics.web.reactive.client.WebClientExchangeTags;
+import org.springframework.boot.actuate.metrics.web.reactive.client.WebClientExchangeTagsProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.concurrent.TimeUnit;
 
 @Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
 public class WebClientConfig {
 
+    private static final String DOWNSTREAM_ATTRIBUTE = WebClientConfig.class.getName() + ".downstream";
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider moviesInfoConnectionProvider(HttpClientProperties properties) {
+        return connectionProvider("moviesInfo", properties.getMoviesInfo());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider reviewsConnectionProvider(HttpClientProperties properties) {
+        return connectionProvider("reviews", properties.getReviews());
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient moviesInfoWebClient(WebClient.Builder builder, HttpClientProperties properties,
+                                         @Qualifier("moviesInfoConnectionProvider") ConnectionProvider connectionProvider) {
+        return webClient(builder, "moviesInfo", connectionProvider, properties.getMoviesInfo());
+    }
+
+    @Bean
+    public WebClient reviewsWebClient(WebClient.Builder builder, HttpClientProperties properties,
+                                      @Qualifier("reviewsConnectionProvider") ConnectionProvider connectionProvider) {
+        return webClient(builder, "reviews", connectionProvider, properties.getReviews());
+    }
+
+    /**
+     * Tags the {@code http.client.requests} timers with the downstream service, both services can run on the same
+     * host, and leaves the query out of the uri tag, it carries ids.
+     */
+    @Bean
+    public WebClientExchangeTagsProvider webClientExchangeTagsProvider() {
+        return (request, response, throwable) -> Tags.of(
+                WebClientExchangeTags.method(request),
+                uri(request),
+                WebClientExchangeTags.clientName(request),
+                WebClientExchangeTags.status(response, throwable),
+                WebClientExchangeTags.outcome(response),
+                Tag.of("downstream", (String) request.attribute(DOWNSTREAM_ATTRIBUTE).orElse("none")));
+    }
+
+    private ConnectionProvider connectionProvider(String name, HttpClientProperties.Pool pool) {
+        // metrics registers the active, idle and pending gauges of the pool with Micrometer
+        return ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
+
+    private WebClient webClient(WebClient.Builder builder, String downstream, ConnectionProvider connectionProvider,
+                                HttpClientProperties.Pool pool) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+                .responseTimeout(pool.getResponseTimeout())
+                .doOnConnected(connection -> connection.addHandlerLast(
+                        new WriteTimeoutHandler(pool.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)));
+        if (pool.isH2c()) {
+            // upgrades to HTTP/2 over cleartext when the server supports it
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        // loads the event loops, the native transport and the resolver now rather than on the first request
+        httpClient.warmup().block();
+
+        return builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultRequest(request -> request.attribute(DOWNSTREAM_ATTRIBUTE, downstream))
+                .build();
+    }
+
+    private static Tag uri(ClientRequest request) {
+        Tag uri = WebClientExchangeTags.uri(request);
+        int query = uri.getValue().indexOf('?');
+        return query < 0 ? uri : Tag.of(uri.getKey(), uri.getValue().substring(0, query));
     }
 }
@@ -1,22 +1,45 @@
 package com.reactivespring.controller;
 
 
+import com.reactivespring.cache.MovieCache;
 import com.reactivespring.client.MoviesInfoRestClient;
 import com.reactivespring.client.ReviewsRestClient;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieResult;
 import com.reactivespring.domain.Review;
+import com.reactivespring.exception.BulkheadFullException;
+import com.reactivespring.exception.CallNotPermittedException;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.stream.MovieInfoStream;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+@Slf4j
 @RestController
 @RequestMapping("/v1/movies")
 @RequiredArgsConstructor
@@ -24,20 +47,110 @@ public class MoviesController {
 
     private final MoviesInfoRestClient moviesInfoRestClient;
     private final ReviewsRestClient reviewsRestClient;
+    private final MovieCache movieCache;
+    private final MovieInfoStream movieInfoStream;
 
+    @Value("${restClient.batch.maxIds:500}")
+    private int maxIds;
+    @Value("${restClient.batch.maxIdsPerRequest:50}")
+    private int maxIdsPerRequest;
+    @Value("${restClient.batch.concurrency:4}")
+    private int batchConcurrency;
+    @Value("${movies.assembly.reviewsDeadline:PT2S}")
+    private Duration reviewsDeadline;
+
+    /**
+     * Serves the movie from the cache, {@code Cache-Control: no-cache} assembles it again and replaces the
+     * cached one.
+     */
     @GetMapping("/{id}")
-    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId) {
+    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId,
+                                         @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl) {
+        if (cacheControl != null && cacheControl.contains(CacheControl.noCache().getHeaderValue())) {
+            return movieCache.reload(movieId, this::assembleMovie);
+        }
+        return movieCache.get(movieId, this::assembleMovie);
+    }
 
-        return moviesInfoRestClient.retrieveMoveInfo(movieId)
-                .flatMap(movieInfo -> {
-                    Mono<List<Review>> reviewsListMono = reviewsRestClient.retrieveReviews(movieId).collectList();
-                    return reviewsListMono.map(reviews -> new Movie(movieInfo, reviews));
-                });
+    /**
+     * Streams the movies of the given ids as they are assembled. The ids are fetched in batches of
+     * {@code restClient.batch.maxIdsPerRequest}, with one movie info and one reviews request per batch.
+     */
+    @GetMapping(params = "ids", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieResult> retrieveMoviesByIds(@RequestParam("ids") List<String> movieIds) {
+        Set<String> distinctIds = new LinkedHashSet<>(movieIds);
+        if (distinctIds.size() > maxIds) {
+            return Flux.error(new ServerWebInputException("at most " + maxIds + " ids can be requested at once"));
+        }
+
+        return Flux.fromIterable(distinctIds)
+                .buffer(maxIdsPerRequest)
+                .flatMap(this::retrieveMovieBatch, batchConcurrency);
     }
 
+    /**
+     * All clients share one connection to the movie info stream, see {@link MovieInfoStream}.
+     */
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<MovieInfo> retrieveMovieInfos() {
 
-        return moviesInfoRestClient.retrieveMoveInfoStream();
+        return movieInfoStream.subscribe();
+    }
+
+    private Mono<Movie> assembleMovie(String movieId) {
+        // both calls only need the id, zip subscribes to them at once and cancels the other one when either fails
+        Mono<MovieInfo> movieInfoMono = moviesInfoRestClient.retrieveMoveInfo(movieId);
+        // when the review service is failing or saturated the movie is returned without its reviews right away,
+        // and whatever the breaker's state it doesn't wait for them longer than the deadline
+        Mono<Optional<List<Review>>> reviewsListMono = reviewsRestClient.retrieveReviews(movieId)
+                .collectList()
+                .map(Optional::of)
+                .onErrorResume(ex -> ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException,
+                        ex -> {
+                            log.warn("Returning movie {} without reviews: {}", movieId, ex.getMessage());
+                            return Mono.just(Optional.empty());
+                        })
+                .timeout(reviewsDeadline, Mono.fromSupplier(() -> {
+                    log.warn("Returning movie {} without reviews, they took longer than {}", movieId, reviewsDeadline);
+                    return Optional.empty();
+                }));
+        return Mono.zip(movieInfoMono, reviewsListMono, (movieInfo, reviewList) -> reviewList
+                .map(reviews -> new Movie(movieInfo, reviews))
+                .orElseGet(() -> new Movie(movieInfo, List.of(), true)));
+    }
+
+    private Flux<MovieResult> retrieveMovieBatch(List<String> movieIds) {
+        // review ids are numbers, other ids can't have reviews
+        List<String> reviewedIds = movieIds.stream()
+                .filter(movieId -> movieId.chars().allMatch(Character::isDigit))
+                .collect(Collectors.toList());
+
+        Mono<Map<String, MovieInfo>> movieInfosMono = moviesInfoRestClient.retrieveMovieInfos(movieIds)
+                .collectMap(MovieInfo::getMovieInfoId);
+        Mono<Map<String, Collection<Review>>> reviewsMono = reviewedIds.isEmpty()
+                ? Mono.just(Map.of())
+                : reviewsRestClient.retrieveReviews(reviewedIds)
+                .collectMultimap(review -> String.valueOf(review.getMovieInfoId()));
+
+        return Mono.zip(movieInfosMono, reviewsMono)
+                .flatMapIterable(tuple -> movieIds.stream()
+                        .map(movieId -> {
+                            MovieInfo movieInfo = tuple.getT1().get(movieId);
+                            if (movieInfo == null) {
+                                return MovieResult.failed(movieId, HttpStatus.NOT_FOUND.value(),
+                                        "There is no movieInfo available for the passed id: " + movieId);
+                            }
+                            Collection<Review> reviews = tuple.getT2().getOrDefault(movieId, List.of());
+                            return MovieResult.found(movieId, new Movie(movieInfo, new ArrayList<>(reviews)));
+                        })
+                        .collect(Collectors.toList()))
+                .onErrorResume(ex -> {
+                    log.error("Batch of {} movies failed: {}", movieIds.size(), ex.getMessage());
+                    int status = ex instanceof MoviesInfoClientException
+                            ? ((MoviesInfoClientException) ex).getStatusCode()
+                            : HttpStatus.INTERNAL_SERVER_ERROR.value();
+                    return Flux.fromIterable(movieIds)
+                            .map(movieId -> MovieResult.failed(movieId, status, ex.getMessage()));
+                });
     }
 }
@@ -1,6 +1,7 @@
 package com.reactivespring.domain;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,4 +15,11 @@ public class Movie {
 
     private MovieInfo movieInfo;
     private List<Review> reviewList;
+    // the review list was left out because the review service is not accepting calls
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean degraded;
+
+    public Movie(MovieInfo movieInfo, List<Review> reviewList) {
+        this(movieInfo, reviewList, false);
+    }
 }
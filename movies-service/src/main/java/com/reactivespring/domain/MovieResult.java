@@ -0,0 +1,29 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one id of a batch request, either the assembled movie or the status and error of the failure.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieResult {
+
+    private String movieId;
+    private Movie movie;
+    private Integer status;
+    private String error;
+
+    public static MovieResult found(String movieId, Movie movie) {
+        return new MovieResult(movieId, movie, 200, null);
+    }
+
+    public static MovieResult failed(String movieId, int status, String error) {
+        return new MovieResult(movieId, null, status, error);
+    }
+}
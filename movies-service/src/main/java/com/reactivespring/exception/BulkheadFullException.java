@@ -0,0 +1,8 @@
+package com.reactivespring.exception;
+
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,31 @@
+package com.reactivespring.router;
+
+import com.reactivespring.stream.MovieInfoStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * With {@code movies.stream.passthrough} the movie info stream is forwarded as the NDJSON lines read from the
+ * movie info service instead of decoding and encoding every movie info. Router functions are mapped before
+ * the annotated controllers, so this route takes over {@code /v1/movies/stream} from the controller.
+ */
+@Configuration
+@ConditionalOnProperty(name = "movies.stream.passthrough", havingValue = "true")
+public class MovieInfoStreamRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> movieInfoStreamPassthroughRoute(MovieInfoStream movieInfoStream) {
+        return route()
+                .GET("/v1/movies/stream", request -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .body(movieInfoStream.subscribePassthrough(), DataBuffer.class))
+                .build();
+    }
+}
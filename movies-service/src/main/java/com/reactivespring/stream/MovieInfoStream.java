@@ -0,0 +1,181 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.Scannable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * The movie info stream shared by all local subscribers. The first subscriber opens one connection to the movie
+ * info service, later ones join it and are replayed the last {@code replaySize} movie infos, and the connection
+ * is closed once the last subscriber has been gone for {@code disconnectGracePeriod}. A lost connection is
+ * reopened with backoff and resumes after the last event received. Every subscriber reads through its own
+ * buffer of {@code subscriberBufferSize} movie infos, dropping the oldest when it falls behind, so a slow
+ * subscriber can't hold up the others. The subscribers of {@link #subscribePassthrough()} aren't shared, each
+ * opens its own connection so that its demand reaches the movie info service.
+ */
+@Slf4j
+@Component
+public class MovieInfoStream {
+
+    private final Flux<MovieInfo> decoded;
+    private final Function<String, Flux<DataBuffer>> eventBuffers;
+    private final int subscriberBufferSize;
+    private final Duration firstBackoff;
+    private final Duration maxBackoff;
+    // the buffer of every local subscriber
+    private final Set<Subscription> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Counter connections;
+    private final Counter reconnects;
+
+    @Autowired
+    public MovieInfoStream(MoviesInfoRestClient moviesInfoRestClient,
+                           MeterRegistry meterRegistry,
+                           @Value("${movies.stream.subscriberBufferSize:256}") int subscriberBufferSize,
+                           @Value("${movies.stream.replaySize:1000}") int replaySize,
+                           @Value("${movies.stream.disconnectGracePeriod:PT5S}") Duration disconnectGracePeriod,
+                           @Value("${movies.stream.firstBackoff:PT1S}") Duration firstBackoff,
+                           @Value("${movies.stream.maxBackoff:PT30S}") Duration maxBackoff) {
+        this(moviesInfoRestClient::retrieveMovieInfoEvents, moviesInfoRestClient::retrieveMovieInfoEventBuffers,
+                meterRegistry, subscriberBufferSize, replaySize, disconnectGracePeriod, firstBackoff, maxBackoff);
+    }
+
+    MovieInfoStream(Function<String, Flux<ServerSentEvent<MovieInfo>>> events,
+                    Function<String, Flux<DataBuffer>> eventBuffers, MeterRegistry meterRegistry,
+                    int subscriberBufferSize, int replaySize, Duration disconnectGracePeriod,
+                    Duration firstBackoff, Duration maxBackoff) {
+        if (subscriberBufferSize <= 0) {
+            throw new IllegalArgumentException("movies.stream.subscriberBufferSize must be positive");
+        }
+        this.eventBuffers = eventBuffers;
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.firstBackoff = firstBackoff;
+        this.maxBackoff = maxBackoff;
+        this.connections = Counter.builder("movies.stream.upstream.connections")
+                .description("Connections opened to the movie info stream, reconnects included")
+                .register(meterRegistry);
+        this.reconnects = Counter.builder("movies.stream.upstream.reconnects")
+                .description("Connections to the movie info stream reopened after they were lost")
+                .register(meterRegistry);
+        Gauge.builder("movies.stream.subscribers", subscribers, Set::size)
+                .description("Local subscribers of the movie info stream")
+                .register(meterRegistry);
+        Gauge.builder("movies.stream.buffered", this, MovieInfoStream::bufferedCount)
+                .description("Movie infos waiting in the buffers of the local subscribers")
+                .register(meterRegistry);
+        FunctionCounter.builder("movies.stream.dropped", droppedCount, AtomicLong::get)
+                .description("Movie infos dropped because a subscriber fell behind")
+                .register(meterRegistry);
+        this.decoded = connect(events, ServerSentEvent::id)
+                .filter(event -> !"deleted".equals(event.event()) && event.data() != null)
+                .map(ServerSentEvent::data)
+                .replay(replaySize)
+                .refCount(1, disconnectGracePeriod);
+    }
+
+    public Flux<MovieInfo> subscribe() {
+        return perSubscriber(decoded);
+    }
+
+    /**
+     * The movie infos as NDJSON lines, forwarded as read from the movie info service without being decoded and
+     * encoded again. The buffers are slices of the ones read and are released once written. Reads the stream
+     * only as fast as the subscriber requests, nothing is dropped.
+     */
+    public Flux<DataBuffer> subscribePassthrough() {
+        return Flux.defer(() -> {
+            AtomicReference<Subscription> subscriber = new AtomicReference<>();
+            return connect(lastEventId -> Flux.using(ServerSentEventFramer::new,
+                            framer -> eventBuffers.apply(lastEventId).concatMapIterable(framer::frame),
+                            ServerSentEventFramer::release),
+                    ServerSentEventFramer.RawEvent::id)
+                    .filter(event -> !"deleted".equals(event.event()))
+                    .map(ServerSentEventFramer.RawEvent::line)
+                    .doOnDiscard(ServerSentEventFramer.RawEvent.class, ServerSentEventFramer.RawEvent::release)
+                    .doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release)
+                    .doOnSubscribe(subscription -> {
+                        subscriber.set(subscription);
+                        subscribers.add(subscription);
+                    })
+                    .doFinally(signalType -> subscribers.remove(subscriber.get()));
+        });
+    }
+
+    // reopens a lost connection, resuming after the last event received
+    private <T> Flux<T> connect(Function<String, Flux<T>> events, Function<T, String> idOf) {
+        return Flux.defer(() -> {
+            // a fresh connection starts over, its reconnects resume after the last event received
+            AtomicReference<String> lastEventId = new AtomicReference<>();
+            return Flux.defer(() -> {
+                        connections.increment();
+                        return events.apply(lastEventId.get());
+                    })
+                    .doOnNext(event -> {
+                        if (idOf.apply(event) != null) {
+                            lastEventId.set(idOf.apply(event));
+                        }
+                    })
+                    .concatWith(Mono.error(() -> new IllegalStateException("The movie info stream was closed")))
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, firstBackoff)
+                            .maxBackoff(maxBackoff)
+                            .transientErrors(true)
+                            .doBeforeRetry(signal -> {
+                                reconnects.increment();
+                                log.warn("Lost the movie info stream, reconnecting after event {}: {}",
+                                        lastEventId.get(), signal.failure().getMessage());
+                            }));
+        });
+    }
+
+    private <T> Flux<T> perSubscriber(Flux<T> shared) {
+        return Flux.defer(() -> {
+            AtomicReference<Subscription> buffer = new AtomicReference<>();
+            return shared
+                    .onBackpressureBuffer(subscriberBufferSize, dropped -> droppedCount.incrementAndGet(),
+                            BufferOverflowStrategy.DROP_OLDEST)
+                    .doOnSubscribe(subscription -> {
+                        buffer.set(subscription);
+                        subscribers.add(subscription);
+                    })
+                    .doFinally(signalType -> subscribers.remove(buffer.get()));
+        });
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    public int bufferedCount() {
+        return subscribers.stream()
+                .mapToInt(buffer -> Scannable.from(buffer).scanOrDefault(Scannable.Attr.BUFFERED, 0))
+                .sum();
+    }
+
+    public long droppedCount() {
+        return droppedCount.get();
+    }
+}
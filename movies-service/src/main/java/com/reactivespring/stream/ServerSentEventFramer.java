@@ -0,0 +1,191 @@
+package com.reactivespring.stream;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a server-sent event stream into its events without decoding their data. The data of an event is a
+ * retained slice of the buffer it was read in, from the value of its data field up to and including the newline,
+ * so it's written as an NDJSON line without being copied. Only a line that spans buffers is copied, and an event
+ * with several data lines or lines ending in CRLF is joined into a new buffer. Only the short id and event fields
+ * are turned into strings. Keeps the partial line and event between buffers, so one framer serves one connection.
+ */
+class ServerSentEventFramer {
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte COLON = ':';
+    private static final byte SPACE = ' ';
+    private static final byte[] DATA = "data".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ID = "id".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EVENT = "event".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEWLINE = {LF};
+
+    private byte[] partialLine = new byte[256];
+    private int partialLength;
+    private final List<DataBuffer> data = new ArrayList<>(1);
+    private String id;
+    private String event;
+
+    /**
+     * Frames the events completed by the buffer and releases it, the events hold on to the parts they need.
+     */
+    synchronized List<RawEvent> frame(DataBuffer buffer) {
+        List<RawEvent> events = new ArrayList<>(2);
+        try {
+            int position = buffer.readPosition();
+            int end = buffer.writePosition();
+            while (position < end) {
+                int lf = buffer.indexOf(b -> b == LF, position);
+                if (lf < 0) {
+                    keepPartialLine(buffer, position, end);
+                    break;
+                }
+                RawEvent completed;
+                if (partialLength > 0) {
+                    keepPartialLine(buffer, position, lf);
+                    // the slices of the data outlive the partial line, which is reused
+                    DataBuffer line = DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOf(partialLine, partialLength));
+                    completed = endOfLine(line, 0, partialLength, false);
+                    partialLength = 0;
+                } else {
+                    completed = endOfLine(buffer, position, lf, true);
+                }
+                if (completed != null) {
+                    events.add(completed);
+                }
+                position = lf + 1;
+            }
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return events;
+    }
+
+    /**
+     * Releases the data of the event that isn't complete yet, once the connection is gone.
+     */
+    synchronized void release() {
+        data.forEach(DataBufferUtils::release);
+        data.clear();
+    }
+
+    private void keepPartialLine(DataBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (partialLength + length > partialLine.length) {
+            partialLine = Arrays.copyOf(partialLine, Math.max(partialLength + length, partialLine.length * 2));
+        }
+        buffer.readPosition(start);
+        buffer.read(partialLine, partialLength, length);
+        partialLength += length;
+    }
+
+    // end is the position of the line feed, which is in the buffer when lfFollows
+    private RawEvent endOfLine(DataBuffer line, int start, int end, boolean lfFollows) {
+        if (end > start && line.getByte(end - 1) == CR) {
+            end--;
+            lfFollows = false;
+        }
+        if (start == end) {
+            return endOfEvent();
+        }
+        if (line.getByte(start) == COLON) {
+            return null;
+        }
+        int fieldEnd = start;
+        while (fieldEnd < end && line.getByte(fieldEnd) != COLON) {
+            fieldEnd++;
+        }
+        int valueStart = fieldEnd < end ? fieldEnd + 1 : end;
+        if (valueStart < end && line.getByte(valueStart) == SPACE) {
+            valueStart++;
+        }
+        if (isField(line, start, fieldEnd, DATA)) {
+            if (lfFollows) {
+                data.add(line.retainedSlice(valueStart, end + 1 - valueStart));
+            } else {
+                data.add(line.retainedSlice(valueStart, end - valueStart));
+                data.add(DefaultDataBufferFactory.sharedInstance.wrap(NEWLINE));
+            }
+        } else if (isField(line, start, fieldEnd, ID)) {
+            id = line.toString(valueStart, end - valueStart, StandardCharsets.UTF_8);
+        } else if (isField(line, start, fieldEnd, EVENT)) {
+            event = line.toString(valueStart, end - valueStart, StandardCharsets.UTF_8);
+        }
+        // retry and unknown fields don't matter here
+        return null;
+    }
+
+    private RawEvent endOfEvent() {
+        RawEvent completed = null;
+        if (data.size() == 1) {
+            completed = new RawEvent(id, event, data.get(0));
+        } else if (!data.isEmpty()) {
+            completed = new RawEvent(id, event, join());
+        }
+        data.clear();
+        event = null;
+        // the last event id carries over to the following events
+        return completed;
+    }
+
+    private DataBuffer join() {
+        int length = data.stream().mapToInt(DataBuffer::readableByteCount).sum();
+        DataBuffer joined = data.get(0).factory().allocateBuffer(length);
+        data.forEach(part -> {
+            joined.write(part);
+            DataBufferUtils.release(part);
+        });
+        return joined;
+    }
+
+    private static boolean isField(DataBuffer line, int start, int end, byte[] name) {
+        if (end - start != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (line.getByte(start + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static class RawEvent {
+
+        private final String id;
+        private final String event;
+        private final DataBuffer line;
+
+        RawEvent(String id, String event, DataBuffer line) {
+            this.id = id;
+            this.event = event;
+            this.line = line;
+        }
+
+        String id() {
+            return id;
+        }
+
+        String event() {
+            return event;
+        }
+
+        /**
+         * The data of the event followed by a newline, to be released by whoever writes it.
+         */
+        DataBuffer line() {
+            return line;
+        }
+
+        void release() {
+            DataBufferUtils.release(line);
+        }
+    }
+}
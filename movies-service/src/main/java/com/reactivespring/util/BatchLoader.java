@@ -0,0 +1,152 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects the keys loaded one by one into batches loaded with one call to a downstream service. A batch is
+ * opened by its first key and loaded once it holds {@code maxBatchSize} keys, once no key has joined it for
+ * {@code window}, or at the latest {@code maxWait} after it was opened. Every caller receives the value of its
+ * key, nothing when the call returned none for it, or the error of the whole call. A caller cancelling doesn't
+ * cancel the call, the other keys of the batch still need it.
+ */
+public class BatchLoader<K, V> {
+
+    private final int maxBatchSize;
+    private final Duration window;
+    private final Duration maxWait;
+    private final Scheduler scheduler;
+    private final DistributionSummary batchSizes;
+    private final Counter fullBatches;
+    private final Counter windowBatches;
+    private final Counter maxWaitBatches;
+    private Batch<K, V> open;
+
+    public BatchLoader(String name, int maxBatchSize, Duration window, Duration maxWait, MeterRegistry meterRegistry) {
+        this(name, maxBatchSize, window, maxWait, meterRegistry, Schedulers.parallel());
+    }
+
+    BatchLoader(String name, int maxBatchSize, Duration window, Duration maxWait, MeterRegistry meterRegistry,
+                Scheduler scheduler) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.window = window;
+        this.maxWait = maxWait;
+        this.scheduler = scheduler;
+        this.batchSizes = DistributionSummary.builder("restclient.batch.size")
+                .description("Keys loaded by one call to the downstream service")
+                .tag("name", name)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue((double) maxBatchSize)
+                .register(meterRegistry);
+        this.fullBatches = batches(meterRegistry, name, "size");
+        this.windowBatches = batches(meterRegistry, name, "window");
+        this.maxWaitBatches = batches(meterRegistry, name, "maxWait");
+    }
+
+    /**
+     * Loads the key with the batch it joins, which is loaded with the call of the caller that opened it.
+     */
+    public Mono<V> load(K key, Function<List<K>, Mono<Map<K, V>>> batchCall) {
+        return Mono.defer(() -> {
+            Batch<K, V> full = null;
+            Mono<V> result;
+            synchronized (this) {
+                if (open == null) {
+                    Batch<K, V> batch = new Batch<>(batchCall);
+                    batch.maxWaitTimer = schedule(batch, maxWait, maxWaitBatches);
+                    open = batch;
+                }
+                result = open.add(key);
+                if (open.results.size() >= maxBatchSize) {
+                    full = open;
+                    open = null;
+                } else {
+                    if (open.windowTimer != null) {
+                        open.windowTimer.dispose();
+                    }
+                    open.windowTimer = schedule(open, window, windowBatches);
+                }
+            }
+            if (full != null) {
+                dispatch(full, fullBatches);
+            }
+            return result;
+        });
+    }
+
+    private Disposable schedule(Batch<K, V> batch, Duration delay, Counter trigger) {
+        return scheduler.schedule(() -> {
+            synchronized (this) {
+                if (open != batch) {
+                    return;
+                }
+                open = null;
+            }
+            dispatch(batch, trigger);
+        }, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void dispatch(Batch<K, V> batch, Counter trigger) {
+        batch.maxWaitTimer.dispose();
+        if (batch.windowTimer != null) {
+            batch.windowTimer.dispose();
+        }
+        trigger.increment();
+        batchSizes.record(batch.results.size());
+        List<K> keys = new ArrayList<>(batch.results.keySet());
+        Mono.defer(() -> batch.call.apply(keys))
+                .subscribe(values -> batch.results.forEach((key, result) -> {
+                            V value = values.get(key);
+                            if (value == null) {
+                                result.tryEmitEmpty();
+                            } else {
+                                result.tryEmitValue(value);
+                            }
+                        }),
+                        error -> batch.results.values().forEach(result -> result.tryEmitError(error)),
+                        () -> batch.results.values().forEach(Sinks.One::tryEmitEmpty));
+    }
+
+    private static Counter batches(MeterRegistry meterRegistry, String name, String trigger) {
+        return Counter.builder("restclient.batch.calls")
+                .description("Batches loaded, by what closed them")
+                .tag("name", name)
+                .tag("trigger", trigger)
+                .register(meterRegistry);
+    }
+
+    private static class Batch<K, V> {
+
+        private final Function<List<K>, Mono<Map<K, V>>> call;
+        // keys loaded more than once share their result
+        private final Map<K, Sinks.One<V>> results = new LinkedHashMap<>();
+        private Disposable windowTimer;
+        private Disposable maxWaitTimer;
+
+        Batch(Function<List<K>, Mono<Map<K, V>>> call) {
+            this.call = call;
+        }
+
+        Mono<V> add(K key) {
+            return results.computeIfAbsent(key, k -> Sinks.one()).asMono();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.ResilienceProperties;
+import com.reactivespring.exception.BulkheadFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the calls to a downstream service in flight at once. Calls over the limit are rejected right away
+ * instead of queueing, so a slow service can't tie up every connection and request of this one.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+    private final Counter rejectedCalls;
+
+    public Bulkhead(String name, ResilienceProperties.Bulkhead config, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrentCalls = config.getMaxConcurrentCalls();
+        this.rejectedCalls = Counter.builder("restclient.bulkhead.rejected.calls")
+                .description("Calls rejected because the bulkhead was full")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("restclient.bulkhead.available.calls", this, Bulkhead::getAvailableConcurrentCalls)
+                .description("Calls the bulkhead currently admits")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                return Mono.error(full());
+            }
+            return call.doFinally(signal -> concurrentCalls.decrementAndGet());
+        });
+    }
+
+    public <T> Flux<T> protect(Flux<T> call) {
+        return Flux.defer(() -> {
+            if (!tryAcquire()) {
+                return Flux.error(full());
+            }
+            return call.doFinally(signal -> concurrentCalls.decrementAndGet());
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAvailableConcurrentCalls() {
+        return maxConcurrentCalls - concurrentCalls.get();
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = concurrentCalls.get();
+            if (current >= maxConcurrentCalls) {
+                rejectedCalls.increment();
+                return false;
+            }
+        } while (!concurrentCalls.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private BulkheadFullException full() {
+        return new BulkheadFullException("Bulkhead " + name + " is full, " + maxConcurrentCalls + " calls are in flight");
+    }
+}
@@ -0,0 +1,279 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.ResilienceProperties;
+import com.reactivespring.exception.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Count based circuit breaker. It opens when the failure rate or the slow call rate of the last
+ * {@code slidingWindowSize} calls reaches its threshold, rejects all calls for {@code waitDurationInOpenState} and
+ * then lets {@code permittedCallsInHalfOpenState} probe calls through, closing again when they succeed.
+ * The failures that are retried are the ones that count, client errors are successful calls.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final ResilienceProperties.CircuitBreaker config;
+    private final long slowCallNanos;
+    private final long waitNanos;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoTime;
+
+    private final Counter successfulCalls;
+    private final Counter failedCalls;
+    private final Counter slowCalls;
+    private final Counter notPermittedCalls;
+
+    private State state = State.CLOSED;
+    private long stateChangedAt;
+    private int halfOpenPermits;
+
+    private byte[] window;
+    private int windowIndex;
+    private int bufferedCount;
+    private int failedCount;
+    private int slowCount;
+
+    public CircuitBreaker(String name, ResilienceProperties.CircuitBreaker config, MeterRegistry meterRegistry) {
+        this(name, config, meterRegistry, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, ResilienceProperties.CircuitBreaker config, MeterRegistry meterRegistry,
+                   LongSupplier nanoTime) {
+        this.name = name;
+        this.config = config;
+        this.slowCallNanos = config.getSlowCallDurationThreshold().toNanos();
+        this.waitNanos = config.getWaitDurationInOpenState().toNanos();
+        this.meterRegistry = meterRegistry;
+        this.nanoTime = nanoTime;
+        this.stateChangedAt = nanoTime.getAsLong();
+        this.window = new byte[config.getSlidingWindowSize()];
+
+        this.successfulCalls = calls("successful");
+        this.failedCalls = calls("failed");
+        this.slowCalls = Counter.builder("restclient.circuitbreaker.slow.calls")
+                .description("Calls slower than the slow call duration threshold")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.notPermittedCalls = calls("not_permitted");
+        for (State gaugeState : State.values()) {
+            Gauge.builder("restclient.circuitbreaker.state", this, breaker -> breaker.getState() == gaugeState ? 1 : 0)
+                    .description("1 for the current state of the circuit breaker")
+                    .tag("name", name)
+                    .tag("state", gaugeState.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            Call permit = acquire();
+            if (permit == null) {
+                return Mono.error(notPermitted());
+            }
+            return call
+                    .doOnSuccess(value -> permit.succeeded())
+                    .doOnError(permit::failed)
+                    .doOnCancel(permit::cancelled);
+        });
+    }
+
+    public <T> Flux<T> protect(Flux<T> call) {
+        return Flux.defer(() -> {
+            Call permit = acquire();
+            if (permit == null) {
+                return Flux.error(notPermitted());
+            }
+            return call
+                    .doOnComplete(permit::succeeded)
+                    .doOnError(permit::failed)
+                    .doOnCancel(permit::cancelled);
+        });
+    }
+
+    /**
+     * Like {@link #protect(Flux)} for streams that don't complete, the call succeeds with its first element.
+     */
+    public <T> Flux<T> protectStream(Flux<T> stream) {
+        return Flux.defer(() -> {
+            Call permit = acquire();
+            if (permit == null) {
+                return Flux.error(notPermitted());
+            }
+            return stream
+                    .doOnNext(value -> permit.succeeded())
+                    .doOnComplete(permit::succeeded)
+                    .doOnError(permit::failed)
+                    .doOnCancel(permit::cancelled);
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getBufferedCalls() {
+        return bufferedCount;
+    }
+
+    public synchronized double getFailureRate() {
+        return bufferedCount == 0 ? 0 : failedCount * 100.0 / bufferedCount;
+    }
+
+    public synchronized double getSlowCallRate() {
+        return bufferedCount == 0 ? 0 : slowCount * 100.0 / bufferedCount;
+    }
+
+    public synchronized void transitionTo(State newState) {
+        State previous = state;
+        state = newState;
+        stateChangedAt = nanoTime.getAsLong();
+        halfOpenPermits = 0;
+        resetWindow(newState == State.HALF_OPEN ? config.getPermittedCallsInHalfOpenState() : config.getSlidingWindowSize());
+        if (previous != newState) {
+            log.warn("Circuit breaker {} changed from {} to {}", name, previous, newState);
+            meterRegistry.counter("restclient.circuitbreaker.transitions",
+                    "name", name, "from", previous.name().toLowerCase(), "to", newState.name().toLowerCase())
+                    .increment();
+        }
+    }
+
+    synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && nanoTime.getAsLong() - stateChangedAt >= waitNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (halfOpenPermits < config.getPermittedCallsInHalfOpenState()) {
+                    halfOpenPermits++;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+            halfOpenPermits--;
+        }
+    }
+
+    synchronized void onResult(long durationNanos, boolean failed) {
+        byte outcome = (byte) ((failed ? FAILED : 0) | (durationNanos >= slowCallNanos ? SLOW : 0));
+        (failed ? failedCalls : successfulCalls).increment();
+        if ((outcome & SLOW) != 0) {
+            slowCalls.increment();
+        }
+        // results of calls that were already running when the breaker opened
+        if (state == State.OPEN) {
+            return;
+        }
+
+        record(outcome);
+        int minimumNumberOfCalls = state == State.HALF_OPEN
+                ? config.getPermittedCallsInHalfOpenState()
+                : Math.min(config.getMinimumNumberOfCalls(), window.length);
+        if (bufferedCount < minimumNumberOfCalls) {
+            return;
+        }
+        if (getFailureRate() >= config.getFailureRateThreshold() || getSlowCallRate() >= config.getSlowCallRateThreshold()) {
+            transitionTo(State.OPEN);
+        } else if (state == State.HALF_OPEN) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    private void record(byte outcome) {
+        if (bufferedCount == window.length) {
+            byte evicted = window[windowIndex];
+            failedCount -= evicted & FAILED;
+            slowCount -= (evicted & SLOW) >> 1;
+        } else {
+            bufferedCount++;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % window.length;
+        failedCount += outcome & FAILED;
+        slowCount += (outcome & SLOW) >> 1;
+    }
+
+    private void resetWindow(int size) {
+        window = new byte[size];
+        windowIndex = 0;
+        bufferedCount = 0;
+        failedCount = 0;
+        slowCount = 0;
+    }
+
+    private Call acquire() {
+        if (!tryAcquirePermission()) {
+            notPermittedCalls.increment();
+            return null;
+        }
+        return new Call(nanoTime.getAsLong());
+    }
+
+    private CallNotPermittedException notPermitted() {
+        return new CallNotPermittedException("Circuit breaker " + name + " is " + getState() + " and does not permit calls");
+    }
+
+    private Counter calls(String outcome) {
+        return Counter.builder("restclient.circuitbreaker.calls")
+                .description("Calls through the circuit breaker by outcome")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private class Call {
+
+        private final long startedAt;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        Call(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        void succeeded() {
+            if (done.compareAndSet(false, true)) {
+                onResult(nanoTime.getAsLong() - startedAt, false);
+            }
+        }
+
+        void failed(Throwable failure) {
+            if (done.compareAndSet(false, true)) {
+                onResult(nanoTime.getAsLong() - startedAt, RetryUtil.isRetryable(failure));
+            }
+        }
+
+        void cancelled() {
+            if (done.compareAndSet(false, true)) {
+                releasePermission();
+            }
+        }
+    }
+}
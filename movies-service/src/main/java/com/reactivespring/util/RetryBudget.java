@@ -0,0 +1,60 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.RetryProperties;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket limiting the retries of a client to a share of its recent requests. Each request deposits
+ * {@code retryRatio} tokens, the bucket refills with {@code minRetriesPerSecond} tokens per second and each
+ * retry takes one token, so during an outage the retries stop once the bucket is empty instead of
+ * multiplying the load on the failing service.
+ */
+public class RetryBudget {
+
+    private final double retryRatio;
+    private final double minRetriesPerNano;
+    private final double maxTokens;
+    private final LongSupplier nanoTime;
+
+    private double tokens;
+    private long refilledAt;
+
+    public RetryBudget(RetryProperties.Budget budget) {
+        this(budget, System::nanoTime);
+    }
+
+    RetryBudget(RetryProperties.Budget budget, LongSupplier nanoTime) {
+        this.retryRatio = budget.getRetryRatio();
+        this.minRetriesPerNano = budget.getMinRetriesPerSecond() / 1_000_000_000d;
+        this.maxTokens = budget.getMaxTokens();
+        this.nanoTime = nanoTime;
+        this.tokens = maxTokens;
+        this.refilledAt = nanoTime.getAsLong();
+    }
+
+    public synchronized void deposit() {
+        refill();
+        tokens = Math.min(maxTokens, tokens + retryRatio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    public synchronized double tokens() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(maxTokens, tokens + (now - refilledAt) * minRetriesPerNano);
+        refilledAt = now;
+    }
+}
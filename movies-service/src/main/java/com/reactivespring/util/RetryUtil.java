@@ -1,20 +1,93 @@
 package com.reactivespring.util;
 
+import com.reactivespring.config.RetryProperties;
 import com.reactivespring.exception.MoviesInfoServerException;
 import com.reactivespring.exception.ReviewsServerException;
-import reactor.core.Exceptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
 
 public class RetryUtil {
 
-    public static Retry retrySpec() {
-        return Retry.fixedDelay(3, Duration.ofSeconds(1))
-                .filter(ex ->
-                        ex instanceof MoviesInfoServerException || ex instanceof ReviewsServerException
-                )
-                .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) ->
-                        Exceptions.propagate(retrySignal.failure())));
+    /**
+     * Retries server errors, timeouts and connection failures with exponential backoff and full jitter, as long
+     * as the budget has tokens left. Every subscription counts as a request for the budget.
+     */
+    public static Retry retrySpec(String name, RetryProperties.Policy policy, RetryBudget budget, MeterRegistry meterRegistry) {
+        Counter attempted = retries(meterRegistry, name, "attempted");
+        Counter suppressed = retries(meterRegistry, name, "suppressed");
+        Counter exhausted = retries(meterRegistry, name, "exhausted");
+
+        return Retry.from(retrySignals -> {
+            budget.deposit();
+            return retrySignals.concatMap(retrySignal -> {
+                Throwable failure = retrySignal.failure();
+                if (!isRetryable(failure)) {
+                    return Mono.error(failure);
+                }
+                if (retrySignal.totalRetries() >= policy.getMaxRetries()) {
+                    exhausted.increment();
+                    return Mono.error(failure);
+                }
+                if (!budget.tryWithdraw()) {
+                    suppressed.increment();
+                    return Mono.error(failure);
+                }
+                attempted.increment();
+                return Mono.delay(backoff(policy, retrySignal.totalRetries()));
+            });
+        });
+    }
+
+    /**
+     * Fails an attempt that takes longer than {@code attemptTimeout}, placed before {@code retryWhen} so that
+     * every attempt gets its own timeout.
+     */
+    public static <T> Mono<T> attemptTimeout(Mono<T> attempt, Duration attemptTimeout) {
+        return attemptTimeout != null ? attempt.timeout(attemptTimeout) : attempt;
+    }
+
+    /**
+     * Fails an attempt when no element arrives within {@code attemptTimeout} of the previous one.
+     */
+    public static <T> Flux<T> attemptTimeout(Flux<T> attempt, Duration attemptTimeout) {
+        return attemptTimeout != null ? attempt.timeout(attemptTimeout) : attempt;
+    }
+
+    /**
+     * Fails an attempt of a stream that doesn't emit its first element within {@code attemptTimeout}.
+     */
+    public static <T> Flux<T> firstElementTimeout(Flux<T> attempt, Duration attemptTimeout) {
+        return attemptTimeout != null ? attempt.timeout(Mono.delay(attemptTimeout), element -> Mono.never()) : attempt;
+    }
+
+    /**
+     * Full jitter, a random delay between zero and the exponential backoff of the attempt.
+     */
+    static Duration backoff(RetryProperties.Policy policy, long retry) {
+        long firstBackoff = policy.getFirstBackoff().toMillis();
+        long maxBackoff = policy.getMaxBackoff().toMillis();
+        long backoff = (long) Math.min(maxBackoff, firstBackoff * Math.pow(2, retry));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(backoff + 1));
+    }
+
+    static boolean isRetryable(Throwable failure) {
+        return failure instanceof MoviesInfoServerException || failure instanceof ReviewsServerException
+                || failure instanceof TimeoutException || failure instanceof WebClientRequestException;
+    }
+
+    private static Counter retries(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder("restclient.retries")
+                .description("Retries of downstream calls by outcome")
+                .tag("policy", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 }
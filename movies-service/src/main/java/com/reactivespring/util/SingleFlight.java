@@ -0,0 +1,73 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical calls to a downstream service: callers asking for a key while a call for it is in flight
+ * share that call and all receive its result, value or error. The call is forgotten as soon as it terminates,
+ * so callers arriving after that make a new one. A caller cancelling only drops out of the shared call, which
+ * is cancelled once no caller is left.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executedCalls;
+    private final Counter coalescedCalls;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executedCalls = calls(meterRegistry, name, "executed");
+        this.coalescedCalls = calls(meterRegistry, name, "coalesced");
+        Gauge.builder("restclient.singleflight.coalescing.ratio", this, SingleFlight::coalescingRatio)
+                .description("Share of the calls that joined a call already in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("restclient.singleflight.inflight", inFlight, Map::size)
+                .description("Distinct calls in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            AtomicReference<Mono<V>> created = new AtomicReference<>();
+            Mono<V> shared = inFlight.computeIfAbsent(key, k -> {
+                Mono<V> mono = Mono.defer(call)
+                        .doFinally(signal -> inFlight.remove(k, created.get()))
+                        .flux()
+                        .publish()
+                        .refCount()
+                        .singleOrEmpty();
+                created.set(mono);
+                return mono;
+            });
+            (shared == created.get() ? executedCalls : coalescedCalls).increment();
+            return shared;
+        });
+    }
+
+    public double coalescingRatio() {
+        double executed = executedCalls.count();
+        double coalesced = coalescedCalls.count();
+        return executed + coalesced == 0 ? 0 : coalesced / (executed + coalesced);
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    private static Counter calls(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder("restclient.singleflight.calls")
+                .description("Calls to the downstream service, executed or coalesced into one in flight")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
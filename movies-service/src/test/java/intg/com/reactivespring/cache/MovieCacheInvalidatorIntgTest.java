@@ -0,0 +1,176 @@
+package com.reactivespring.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Instant;
+import java.util.function.BooleanSupplier;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+                "movies.cache.invalidation.firstBackoff=PT0.2S",
+                "movies.cache.invalidation.maxBackoff=PT0.5S"
+        }
+)
+class MovieCacheInvalidatorIntgTest {
+
+    private static final String UPDATED = "event:updated\n:" + Instant.now() + "\n"
+            + "data:{\"movieInfoId\":\"1\",\"name\":\"Batman Begins (2005)\",\"year\":2005,"
+            + "\"cast\":[\"Christian Bale\"],\"release_date\":\"2005-06-15\"}\n\n";
+    private static final String REVIEW_CREATED = "data:{\"reviewId\":\"3\",\"movieInfoId\":1,"
+            + "\"comment\":\"Good Movie\",\"rating\":7.0}\n\n";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    MovieCache movieCache;
+
+    @Autowired
+    MovieCacheInvalidator movieCacheInvalidator;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        movieCache.invalidateAll();
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/1"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("movieinfo.json")
+                        )
+        );
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                        )
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieCacheInvalidator.stop();
+    }
+
+    @Test
+    void changesPatchCachedMovie() throws InterruptedException {
+        stubStream("/v1/movieinfos/stream", UPDATED);
+        stubStream("/v1/reviews/stream", REVIEW_CREATED);
+        retrieveMovie();
+
+        movieCacheInvalidator.start();
+
+        await(() -> movieCache.getIfPresent("1") != null
+                && "Batman Begins (2005)".equals(movieCache.getIfPresent("1").getMovieInfo().getName())
+                && movieCache.getIfPresent("1").getReviewList().size() == 3);
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", "1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins (2005)")
+                .jsonPath("$.reviewList.length()").isEqualTo(3);
+        assertEquals(1, meterRegistry.get("movies.cache.invalidation.events")
+                .tags("stream", MovieCacheInvalidator.MOVIE_INFOS, "type", "updated").counter().count());
+        assertEquals(1, meterRegistry.get("movies.cache.invalidation.lag")
+                .tag("stream", MovieCacheInvalidator.MOVIE_INFOS).timer().count());
+    }
+
+    @Test
+    void reconnectInvalidatesCache() throws InterruptedException {
+        // a heartbeat, then the stream ends and the reconnected one may have missed changes
+        stubFor(get(urlPathEqualTo("/v1/movieinfos/stream"))
+                .willReturn(aResponse().withHeader("Content-Type", "text/event-stream").withBody(":\n\n")));
+        stubFor(get(urlPathEqualTo("/v1/reviews/stream")).willReturn(aResponse().withStatus(500)));
+        retrieveMovie();
+
+        movieCacheInvalidator.start();
+
+        await(() -> meterRegistry.counter("movies.cache.invalidation.reconnects",
+                "stream", MovieCacheInvalidator.REVIEWS).count() >= 2);
+        assertTrue(meterRegistry.counter("movies.cache.invalidation.reconnects",
+                "stream", MovieCacheInvalidator.MOVIE_INFOS).count() >= 1);
+        await(() -> movieCache.getIfPresent("1") == null);
+    }
+
+    @Test
+    void rejectedStreamIsNotRetried() throws InterruptedException {
+        stubStream("/v1/movieinfos/stream", ":\n\n");
+        stubFor(get(urlPathEqualTo("/v1/reviews/stream"))
+                .willReturn(aResponse().withStatus(400).withBody("The review firehose is disabled")));
+        retrieveMovie();
+
+        movieCacheInvalidator.start();
+
+        Thread.sleep(1000);
+        assertEquals(0, meterRegistry.counter("movies.cache.invalidation.reconnects",
+                "stream", MovieCacheInvalidator.REVIEWS).count());
+        assertEquals("Batman Begins", movieCache.getIfPresent("1").getMovieInfo().getName());
+    }
+
+    private void retrieveMovie() {
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", "1")
+                .exchange()
+                .expectStatus()
+                .isOk();
+        assertEquals("Batman Begins", movieCache.getIfPresent("1").getMovieInfo().getName());
+    }
+
+    // keeps the stream open for a while after the events, closing it would invalidate the cache
+    private void stubStream(String url, String events) {
+        StringBuilder body = new StringBuilder(events);
+        while (body.length() < 20 * events.length()) {
+            body.append(":\n\n");
+        }
+        stubFor(
+                get(urlPathEqualTo(url))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "text/event-stream")
+                                        .withBody(body.toString())
+                                        // the first of the chunks, holding the events, goes out after a twentieth of the delay
+                                        .withChunkedDribbleDelay(20, 10000)
+                        )
+        );
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 50 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
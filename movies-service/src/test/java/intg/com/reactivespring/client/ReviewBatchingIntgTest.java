@@ -0,0 +1,86 @@
+package com.reactivespring.client;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+                "restClient.batch.reviews.window=PT0.2S",
+                "restClient.batch.reviews.maxWait=PT1S"
+        }
+)
+class ReviewBatchingIntgTest {
+
+    private static final int MOVIES = 20;
+
+    @Autowired
+    ReviewsRestClient reviewsRestClient;
+
+    @Test
+    void lookupsOfDifferentMoviesShareOneRequest() {
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .withQueryParam("movieInfoIds", matching("[0-9,]+"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                        )
+        );
+
+        Map<Integer, Integer> reviewCounts = Flux.range(1, MOVIES)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .flatMap(id -> reviewsRestClient.retrieveReviews(String.valueOf(id))
+                        .collectList()
+                        .map(reviews -> Map.entry(id, reviews.size())))
+                .sequential()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+
+        assertEquals(MOVIES, reviewCounts.size());
+        // every review belongs to movie 1
+        reviewCounts.forEach((id, count) -> assertEquals(id == 1 ? 2 : 0, count));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void lookupsOfIdsThatArentNumbersAreNotBatched() {
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .withQueryParam("movieInfoId", matching("[a-z]+"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                        )
+        );
+
+        Review review = reviewsRestClient.retrieveReviews("abc").blockFirst();
+
+        assertEquals("Awesome Movie", review.getComment());
+    }
+}
@@ -0,0 +1,87 @@
+package com.reactivespring.client;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews"
+        }
+)
+class SingleFlightIntgTest {
+
+    private static final int CALLERS = 100;
+
+    @Autowired
+    MoviesInfoRestClient moviesInfoRestClient;
+
+    @Autowired
+    ReviewsRestClient reviewsRestClient;
+
+    @Test
+    void concurrentCallersProduceOneDownstreamHit() {
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/1"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("movieinfo.json")
+                                        .withFixedDelay(500)
+                        )
+        );
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                                        .withFixedDelay(500)
+                        )
+        );
+
+        List<MovieInfo> movieInfos = Flux.range(0, CALLERS)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> moviesInfoRestClient.retrieveMoveInfo("1"))
+                .sequential()
+                .collectList()
+                .block();
+        List<List<Review>> reviews = Flux.range(0, CALLERS)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> reviewsRestClient.retrieveReviews("1").collectList())
+                .sequential()
+                .collectList()
+                .block();
+
+        assertEquals(CALLERS, movieInfos.size());
+        movieInfos.forEach(movieInfo -> assertEquals("Batman Begins", movieInfo.getName()));
+        assertEquals(CALLERS, reviews.size());
+        reviews.forEach(movieReviews -> assertEquals(2, movieReviews.size()));
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/1")));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+}
@@ -0,0 +1,154 @@
+package com.reactivespring.config;
+
+import com.reactivespring.cache.MovieCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.PropertiesMeterFilter;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews"
+        }
+)
+class MetricsIntgTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    MovieCache movieCache;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    PropertiesMeterFilter propertiesMeterFilter;
+
+    @LocalServerPort
+    int serverPort;
+
+    @LocalManagementPort
+    int managementPort;
+
+    @BeforeEach
+    void setUp() {
+        movieCache.invalidateAll();
+    }
+
+    @Test
+    void actuatorIsOnlyServedOnTheManagementPort() {
+        assertNotEquals(serverPort, managementPort);
+
+        WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + managementPort)
+                .build()
+                .get()
+                .uri("/actuator/health")
+                .exchange()
+                .expectStatus()
+                .isOk();
+        webTestClient
+                .get()
+                .uri("/actuator/health")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void signalTracerIsTurnedOnPerRoute() {
+        WebTestClient actuator = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + managementPort)
+                .build();
+
+        actuator.post()
+                .uri("/actuator/signaltracer/{route}", "reviewsClient.retrieveReviews")
+                .bodyValue(Map.of("sampleRate", 10))
+                .exchange()
+                .expectStatus()
+                .isOk();
+        actuator.get()
+                .uri("/actuator/signaltracer")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$['reviewsClient.retrieveReviews']").isEqualTo(10);
+    }
+
+    @Test
+    void clientTimersAreTaggedByDownstream() {
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/abc"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("movieinfo.json")
+                        )
+        );
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                        )
+        );
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        Timer moviesInfo = meterRegistry.get("http.client.requests")
+                .tag("downstream", "moviesInfo")
+                .tag("uri", "/v1/movieinfos/{id}")
+                .tag("outcome", "SUCCESS")
+                .timer();
+        // the query carries the movie ids, it's left out of the uri
+        Timer reviews = meterRegistry.get("http.client.requests")
+                .tag("downstream", "reviews")
+                .tag("uri", "/v1/reviews")
+                .tag("outcome", "SUCCESS")
+                .timer();
+        Timer movies = meterRegistry.get("http.server.requests")
+                .tag("uri", "/v1/movies/{id}")
+                .timer();
+        assertTrue(moviesInfo.count() > 0);
+        assertTrue(reviews.count() > 0);
+        // the simple registry of the tests doesn't keep the buckets, Prometheus does
+        for (Timer timer : new Timer[]{moviesInfo, reviews, movies}) {
+            assertTrue(propertiesMeterFilter.configure(timer.getId(), DistributionStatisticConfig.NONE)
+                    .isPercentileHistogram());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.reactivespring.config;
+
+import com.reactivespring.cache.MovieCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+                "restClient.http.reviews.responseTimeout=PT0.5S",
+                "restClient.retry.reviews.maxRetries=0",
+                "restClient.http.moviesInfo.maxConnections=7"
+        }
+)
+class WebClientConfigIntgTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    MovieCache movieCache;
+
+    @BeforeEach
+    void setUp() {
+        movieCache.invalidateAll();
+    }
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    HttpClientProperties httpClientProperties;
+
+    @Test
+    void poolPropertiesAreBound() {
+        assertEquals(7, httpClientProperties.getMoviesInfo().getMaxConnections());
+        assertEquals(Duration.ofMillis(500), httpClientProperties.getReviews().getResponseTimeout());
+    }
+
+    @Test
+    void responseTimeout() {
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/abc"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("movieinfo.json")
+                        )
+        );
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                                        .withFixedDelay(3000)
+                        )
+        );
+
+        long start = System.nanoTime();
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .is5xxServerError();
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 3000);
+    }
+
+    @Test
+    void poolGauges() {
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/abc"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("movieinfo.json")
+                        )
+        );
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                        )
+        );
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        for (String gauge : new String[]{"active", "idle", "pending"}) {
+            for (String pool : new String[]{"moviesInfo", "reviews"}) {
+                assertNotNull(meterRegistry.find("reactor.netty.connection.provider." + gauge + ".connections")
+                        .tag("name", pool)
+                        .gauge(), gauge + " gauge of " + pool);
+            }
+        }
+    }
+}
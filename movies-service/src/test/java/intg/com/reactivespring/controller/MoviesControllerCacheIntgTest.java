@@ -0,0 +1,165 @@
+package com.reactivespring.controller;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.cache.MovieCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+                "movies.cache.softTtl=PT0.5S",
+                "movies.cache.hardTtl=PT2S"
+        }
+)
+class MoviesControllerCacheIntgTest {
+
+    private static final String DARK_KNIGHT = "{\"movieInfoId\":\"abc\",\"name\":\"The Dark Knight\",\"year\":2008,"
+            + "\"cast\":[\"Christian Bale\"],\"release_date\":\"2008-07-18\"}";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @LocalManagementPort
+    int managementPort;
+
+    @Autowired
+    MovieCache movieCache;
+
+    @BeforeEach
+    void setUp() {
+        movieCache.invalidateAll();
+        stubMovieInfo();
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                        )
+        );
+    }
+
+    @Test
+    void retrieveMovieById_cachedWithinSoftTtl() {
+        retrieveMovie("Batman Begins");
+        retrieveMovie("Batman Begins");
+
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/abc")));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMovieById_staleServedAndRefreshed() throws InterruptedException {
+        retrieveMovie("Batman Begins");
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/abc"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBody(DARK_KNIGHT)
+                        )
+        );
+        Thread.sleep(600);
+
+        retrieveMovie("Batman Begins");
+        Thread.sleep(300);
+
+        retrieveMovie("The Dark Knight");
+        WireMock.verify(2, getRequestedFor(urlEqualTo("/v1/movieinfos/abc")));
+    }
+
+    @Test
+    void retrieveMovieById_loadedAgainAfterHardTtl() throws InterruptedException {
+        retrieveMovie("Batman Begins");
+        Thread.sleep(2100);
+
+        retrieveMovie("Batman Begins");
+
+        WireMock.verify(2, getRequestedFor(urlEqualTo("/v1/movieinfos/abc")));
+    }
+
+    @Test
+    void retrieveMovieById_noCacheBypassesCache() {
+        retrieveMovie("Batman Begins");
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", "abc")
+                .header(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue())
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        WireMock.verify(2, getRequestedFor(urlEqualTo("/v1/movieinfos/abc")));
+    }
+
+    @Test
+    void cacheMetrics() {
+        retrieveMovie("Batman Begins");
+        retrieveMovie("Batman Begins");
+
+        actuator()
+                .get()
+                .uri("/actuator/metrics/movies.cache.hit.ratio")
+                .exchange()
+                .expectStatus()
+                .isOk();
+        actuator()
+                .get()
+                .uri("/actuator/metrics/cache.gets?tag=cache:movieById&tag=result:hit")
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    private void retrieveMovie(String name) {
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo(name);
+    }
+
+    private void stubMovieInfo() {
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/abc"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("movieinfo.json")
+                        )
+        );
+    }
+
+    private WebTestClient actuator() {
+        return WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + managementPort)
+                .build();
+    }
+}
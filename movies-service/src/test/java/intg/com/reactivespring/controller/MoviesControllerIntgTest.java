@@ -1,26 +1,38 @@
 package com.reactivespring.controller;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.cache.MovieCache;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieResult;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -29,15 +41,27 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 @TestPropertySource(
         properties = {
                 "restClient.moviesInfoUrl=http://localhost:8084/v1/movieinfos",
-                "restClient.reviewsUrl=http://localhost:8084/v1/reviews"
+                "restClient.reviewsUrl=http://localhost:8084/v1/reviews",
+                "restClient.batch.maxIdsPerRequest=2",
+                "movies.assembly.reviewsDeadline=PT5S"
         }
 )
 @TestPropertySource(properties = "spring.mongodb.embedded.version=3.4.11")
 public class MoviesControllerIntgTest {
 
+    private static final int DOWNSTREAM_DELAY_MS = 2000;
+
     @Autowired
     WebTestClient webTestClient;
 
+    @Autowired
+    MovieCache movieCache;
+
+    @BeforeEach
+    void setUp() {
+        movieCache.invalidateAll();
+    }
+
     @Test
     void retrieveMovieById() {
         String movieId = "abc";
@@ -198,4 +222,178 @@ public class MoviesControllerIntgTest {
 
         WireMock.verify(4, getRequestedFor(urlPathMatching("/v1/reviews*")));
     }
+
+    @Test
+    void retrieveMovieById_callsDownstreamConcurrently() {
+        String movieId = "abc";
+
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/" + movieId))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("movieinfo.json")
+                                        .withFixedDelay(DOWNSTREAM_DELAY_MS)
+                        )
+        );
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                                        .withFixedDelay(DOWNSTREAM_DELAY_MS)
+                        )
+        );
+
+        long start = System.nanoTime();
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    Movie movie = movieEntityExchangeResult.getResponseBody();
+                    assertEquals(2, Objects.requireNonNull(movie).getReviewList().size());
+                });
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        // sequential calls would take at least twice the delay
+        assertTrue(elapsedMs < 2 * DOWNSTREAM_DELAY_MS, "took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void retrieveMovieById_404_cancelsReviews() {
+        String movieId = "abc";
+
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/" + movieId))
+                        .willReturn(
+                                aResponse().withStatus(404)
+                        )
+        );
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                                        .withFixedDelay(2 * DOWNSTREAM_DELAY_MS)
+                        )
+        );
+
+        long start = System.nanoTime();
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        // without the cancellation the response would wait for the reviews
+        assertTrue(elapsedMs < 2 * DOWNSTREAM_DELAY_MS, "took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void retrieveMoviesByIds() {
+        stubFor(
+                get(urlPathEqualTo("/v1/movieinfos"))
+                        .withQueryParam("ids", equalTo("1,2"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("movieinfos.json")
+                        )
+        );
+        stubFor(
+                get(urlPathEqualTo("/v1/movieinfos"))
+                        .withQueryParam("ids", equalTo("3"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBody("[]")
+                        )
+        );
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .withQueryParam("movieInfoIds", matching(".*"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                        )
+        );
+
+        List<MovieResult> results = webTestClient
+                .get()
+                .uri("/v1/movies?ids=1,2,3,1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(MovieResult.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        Map<String, MovieResult> resultsById = Objects.requireNonNull(results).stream()
+                .collect(Collectors.toMap(MovieResult::getMovieId, Function.identity()));
+        assertEquals(3, resultsById.size());
+        assertEquals(2, resultsById.get("1").getMovie().getReviewList().size());
+        assertEquals("The Dark Knight", resultsById.get("2").getMovie().getMovieInfo().getName());
+        assertEquals(0, resultsById.get("2").getMovie().getReviewList().size());
+        assertEquals(404, resultsById.get("3").getStatus());
+
+        // two batches of at most two ids
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/v1/movieinfos")));
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMoviesByIds_partialFailure() {
+        stubFor(
+                get(urlPathEqualTo("/v1/movieinfos"))
+                        .withQueryParam("ids", equalTo("1,2"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("movieinfos.json")
+                        )
+        );
+        stubFor(
+                get(urlPathEqualTo("/v1/movieinfos"))
+                        .withQueryParam("ids", equalTo("3"))
+                        .willReturn(
+                                aResponse().withStatus(400).withBody("Bad ids")
+                        )
+        );
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .withQueryParam("movieInfoIds", matching(".*"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                        )
+        );
+
+        List<MovieResult> results = webTestClient
+                .get()
+                .uri("/v1/movies?ids=1,2,3")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(MovieResult.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        Map<String, MovieResult> resultsById = Objects.requireNonNull(results).stream()
+                .collect(Collectors.toMap(MovieResult::getMovieId, Function.identity()));
+        assertEquals(200, resultsById.get("1").getStatus());
+        assertEquals(200, resultsById.get("2").getStatus());
+        assertEquals(400, resultsById.get("3").getStatus());
+        assertEquals("Bad ids", resultsById.get("3").getError());
+    }
 }
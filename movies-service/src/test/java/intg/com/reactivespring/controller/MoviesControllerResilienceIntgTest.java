@@ -0,0 +1,274 @@
+package com.reactivespring.controller;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.reactivespring.cache.MovieCache;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.util.CircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+                "restClient.retry.reviews.maxRetries=0",
+                "restClient.resilience.reviews.circuitBreaker.slidingWindowSize=4",
+                "restClient.resilience.reviews.circuitBreaker.minimumNumberOfCalls=2",
+                "restClient.resilience.reviews.circuitBreaker.slowCallDurationThreshold=PT0.5S",
+                "restClient.resilience.reviews.circuitBreaker.waitDurationInOpenState=PT1S",
+                "restClient.resilience.reviews.circuitBreaker.permittedCallsInHalfOpenState=1",
+                "restClient.resilience.reviews.bulkhead.maxConcurrentCalls=1",
+                "movies.assembly.reviewsDeadline=PT1S"
+        }
+)
+class MoviesControllerResilienceIntgTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @LocalManagementPort
+    int managementPort;
+
+    @Autowired
+    MovieCache movieCache;
+
+    @Autowired
+    @Qualifier("reviewsCircuitBreaker")
+    CircuitBreaker reviewsCircuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        movieCache.invalidateAll();
+        reviewsCircuitBreaker.transitionTo(CircuitBreaker.State.CLOSED);
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/abc"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("movieinfo.json")
+                        )
+        );
+    }
+
+    @Test
+    void reviewsFailing_breakerOpens_degradedMovie() {
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER))
+        );
+
+        retrieveMovie().expectStatus().is5xxServerError();
+        retrieveMovie().expectStatus().is5xxServerError();
+        assertEquals(CircuitBreaker.State.OPEN, reviewsCircuitBreaker.getState());
+
+        Movie movie = retrieveMovie()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertEquals("Batman Begins", movie.getMovieInfo().getName());
+        assertTrue(movie.getReviewList().isEmpty());
+        assertTrue(movie.isDegraded());
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void reviewsSlow_breakerOpens() {
+        stubReviews(700);
+
+        retrieveMovie().expectStatus().isOk();
+        retrieveMovie().expectStatus().isOk();
+
+        assertEquals(CircuitBreaker.State.OPEN, reviewsCircuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_closesAfterSuccessfulProbe() throws InterruptedException {
+        stubReviews(0);
+        actuator()
+                .post()
+                .uri("/actuator/circuitbreakers/reviews")
+                .bodyValue(Map.of("state", "OPEN"))
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        retrieveMovie()
+                .expectBody()
+                .jsonPath("$.degraded").isEqualTo(true);
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+
+        Thread.sleep(1100);
+
+        retrieveMovie()
+                .expectBody()
+                .jsonPath("$.reviewList.length()").isEqualTo(2)
+                .jsonPath("$.degraded").doesNotExist();
+        actuator()
+                .get()
+                .uri("/actuator/circuitbreakers/reviews")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.state").isEqualTo("CLOSED");
+    }
+
+    @Test
+    void reviewsPastDeadline_degradedMovie() {
+        stubReviews(3000);
+
+        long start = System.nanoTime();
+        Movie movie = retrieveMovie()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertTrue(movie.isDegraded());
+        assertTrue(movie.getReviewList().isEmpty());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(2500)) < 0);
+        // the deadline applies while the breaker lets the calls through
+        assertNotEquals(CircuitBreaker.State.OPEN, reviewsCircuitBreaker.getState());
+    }
+
+    @Test
+    void bulkheadFull_degradedMovie() {
+        stubReviews(300);
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/def"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("movieinfo.json")
+                        )
+        );
+
+        // different movies, calls for the same one would share the review call
+        var movies = Mono.zip(retrieveMovieAsync("abc"), retrieveMovieAsync("def").delaySubscription(Duration.ofMillis(100)))
+                .block(Duration.ofSeconds(10));
+
+        assertFalse(movies.getT1().isDegraded());
+        assertTrue(movies.getT2().isDegraded());
+        assertNotEquals(CircuitBreaker.State.OPEN, reviewsCircuitBreaker.getState());
+    }
+
+    @Test
+    void circuitBreakers() {
+        actuator()
+                .get()
+                .uri("/actuator/circuitbreakers")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.reviews.state").isEqualTo("CLOSED")
+                .jsonPath("$.reviews.availableConcurrentCalls").isEqualTo(1)
+                .jsonPath("$.moviesInfo.state").isEqualTo("CLOSED");
+
+        actuator()
+                .get()
+                .uri("/actuator/metrics/restclient.circuitbreaker.state?tag=name:reviews&tag=state:closed")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.measurements[0].value").isEqualTo(1.0);
+    }
+
+    @Test
+    void transition_invalidState() {
+        for (Map<String, String> body : List.of(Map.of("state", "BROKEN"), Map.<String, String>of())) {
+            actuator()
+                    .post()
+                    .uri("/actuator/circuitbreakers/reviews")
+                    .bodyValue(body)
+                    .exchange()
+                    .expectStatus()
+                    .isBadRequest();
+        }
+
+        actuator()
+                .get()
+                .uri("/actuator/circuitbreakers/reviews")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.state").isEqualTo("CLOSED");
+    }
+
+    private Mono<Movie> retrieveMovieAsync(String id) {
+        return Mono.fromCallable(() -> retrieveMovie(id)
+                        .expectStatus().isOk()
+                        .expectBody(Movie.class)
+                        .returnResult()
+                        .getResponseBody())
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private WebTestClient.ResponseSpec retrieveMovie() {
+        return retrieveMovie("abc");
+    }
+
+    private WebTestClient.ResponseSpec retrieveMovie(String id) {
+        // every request has to reach the review service
+        return webTestClient
+                .get()
+                .uri("/v1/movies/{id}", id)
+                .header(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue())
+                .exchange();
+    }
+
+    private void stubReviews(int delayMs) {
+        stubFor(
+                get(urlPathEqualTo("/v1/reviews"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", "application/json")
+                                        .withBodyFile("reviews.json")
+                                        .withFixedDelay(delayMs)
+                        )
+        );
+    }
+
+    private WebTestClient actuator() {
+        return WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + managementPort)
+                .build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.reactivespring.stream;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+                "movies.stream.disconnectGracePeriod=PT0S",
+                "movies.stream.passthrough=true"
+        }
+)
+class MovieInfoStreamPassthroughIntgTest {
+
+    private static final int SUBSCRIBERS = 10;
+    private static final String EVENTS = "id:1\ndata:{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005,"
+            + "\"cast\":[\"Christian Bale\"],\"release_date\":\"2005-06-15\"}\n\n"
+            + "id:2\ndata:{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\",\"year\":2008,"
+            + "\"cast\":[\"Christian Bale\"],\"release_date\":\"2008-07-18\"}\n\n";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    MovieInfoStream movieInfoStream;
+
+    @Test
+    void retrieveMovieInfos_forwardedAsRead() {
+        stubStream();
+
+        Flux<String> lines = webTestClient
+                .get()
+                .uri("/v1/movies/stream")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .returnResult(String.class)
+                .getResponseBody();
+
+        StepVerifier.create(lines)
+                .expectNext("{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005,"
+                        + "\"cast\":[\"Christian Bale\"],\"release_date\":\"2005-06-15\"}")
+                .expectNextMatches(line -> line.contains("The Dark Knight"))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void subscribersEachReadTheirOwnConnection() {
+        stubStream();
+
+        List<List<String>> received = Flux.range(0, SUBSCRIBERS)
+                .flatMap(i -> movieInfoStream.subscribePassthrough()
+                        .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+                        .take(2)
+                        .collectList(), SUBSCRIBERS)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(SUBSCRIBERS, received.size());
+        received.forEach(lines -> assertEquals(2, lines.size()));
+        WireMock.verify(SUBSCRIBERS, getRequestedFor(urlEqualTo("/v1/movieinfos/stream"))
+                .withHeader("Accept", equalTo(MediaType.TEXT_EVENT_STREAM_VALUE)));
+    }
+
+    // the events are followed by a quiet stream that stays open for the length of the test
+    private void stubStream() {
+        StringBuilder body = new StringBuilder(EVENTS);
+        while (body.length() < 20 * EVENTS.length()) {
+            body.append(":\n\n");
+        }
+        stubFor(
+                get(urlEqualTo("/v1/movieinfos/stream"))
+                        .willReturn(
+                                aResponse()
+                                        .withHeader("Content-Type", MediaType.TEXT_EVENT_STREAM_VALUE)
+                                        .withBody(body.toString())
+                                        // the first of the chunks, holding the events, goes out after a twentieth of the delay
+                                        .withChunkedDribbleDelay(20, 20000)
+                        )
+        );
+    }
+}
@@ -0,0 +1,86 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MovieCacheInvalidatorTest {
+
+    private final MovieCache movieCache = new MovieCache(100, Duration.ofSeconds(30), Duration.ofMinutes(5));
+    // the handlers don't use the clients, they only follow the streams once started
+    private final MovieCacheInvalidator invalidator = new MovieCacheInvalidator(movieCache, null, null, new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() {
+        movieCache.get("1", id -> Mono.just(new Movie(movieInfo("Batman Begins"), List.of(
+                new Review("a", 1L, "Awesome Movie", 9.0),
+                new Review("b", 1L, "Excellent Movie", 8.0))))).block();
+    }
+
+    @Test
+    void movieInfoUpdated_keepsReviews() {
+        invalidator.onMovieInfoEvent(ServerSentEvent.builder(movieInfo("Batman Begins (2005)")).event("updated").build());
+
+        Movie movie = movieCache.getIfPresent("1");
+        assertEquals("Batman Begins (2005)", movie.getMovieInfo().getName());
+        assertEquals(2, movie.getReviewList().size());
+    }
+
+    @Test
+    void movieInfoDeleted_evicts() {
+        invalidator.onMovieInfoEvent(ServerSentEvent.builder(new MovieInfo("1", null, null, null, null)).event("deleted").build());
+
+        assertNull(movieCache.getIfPresent("1"));
+    }
+
+    @Test
+    void movieInfoCreated_ignored() {
+        invalidator.onMovieInfoEvent(ServerSentEvent.builder(movieInfo("Batman Begins (2005)")).build());
+
+        assertEquals("Batman Begins", movieCache.getIfPresent("1").getMovieInfo().getName());
+    }
+
+    @Test
+    void reviewCreatedAndUpdated() {
+        invalidator.onReviewEvent(ServerSentEvent.builder(new Review("c", 1L, "Good Movie", 7.0)).build());
+        invalidator.onReviewEvent(ServerSentEvent.builder(new Review("a", 1L, "Still Awesome", 9.5)).event("updated").build());
+
+        List<Review> reviews = movieCache.getIfPresent("1").getReviewList();
+        assertEquals(3, reviews.size());
+        assertEquals("Still Awesome", reviews.get(0).getComment());
+        assertEquals("Good Movie", reviews.get(2).getComment());
+    }
+
+    @Test
+    void reviewDeleted() {
+        invalidator.onReviewEvent(ServerSentEvent.builder(new Review("b", 1L, "Excellent Movie", 8.0)).event("deleted").build());
+
+        List<Review> reviews = movieCache.getIfPresent("1").getReviewList();
+        assertEquals(1, reviews.size());
+        assertEquals("a", reviews.get(0).getReviewId());
+    }
+
+    @Test
+    void reviewOfUncachedMovie_ignored() {
+        invalidator.onReviewEvent(ServerSentEvent.builder(new Review("c", 2L, "Good Movie", 7.0)).build());
+
+        assertNull(movieCache.getIfPresent("2"));
+        assertEquals(1, movieCache.size());
+    }
+
+    private MovieInfo movieInfo(String name) {
+        return new MovieInfo("1", name, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+    }
+}
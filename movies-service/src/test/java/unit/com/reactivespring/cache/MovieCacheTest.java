@@ -0,0 +1,171 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MovieCacheTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final MovieCache movieCache = new MovieCache(100, Duration.ofSeconds(30), Duration.ofMinutes(5), nanoTime::get);
+
+    @Test
+    void get_loadsOnceWithinSoftTtl() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertName("Batman Begins", movieCache.get("abc", id -> {
+                loads.incrementAndGet();
+                return Mono.just(movie("Batman Begins"));
+            }));
+            nanoTime.addAndGet(Duration.ofSeconds(10).toNanos());
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2, movieCache.stats().hitCount());
+        assertEquals(0, movieCache.staleHits());
+    }
+
+    @Test
+    void get_servesStaleAndRefreshesOnce() {
+        movieCache.get("abc", id -> Mono.just(movie("Batman Begins"))).block();
+        nanoTime.addAndGet(Duration.ofSeconds(31).toNanos());
+        Sinks.One<Movie> refreshed = Sinks.one();
+        AtomicInteger refreshes = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertName("Batman Begins", movieCache.get("abc", id -> {
+                refreshes.incrementAndGet();
+                return refreshed.asMono();
+            }));
+        }
+        refreshed.tryEmitValue(movie("The Dark Knight"));
+
+        assertEquals(1, refreshes.get());
+        assertEquals(3, movieCache.staleHits());
+        assertName("The Dark Knight", movieCache.get("abc", id -> Mono.error(new IllegalStateException())));
+    }
+
+    @Test
+    void get_failedRefreshKeepsStaleMovie() {
+        movieCache.get("abc", id -> Mono.just(movie("Batman Begins"))).block();
+        nanoTime.addAndGet(Duration.ofSeconds(31).toNanos());
+        AtomicInteger refreshes = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            assertName("Batman Begins", movieCache.get("abc", id -> {
+                refreshes.incrementAndGet();
+                return Mono.error(new MoviesInfoServerException("Server Exception"));
+            }));
+        }
+
+        assertEquals(2, refreshes.get());
+        assertEquals(2, movieCache.refreshFailures());
+    }
+
+    @Test
+    void get_refreshOfDeletedMovieEvicts() {
+        movieCache.get("abc", id -> Mono.just(movie("Batman Begins"))).block();
+        nanoTime.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertName("Batman Begins", movieCache.get("abc", id -> Mono.error(new MoviesInfoClientException("Not Found", 404))));
+
+        assertNull(movieCache.getIfPresent("abc"));
+    }
+
+    @Test
+    void get_loadsAgainAfterHardTtl() {
+        movieCache.get("abc", id -> Mono.just(movie("Batman Begins"))).block();
+        nanoTime.addAndGet(Duration.ofMinutes(5).toNanos());
+
+        assertName("The Dark Knight", movieCache.get("abc", id -> Mono.just(movie("The Dark Knight"))));
+    }
+
+    @Test
+    void get_degradedMovieIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(movieCache.get("abc", id -> {
+                        loads.incrementAndGet();
+                        return Mono.just(new Movie(movie("Batman Begins").getMovieInfo(), List.of(), true));
+                    }))
+                    .expectNextCount(1)
+                    .verifyComplete();
+        }
+
+        assertEquals(2, loads.get());
+        assertEquals(0, movieCache.size());
+    }
+
+    @Test
+    void reload_replacesCachedMovie() {
+        movieCache.get("abc", id -> Mono.just(movie("Batman Begins"))).block();
+
+        assertName("The Dark Knight", movieCache.reload("abc", id -> Mono.just(movie("The Dark Knight"))));
+
+        assertEquals("The Dark Knight", movieCache.getIfPresent("abc").getMovieInfo().getName());
+    }
+
+    @Test
+    void update_replacesCachedMovieKeepingItsAge() {
+        movieCache.get("abc", id -> Mono.just(movie("Batman Begins"))).block();
+        nanoTime.addAndGet(Duration.ofSeconds(20).toNanos());
+
+        movieCache.update("abc", movie -> movie("The Dark Knight"));
+        nanoTime.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        assertName("The Dark Knight", movieCache.get("abc", id -> Mono.just(movie("The Dark Knight Rises"))));
+        assertEquals(1, movieCache.staleHits());
+        assertName("The Dark Knight Rises", movieCache.get("abc", id -> Mono.error(new IllegalStateException())));
+    }
+
+    @Test
+    void update_evictsMovieBeingLoaded() {
+        Sinks.One<Movie> loaded = Sinks.one();
+        StepVerifier.create(movieCache.get("abc", id -> loaded.asMono()))
+                .then(() -> movieCache.update("abc", movie -> movie("The Dark Knight")))
+                .then(() -> loaded.tryEmitValue(movie("Batman Begins")))
+                .assertNext(movie -> assertEquals("Batman Begins", movie.getMovieInfo().getName()))
+                .verifyComplete();
+
+        assertNull(movieCache.getIfPresent("abc"));
+    }
+
+    @Test
+    void update_winsOverRefreshInFlight() {
+        movieCache.get("abc", id -> Mono.just(movie("Batman Begins"))).block();
+        nanoTime.addAndGet(Duration.ofSeconds(31).toNanos());
+        Sinks.One<Movie> refreshed = Sinks.one();
+
+        assertName("Batman Begins", movieCache.get("abc", id -> refreshed.asMono()));
+        movieCache.update("abc", movie -> movie("The Dark Knight"));
+        refreshed.tryEmitValue(movie("Batman Begins"));
+
+        assertEquals("The Dark Knight", movieCache.getIfPresent("abc").getMovieInfo().getName());
+    }
+
+    private void assertName(String name, Mono<Movie> movie) {
+        StepVerifier.create(movie)
+                .assertNext(cached -> assertEquals(name, cached.getMovieInfo().getName()))
+                .verifyComplete();
+    }
+
+    private Movie movie(String name) {
+        return new Movie(new MovieInfo("abc", name, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")), List.of());
+    }
+}
@@ -0,0 +1,213 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieInfoStreamTest {
+
+    Sinks.Many<ServerSentEvent<MovieInfo>> upstream = Sinks.many().multicast().directBestEffort();
+    List<String> connections = new CopyOnWriteArrayList<>();
+    MovieInfoStream movieInfoStream = movieInfoStream(lastEventId -> upstream.asFlux(), 2);
+
+    @Test
+    void subscribersShareOneConnection() {
+        List<List<MovieInfo>> received = new ArrayList<>();
+        List<Disposable> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            List<MovieInfo> movieInfos = new CopyOnWriteArrayList<>();
+            received.add(movieInfos);
+            subscriptions.add(movieInfoStream.subscribe().subscribe(movieInfos::add));
+        }
+
+        upstream.tryEmitNext(event("1", null, "Batman Begins"));
+        upstream.tryEmitNext(event("2", "updated", "Batman Begins (2005)"));
+        upstream.tryEmitNext(event("3", "deleted", null));
+
+        assertEquals(1, connections.size());
+        assertEquals(1000, movieInfoStream.subscriberCount());
+        received.forEach(movieInfos -> assertEquals(2, movieInfos.size()));
+        subscriptions.forEach(Disposable::dispose);
+        assertEquals(0, movieInfoStream.subscriberCount());
+    }
+
+    @Test
+    void lateSubscriberIsReplayed() {
+        Disposable first = movieInfoStream.subscribe().subscribe();
+        upstream.tryEmitNext(event("1", null, "Batman Begins"));
+
+        List<MovieInfo> late = new ArrayList<>();
+        movieInfoStream.subscribe().subscribe(late::add);
+        upstream.tryEmitNext(event("2", null, "The Dark Knight"));
+
+        assertEquals(2, late.size());
+        assertEquals(1, connections.size());
+        first.dispose();
+    }
+
+    @Test
+    void slowSubscriberDoesNotHoldUpTheOthers() {
+        List<MovieInfo> fast = new ArrayList<>();
+        movieInfoStream.subscribe().subscribe(fast::add);
+        List<MovieInfo> slow = new ArrayList<>();
+        BaseSubscriber<MovieInfo> slowSubscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // requests nothing until the end of the test
+            }
+
+            @Override
+            protected void hookOnNext(MovieInfo movieInfo) {
+                slow.add(movieInfo);
+            }
+        };
+        movieInfoStream.subscribe().subscribe(slowSubscriber);
+
+        for (int i = 1; i <= 5; i++) {
+            upstream.tryEmitNext(event(String.valueOf(i), null, "Movie " + i));
+        }
+        assertEquals(2, movieInfoStream.bufferedCount());
+        slowSubscriber.request(Long.MAX_VALUE);
+
+        assertEquals(5, fast.size());
+        // the buffer of two kept the latest ones
+        assertEquals(List.of("Movie 4", "Movie 5"), slow.stream().map(MovieInfo::getName).collect(Collectors.toList()));
+        assertEquals(3, movieInfoStream.droppedCount());
+        assertEquals(0, movieInfoStream.bufferedCount());
+    }
+
+    @Test
+    void lostConnectionResumesAfterLastEvent() {
+        movieInfoStream = movieInfoStream(lastEventId -> connections.size() == 1
+                ? Flux.just(event("1", null, "Batman Begins"), event("2", null, "The Dark Knight"))
+                : Flux.<ServerSentEvent<MovieInfo>>never().startWith(event("3", null, "The Dark Knight Rises")), 256);
+
+        List<String> names = new CopyOnWriteArrayList<>();
+        Disposable subscription = movieInfoStream.subscribe().subscribe(movieInfo -> names.add(movieInfo.getName()));
+
+        await(() -> names.size() == 3);
+        assertEquals(List.of("Batman Begins", "The Dark Knight", "The Dark Knight Rises"), names);
+        assertEquals(2, connections.size());
+        assertNull(connections.get(0));
+        assertEquals("2", connections.get(1));
+        subscription.dispose();
+    }
+
+    @Test
+    void passthroughForwardsLines() {
+        Sinks.Many<String> chunks = Sinks.many().multicast().directBestEffort();
+        movieInfoStream = passthroughStream(lastEventId -> chunks.asFlux().map(this::buffer));
+
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        movieInfoStream.subscribePassthrough().map(this::string).subscribe(first::add);
+        movieInfoStream.subscribePassthrough().map(this::string).subscribe(second::add);
+        chunks.tryEmitNext("id:1\ndata:{\"name\":\"Batman Begins\"}\n\nid:2\nevent:deleted\n");
+        chunks.tryEmitNext("data:{\"movieInfoId\":\"1\"}\n\nid:3\nevent:updated\ndata:{}\n\n");
+
+        assertEquals(List.of("{\"name\":\"Batman Begins\"}\n", "{}\n"), first);
+        assertEquals(first, second);
+        // every subscriber reads its own connection at its own pace
+        assertEquals(2, connections.size());
+        assertEquals(2, movieInfoStream.subscriberCount());
+    }
+
+    @Test
+    void passthroughReadsOnlyWhatIsRequested() {
+        List<Long> requested = new CopyOnWriteArrayList<>();
+        movieInfoStream = passthroughStream(lastEventId -> Flux.range(1, 10_000)
+                .map(i -> buffer("id:" + i + "\ndata:{}\n\n"))
+                .doOnRequest(requested::add));
+
+        StepVerifier.create(movieInfoStream.subscribePassthrough().map(this::string), 1)
+                .expectNext("{}\n")
+                .thenCancel()
+                .verify();
+
+        assertTrue(requested.stream().mapToLong(Long::longValue).sum() < 10_000);
+        assertEquals(0, movieInfoStream.droppedCount());
+    }
+
+    @Test
+    void passthroughReleasesBuffersOnCancel() {
+        NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        List<NettyDataBuffer> buffers = List.of("id:1\ndata:{}\n\nid:2\ndata:{}\n\n", "id:3\ndata:{}\n\nid:4\ndata:{", "}\n\n")
+                .stream()
+                .map(chunk -> (NettyDataBuffer) bufferFactory.wrap(chunk.getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.toList());
+        movieInfoStream = passthroughStream(lastEventId -> Flux.<DataBuffer>fromIterable(buffers).concatWith(Flux.never()));
+
+        StepVerifier.create(movieInfoStream.subscribePassthrough().map(this::string), 1)
+                .expectNext("{}\n")
+                .thenCancel()
+                .verify();
+
+        buffers.forEach(buffer -> assertEquals(0, buffer.getNativeBuffer().refCnt()));
+        assertEquals(0, movieInfoStream.subscriberCount());
+    }
+
+    private MovieInfoStream passthroughStream(Function<String, Flux<DataBuffer>> eventBuffers) {
+        return new MovieInfoStream(lastEventId -> Flux.never(), lastEventId -> {
+            connections.add(lastEventId);
+            return eventBuffers.apply(lastEventId);
+        }, new SimpleMeterRegistry(), 256, 100, Duration.ZERO, Duration.ofMillis(10), Duration.ofMillis(10));
+    }
+
+    private MovieInfoStream movieInfoStream(Function<String, Flux<ServerSentEvent<MovieInfo>>> events,
+                                            int subscriberBufferSize) {
+        return new MovieInfoStream(lastEventId -> {
+            connections.add(lastEventId);
+            return events.apply(lastEventId);
+        }, lastEventId -> Flux.empty(), new SimpleMeterRegistry(), subscriberBufferSize, 100, Duration.ZERO, Duration.ofMillis(10), Duration.ofMillis(10));
+    }
+
+    private ServerSentEvent<MovieInfo> event(String id, String type, String name) {
+        return ServerSentEvent.builder(name != null ? new MovieInfo(id, name, 2005, List.of("Christian Bale"), null) : null)
+                .id(id)
+                .event(type)
+                .build();
+    }
+
+    private DataBuffer buffer(String chunk) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String string(DataBuffer buffer) {
+        String string = buffer.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(buffer);
+        return string;
+    }
+
+    private void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}
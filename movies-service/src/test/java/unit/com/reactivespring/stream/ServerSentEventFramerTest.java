@@ -0,0 +1,110 @@
+package com.reactivespring.stream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ServerSentEventFramerTest {
+
+    NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    ServerSentEventFramer framer = new ServerSentEventFramer();
+
+    @Test
+    void framesEventsSplitAcrossBuffers() {
+        List<ServerSentEventFramer.RawEvent> events = frame(
+                "id:1\ndata:{\"name\":\"Batman",
+                " Begins\"}\n\nid:2\nevent:updated\n",
+                ":2026-10-18T10:00:00Z\ndata: {\"name\":\"The Dark Knight\"}\n",
+                "\n");
+
+        assertEquals(2, events.size());
+        assertEquals("1", events.get(0).id());
+        assertNull(events.get(0).event());
+        assertEquals("{\"name\":\"Batman Begins\"}\n", line(events.get(0)));
+        assertEquals("2", events.get(1).id());
+        assertEquals("updated", events.get(1).event());
+        assertEquals("{\"name\":\"The Dark Knight\"}\n", line(events.get(1)));
+    }
+
+    @Test
+    void crLfAndMultipleDataLines() {
+        List<ServerSentEventFramer.RawEvent> events = frame("id:1\r\ndata:a\r\ndata:b\r\n\r\n");
+
+        assertEquals(1, events.size());
+        assertEquals("1", events.get(0).id());
+        assertEquals("a\nb\n", line(events.get(0)));
+    }
+
+    @Test
+    void linesLongerThanTheirBuffers() {
+        String value = "x".repeat(1000);
+        List<ServerSentEventFramer.RawEvent> events = frame(
+                "da", "ta:" + value.substring(0, 400), value.substring(400) + "\r", "\ndata:" + value + "\r\n", "\r\n");
+
+        assertEquals(1, events.size());
+        assertEquals(value + "\n" + value + "\n", line(events.get(0)));
+    }
+
+    @Test
+    void commentsAndEventsWithoutDataAreSkipped() {
+        List<ServerSentEventFramer.RawEvent> events = frame(":keepalive\n\nevent:ping\n\nid:3\n\ndata:x\n\n");
+
+        assertEquals(1, events.size());
+        // the last event id carries over, the event name doesn't
+        assertEquals("3", events.get(0).id());
+        assertNull(events.get(0).event());
+    }
+
+    @Test
+    void dataIsASliceOfTheBufferItWasReadIn() {
+        NettyDataBuffer buffer = (NettyDataBuffer) bufferFactory.wrap("id:1\ndata:{}\n\n".getBytes(StandardCharsets.UTF_8));
+
+        List<ServerSentEventFramer.RawEvent> events = framer.frame(buffer);
+
+        NettyDataBuffer line = (NettyDataBuffer) events.get(0).line();
+        assertSame(buffer.getNativeBuffer(), line.getNativeBuffer().unwrap());
+        assertEquals("{}\n", line(events.get(0)));
+    }
+
+    @Test
+    void buffersAreReleasedWithTheirEvents() {
+        List<ByteBuf> buffers = new ArrayList<>();
+        List<ServerSentEventFramer.RawEvent> events = new ArrayList<>();
+        for (String chunk : List.of("data:a\n", "\n", "data:b\n")) {
+            NettyDataBuffer buffer = (NettyDataBuffer) bufferFactory.wrap(chunk.getBytes(StandardCharsets.UTF_8));
+            buffers.add(buffer.getNativeBuffer());
+            events.addAll(framer.frame(buffer));
+        }
+        assertEquals(1, buffers.get(0).refCnt());
+        assertEquals(0, buffers.get(1).refCnt());
+
+        events.forEach(ServerSentEventFramer.RawEvent::release);
+        framer.release();
+
+        buffers.forEach(buffer -> assertEquals(0, buffer.refCnt()));
+    }
+
+    private List<ServerSentEventFramer.RawEvent> frame(String... chunks) {
+        List<ServerSentEventFramer.RawEvent> events = new ArrayList<>();
+        for (String chunk : chunks) {
+            events.addAll(framer.frame(bufferFactory.wrap(chunk.getBytes(StandardCharsets.UTF_8))));
+        }
+        return events;
+    }
+
+    private String line(ServerSentEventFramer.RawEvent event) {
+        String line = event.line().toString(StandardCharsets.UTF_8);
+        event.release();
+        return line;
+    }
+}
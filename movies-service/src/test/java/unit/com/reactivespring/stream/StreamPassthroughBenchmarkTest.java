@@ -0,0 +1,125 @@
+package com.reactivespring.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.reactivespring.domain.MovieInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.codec.ServerSentEventHttpMessageReader;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.mock.http.client.reactive.MockClientHttpResponse;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares the CPU time and the allocations per event of decoding the movie info stream into movie infos and
+ * encoding them again with forwarding the raw lines.
+ * Run with BENCHMARK=true.
+ */
+@Slf4j
+@EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+class StreamPassthroughBenchmarkTest {
+
+    static final int EVENTS = 100_000;
+    static final int CHUNK_SIZE = 8192;
+
+    final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    final ServerSentEventHttpMessageReader reader = new ServerSentEventHttpMessageReader(new Jackson2JsonDecoder(objectMapper));
+    final Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper);
+    final List<byte[]> chunks = chunks();
+
+    @Test
+    void decodeEncodeVersusPassthrough() {
+        for (int run = 0; run < 5; run++) {
+            measure("decode/encode", this::decodeEncode);
+            measure("passthrough", this::passthrough);
+        }
+    }
+
+    private long decodeEncode() {
+        MockClientHttpResponse response = new MockClientHttpResponse(HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+        response.setBody(buffers());
+        Flux<MovieInfo> movieInfos = reader.read(ResolvableType.forClassWithGenerics(ServerSentEvent.class, MovieInfo.class),
+                        response, Map.of())
+                .map(event -> (MovieInfo) ((ServerSentEvent<?>) event).data());
+        return encoder.encode(movieInfos, DefaultDataBufferFactory.sharedInstance, ResolvableType.forClass(MovieInfo.class),
+                        MediaType.APPLICATION_NDJSON, Map.of())
+                .map(this::written)
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    private long passthrough() {
+        ServerSentEventFramer framer = new ServerSentEventFramer();
+        return buffers()
+                .concatMapIterable(framer::frame)
+                .map(ServerSentEventFramer.RawEvent::line)
+                .map(this::written)
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    private long written(DataBuffer buffer) {
+        int bytes = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+
+    private void measure(String name, LongSupplier path) {
+        long threadId = Thread.currentThread().getId();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+        long written = path.getAsLong();
+        long cpu = threads.getCurrentThreadCpuTime() - cpuStart;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedStart;
+        log.info("{} {} events: {} ns CPU / event, {} bytes allocated / event, {} bytes written",
+                name, EVENTS, cpu / EVENTS, allocated / EVENTS, written);
+    }
+
+    private Flux<DataBuffer> buffers() {
+        return Flux.fromIterable(chunks)
+                .map(DefaultDataBufferFactory.sharedInstance::wrap);
+    }
+
+    private List<byte[]> chunks() {
+        StringBuilder stream = new StringBuilder();
+        for (int i = 1; i <= EVENTS; i++) {
+            MovieInfo movieInfo = new MovieInfo(String.valueOf(i), "Batman Begins " + i, 2005,
+                    List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+            try {
+                stream.append("id:").append(i).append('\n')
+                        .append(':').append("2026-10-18T10:00:00Z").append('\n')
+                        .append("data:").append(objectMapper.writeValueAsString(movieInfo)).append("\n\n");
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        // read off the wire in chunks that don't line up with the events
+        byte[] bytes = stream.toString().getBytes(StandardCharsets.UTF_8);
+        List<byte[]> chunks = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += CHUNK_SIZE) {
+            byte[] chunk = new byte[Math.min(CHUNK_SIZE, bytes.length - offset)];
+            System.arraycopy(bytes, offset, chunk, 0, chunk.length);
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,139 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.ReviewsServerException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchLoaderTest {
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    BatchLoader<String, String> batchLoader = new BatchLoader<>("reviews", 3, Duration.ofMillis(2),
+            Duration.ofMillis(10), meterRegistry, scheduler);
+    List<List<String>> calls = new ArrayList<>();
+
+    @Test
+    void fullBatchIsLoadedRightAway() {
+        List<String> results = new ArrayList<>();
+
+        for (String key : List.of("1", "2", "3")) {
+            batchLoader.load(key, this::call).subscribe(results::add);
+        }
+
+        assertEquals(List.of(List.of("1", "2", "3")), calls);
+        assertEquals(List.of("review 1", "review 2", "review 3"), results);
+        assertEquals(1, batchCalls("size"));
+        assertEquals(3, meterRegistry.get("restclient.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void batchIsLoadedOnceNoKeyJoinsForTheWindow() {
+        batchLoader.load("1", this::call).subscribe();
+        scheduler.advanceTimeBy(Duration.ofMillis(1));
+        batchLoader.load("2", this::call).subscribe();
+        scheduler.advanceTimeBy(Duration.ofMillis(1));
+
+        assertEquals(List.of(), calls);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(1));
+        batchLoader.load("3", this::call).subscribe();
+
+        assertEquals(List.of(List.of("1", "2")), calls);
+        assertEquals(1, batchCalls("window"));
+    }
+
+    @Test
+    void batchIsLoadedAfterMaxWait() {
+        BatchLoader<String, String> batchLoader = new BatchLoader<>("reviews", 100, Duration.ofMillis(2),
+                Duration.ofMillis(10), meterRegistry, scheduler);
+
+        for (int i = 0; i < 12; i++) {
+            batchLoader.load(String.valueOf(i), this::call).subscribe();
+            scheduler.advanceTimeBy(Duration.ofMillis(1));
+        }
+
+        // a key joined every millisecond, the window never passed but the first ten keys waited long enough
+        assertEquals(1, calls.size());
+        assertEquals(10, calls.get(0).size());
+        assertEquals(1, batchCalls("maxWait"));
+    }
+
+    @Test
+    void sameKeyIsLoadedOnce() {
+        List<String> results = new ArrayList<>();
+
+        batchLoader.load("1", this::call).subscribe(results::add);
+        batchLoader.load("1", this::call).subscribe(results::add);
+        scheduler.advanceTimeBy(Duration.ofMillis(2));
+
+        assertEquals(List.of(List.of("1")), calls);
+        assertEquals(List.of("review 1", "review 1"), results);
+    }
+
+    @Test
+    void keyWithoutValueCompletesEmpty() {
+        AtomicBoolean completed = new AtomicBoolean();
+        List<String> results = new ArrayList<>();
+
+        batchLoader.load("1", keys -> Mono.just(Map.of())).subscribe(results::add, error -> {
+        }, () -> completed.set(true));
+        scheduler.advanceTimeBy(Duration.ofMillis(2));
+
+        assertTrue(completed.get());
+        assertEquals(List.of(), results);
+    }
+
+    @Test
+    void errorFailsEveryKeyOfTheBatch() {
+        Sinks.One<Map<String, String>> response = Sinks.one();
+        List<Throwable> errors = new ArrayList<>();
+        Function<List<String>, Mono<Map<String, String>>> call = keys -> response.asMono();
+
+        batchLoader.load("1", call).subscribe(value -> {
+        }, errors::add);
+        batchLoader.load("2", call).subscribe(value -> {
+        }, errors::add);
+        scheduler.advanceTimeBy(Duration.ofMillis(2));
+        response.tryEmitError(new ReviewsServerException("Server Exception"));
+
+        assertEquals(2, errors.size());
+        errors.forEach(error -> assertTrue(error instanceof ReviewsServerException));
+    }
+
+    @Test
+    void cancellingOneCallerKeepsTheBatchForTheOthers() {
+        AtomicReference<String> result = new AtomicReference<>();
+
+        batchLoader.load("1", this::call).subscribe().dispose();
+        batchLoader.load("2", this::call).subscribe(result::set);
+        scheduler.advanceTimeBy(Duration.ofMillis(2));
+
+        assertEquals(List.of(List.of("1", "2")), calls);
+        assertEquals("review 2", result.get());
+    }
+
+    private Mono<Map<String, String>> call(List<String> keys) {
+        calls.add(keys);
+        return Mono.just(keys.stream().collect(Collectors.toMap(Function.identity(), key -> "review " + key)));
+    }
+
+    private double batchCalls(String trigger) {
+        return meterRegistry.get("restclient.batch.calls").tag("trigger", trigger).counter().count();
+    }
+}
@@ -0,0 +1,144 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.ResilienceProperties;
+import com.reactivespring.exception.CallNotPermittedException;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.ReviewsServerException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    AtomicLong nanoTime = new AtomicLong();
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CircuitBreaker circuitBreaker = new CircuitBreaker("reviews", config(), meterRegistry, nanoTime::get);
+
+    static ResilienceProperties.CircuitBreaker config() {
+        ResilienceProperties.CircuitBreaker config = new ResilienceProperties.CircuitBreaker();
+        config.setSlidingWindowSize(4);
+        config.setMinimumNumberOfCalls(4);
+        config.setFailureRateThreshold(50);
+        config.setSlowCallRateThreshold(75);
+        config.setSlowCallDurationThreshold(Duration.ofSeconds(1));
+        config.setWaitDurationInOpenState(Duration.ofSeconds(10));
+        config.setPermittedCallsInHalfOpenState(2);
+        return config;
+    }
+
+    void calls(boolean... failed) {
+        for (boolean callFailed : failed) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onResult(0, callFailed);
+        }
+    }
+
+    @Test
+    void opensAtFailureRateThreshold() {
+        calls(false, true, false);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        calls(true);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertEquals(1, meterRegistry.counter("restclient.circuitbreaker.transitions",
+                "name", "reviews", "from", "closed", "to", "open").count());
+    }
+
+    @Test
+    void slidingWindowEvictsOldCalls() {
+        calls(true, false, false, false, false, false, true);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(25, circuitBreaker.getFailureRate());
+    }
+
+    @Test
+    void opensAtSlowCallRateThreshold() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onResult(Duration.ofSeconds(2).toNanos(), false);
+        }
+        calls(false);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_probesThenCloses() {
+        calls(true, true, true, true);
+        nanoTime.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onResult(0, false);
+        circuitBreaker.onResult(0, false);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_reopensOnFailedProbe() {
+        calls(true, true, true, true);
+        nanoTime.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        calls(false, true);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void protect_clientErrorsAreSuccessful() {
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(circuitBreaker.protect(Mono.error(new MoviesInfoClientException("Not Found", 404))))
+                    .expectError(MoviesInfoClientException.class)
+                    .verify();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getFailureRate());
+    }
+
+    @Test
+    void protect_rejectsWhenOpen() {
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(circuitBreaker.protect(Flux.error(new ReviewsServerException("Server Exception"))))
+                    .expectError(ReviewsServerException.class)
+                    .verify();
+        }
+
+        StepVerifier.create(circuitBreaker.protect(Flux.just("review")))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+        assertEquals(1, meterRegistry.counter("restclient.circuitbreaker.calls",
+                "name", "reviews", "outcome", "not_permitted").count());
+    }
+
+    @Test
+    void protect_cancelledProbeReleasesPermission() {
+        circuitBreaker.transitionTo(CircuitBreaker.State.HALF_OPEN);
+
+        StepVerifier.create(circuitBreaker.protect(Mono.never()))
+                .thenCancel()
+                .verify();
+        StepVerifier.create(circuitBreaker.protect(Mono.never()))
+                .thenCancel()
+                .verify();
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+}
@@ -0,0 +1,70 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.RetryProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    AtomicLong nanoTime = new AtomicLong();
+
+    RetryBudget retryBudget(double retryRatio, double minRetriesPerSecond, double maxTokens) {
+        RetryProperties.Budget budget = new RetryProperties.Budget();
+        budget.setRetryRatio(retryRatio);
+        budget.setMinRetriesPerSecond(minRetriesPerSecond);
+        budget.setMaxTokens(maxTokens);
+        return new RetryBudget(budget, nanoTime::get);
+    }
+
+    @Test
+    void tryWithdraw_stopsWhenEmpty() {
+        RetryBudget retryBudget = retryBudget(0.2, 0, 3);
+
+        assertTrue(retryBudget.tryWithdraw());
+        assertTrue(retryBudget.tryWithdraw());
+        assertTrue(retryBudget.tryWithdraw());
+        assertFalse(retryBudget.tryWithdraw());
+    }
+
+    @Test
+    void deposit_allowsRetryRatioOfRequests() {
+        RetryBudget retryBudget = retryBudget(0.25, 0, 3);
+        while (retryBudget.tryWithdraw()) {
+        }
+
+        for (int i = 0; i < 8; i++) {
+            retryBudget.deposit();
+        }
+
+        assertTrue(retryBudget.tryWithdraw());
+        assertTrue(retryBudget.tryWithdraw());
+        assertFalse(retryBudget.tryWithdraw());
+    }
+
+    @Test
+    void refill_minRetriesPerSecond() {
+        RetryBudget retryBudget = retryBudget(0.2, 5, 3);
+        while (retryBudget.tryWithdraw()) {
+        }
+
+        nanoTime.addAndGet(200_000_000);
+
+        assertTrue(retryBudget.tryWithdraw());
+        assertFalse(retryBudget.tryWithdraw());
+    }
+
+    @Test
+    void tokens_cappedAtMaxTokens() {
+        RetryBudget retryBudget = retryBudget(0.2, 5, 3);
+
+        nanoTime.addAndGet(60_000_000_000L);
+        retryBudget.deposit();
+
+        assertEquals(3, retryBudget.tokens());
+    }
+}
@@ -0,0 +1,116 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.RetryProperties;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryUtilTest {
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    RetryProperties.Policy policy(int maxRetries) {
+        RetryProperties.Policy policy = new RetryProperties.Policy();
+        policy.setMaxRetries(maxRetries);
+        policy.setFirstBackoff(Duration.ofMillis(1));
+        policy.setMaxBackoff(Duration.ofMillis(4));
+        return policy;
+    }
+
+    RetryBudget retryBudget(double maxTokens) {
+        RetryProperties.Budget budget = new RetryProperties.Budget();
+        budget.setRetryRatio(0);
+        budget.setMinRetriesPerSecond(0);
+        budget.setMaxTokens(maxTokens);
+        return new RetryBudget(budget);
+    }
+
+    double retries(String outcome) {
+        return meterRegistry.counter("restclient.retries", "policy", "test", "outcome", outcome).count();
+    }
+
+    @Test
+    void backoff_withinExponentialBound() {
+        RetryProperties.Policy policy = new RetryProperties.Policy();
+        policy.setFirstBackoff(Duration.ofMillis(100));
+        policy.setMaxBackoff(Duration.ofSeconds(2));
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(RetryUtil.backoff(policy, 0).toMillis() <= 100);
+            assertTrue(RetryUtil.backoff(policy, 2).toMillis() <= 400);
+            assertTrue(RetryUtil.backoff(policy, 10).toMillis() <= 2000);
+        }
+    }
+
+    @Test
+    void retrySpec_exhausted() {
+        Retry retry = RetryUtil.retrySpec("test", policy(3), retryBudget(20), meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        StepVerifier.create(Mono.error(new MoviesInfoServerException("Server Exception"))
+                        .doOnSubscribe(subscription -> attempts.incrementAndGet())
+                        .retryWhen(retry))
+                .expectError(MoviesInfoServerException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(4, attempts.get());
+        assertEquals(3, retries("attempted"));
+        assertEquals(1, retries("exhausted"));
+    }
+
+    @Test
+    void retrySpec_suppressedByBudget() {
+        Retry retry = RetryUtil.retrySpec("test", policy(3), retryBudget(1), meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        StepVerifier.create(Mono.error(new MoviesInfoServerException("Server Exception"))
+                        .doOnSubscribe(subscription -> attempts.incrementAndGet())
+                        .retryWhen(retry))
+                .expectError(MoviesInfoServerException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(2, attempts.get());
+        assertEquals(1, retries("attempted"));
+        assertEquals(1, retries("suppressed"));
+    }
+
+    @Test
+    void retrySpec_clientErrorNotRetried() {
+        Retry retry = RetryUtil.retrySpec("test", policy(3), retryBudget(20), meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        StepVerifier.create(Mono.error(new MoviesInfoClientException("Not Found", 404))
+                        .doOnSubscribe(subscription -> attempts.incrementAndGet())
+                        .retryWhen(retry))
+                .expectError(MoviesInfoClientException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1, attempts.get());
+        assertEquals(0, retries("attempted"));
+    }
+
+    @Test
+    void attemptTimeout_retried() {
+        Retry retry = RetryUtil.retrySpec("test", policy(1), retryBudget(20), meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Mono<String> attempt = Mono.defer(() -> attempts.incrementAndGet() == 1 ? Mono.<String>never() : Mono.just("movie"));
+
+        StepVerifier.create(RetryUtil.attemptTimeout(attempt, Duration.ofMillis(100)).retryWhen(retry))
+                .expectNext("movie")
+                .verifyComplete();
+
+        assertEquals(2, attempts.get());
+    }
+}
@@ -0,0 +1,114 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SingleFlight<String, String> singleFlight = new SingleFlight<>("moviesInfo", meterRegistry);
+    AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void concurrentCallersShareOneCall() {
+        Sinks.One<String> response = Sinks.one();
+        List<String> results = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            singleFlight.execute("1", () -> call(response)).subscribe(results::add);
+        }
+        response.tryEmitValue("Batman Begins");
+
+        assertEquals(1, calls.get());
+        assertEquals(10, results.size());
+        assertEquals(0, singleFlight.inFlight());
+        assertEquals(0.9, singleFlight.coalescingRatio(), 0.001);
+        assertEquals(9, meterRegistry.get("restclient.singleflight.calls").tag("outcome", "coalesced").counter().count());
+    }
+
+    @Test
+    void differentKeysAreNotShared() {
+        singleFlight.execute("1", () -> call(Sinks.one())).subscribe();
+        singleFlight.execute("2", () -> call(Sinks.one())).subscribe();
+
+        assertEquals(2, calls.get());
+        assertEquals(2, singleFlight.inFlight());
+    }
+
+    @Test
+    void errorIsSharedAndForgotten() {
+        Sinks.One<String> response = Sinks.one();
+        Mono<String> first = singleFlight.execute("1", () -> call(response));
+        Mono<String> second = singleFlight.execute("1", () -> call(response));
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> response.tryEmitError(new MoviesInfoServerException("Server Exception")))
+                .verifyError(MoviesInfoServerException.class);
+
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.inFlight());
+        StepVerifier.create(singleFlight.execute("1", () -> call(Sinks.one())).timeout(Duration.ofMillis(10)))
+                .expectError()
+                .verify();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void callAfterCompletionIsExecutedAgain() {
+        StepVerifier.create(singleFlight.execute("1", () -> Mono.fromCallable(() -> "Batman Begins " + calls.incrementAndGet())))
+                .expectNext("Batman Begins 1")
+                .verifyComplete();
+        StepVerifier.create(singleFlight.execute("1", () -> Mono.fromCallable(() -> "Batman Begins " + calls.incrementAndGet())))
+                .expectNext("Batman Begins 2")
+                .verifyComplete();
+    }
+
+    @Test
+    void cancellingOneCallerKeepsTheCallForTheOthers() {
+        Sinks.One<String> response = Sinks.one();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<String> results = new ArrayList<>();
+
+        Disposable first = singleFlight.execute("1", () -> call(response).doOnCancel(() -> cancelled.set(true))).subscribe();
+        singleFlight.execute("1", () -> call(response)).subscribe(results::add);
+        first.dispose();
+        response.tryEmitValue("Batman Begins");
+
+        assertFalse(cancelled.get());
+        assertEquals(List.of("Batman Begins"), results);
+    }
+
+    @Test
+    void cancellingAllCallersCancelsTheCall() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        Disposable first = singleFlight.execute("1", () -> call(Sinks.one()).doOnCancel(() -> cancelled.set(true))).subscribe();
+        Disposable second = singleFlight.execute("1", () -> call(Sinks.one())).subscribe();
+        first.dispose();
+        second.dispose();
+
+        assertTrue(cancelled.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    private Mono<String> call(Sinks.One<String> response) {
+        calls.incrementAndGet();
+        return response.asMono();
+    }
+}